@@ -0,0 +1,132 @@
+package com.mmdr.hotreload;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Generated classes and transform passes used as benchmark input
+ *
+ * @author MMDR Team
+ */
+final class BenchmarkClasses {
+
+    private BenchmarkClasses() {
+    }
+
+    /**
+     * Generate a class with a static field, a {@code value()} method returning
+     * {@code version} and {@code methodCount} additional methods with a loop each
+     */
+    static byte[] generate(String className, int methodCount, int version) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        String internalName = className.replace('.', '/');
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, internalName, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "counter", "I", null, null).visitEnd();
+
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        MethodVisitor value = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "value", "()I", null, null);
+        value.visitCode();
+        value.visitLdcInsn(version);
+        value.visitInsn(Opcodes.IRETURN);
+        value.visitMaxs(0, 0);
+        value.visitEnd();
+
+        for (int i = 0; i < methodCount; i++) {
+            generateLoop(writer, internalName, "m" + i, i);
+        }
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * {@code static int name(int n) { int sum = 0; for (int i = 0; i < n; i++) sum += i * seed + counter; return sum; }}
+     */
+    private static void generateLoop(ClassWriter writer, String owner, String name, int seed) {
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, name, "(I)I", null, null);
+        Label check = new Label();
+        Label body = new Label();
+
+        method.visitCode();
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitVarInsn(Opcodes.ISTORE, 1);
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitVarInsn(Opcodes.ISTORE, 2);
+        method.visitJumpInsn(Opcodes.GOTO, check);
+
+        method.visitLabel(body);
+        method.visitVarInsn(Opcodes.ILOAD, 1);
+        method.visitVarInsn(Opcodes.ILOAD, 2);
+        method.visitLdcInsn(seed);
+        method.visitInsn(Opcodes.IMUL);
+        method.visitInsn(Opcodes.IADD);
+        method.visitFieldInsn(Opcodes.GETSTATIC, owner, "counter", "I");
+        method.visitInsn(Opcodes.IADD);
+        method.visitVarInsn(Opcodes.ISTORE, 1);
+        method.visitIincInsn(2, 1);
+
+        method.visitLabel(check);
+        method.visitVarInsn(Opcodes.ILOAD, 2);
+        method.visitVarInsn(Opcodes.ILOAD, 0);
+        method.visitJumpInsn(Opcodes.IF_ICMPLT, body);
+        method.visitVarInsn(Opcodes.ILOAD, 1);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    /**
+     * Adds a marker field; untouched methods are copied through verbatim
+     */
+    static final class AddFieldPass implements TransformPass {
+        @Override
+        public boolean appliesTo(String className, ClassReader reader) {
+            return true;
+        }
+
+        @Override
+        public ClassVisitor createVisitor(ClassVisitor next, String className) {
+            return new ClassVisitor(Opcodes.ASM9, next) {
+                @Override
+                public void visitEnd() {
+                    visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, "$mmdrMarker", "Z", null, null).visitEnd();
+                    super.visitEnd();
+                }
+            };
+        }
+    }
+
+    /**
+     * Visits every method through its own visitor, so no method can be copied
+     * through and all of them are re-encoded
+     */
+    static final class VisitMethodsPass implements TransformPass {
+        @Override
+        public boolean appliesTo(String className, ClassReader reader) {
+            return true;
+        }
+
+        @Override
+        public ClassVisitor createVisitor(ClassVisitor next, String className) {
+            return new ClassVisitor(Opcodes.ASM9, next) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                                 String[] exceptions) {
+                    return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.mmdr.hotreload;
+
+import com.mmdr.util.MMDRConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the legacy {@code hotreload} stack with the production engine:
+ * reloading a batch of classes, and the time from writing a class file to the
+ * watcher reporting it.
+ *
+ * Run with {@code ./gradlew jmh}.
+ *
+ * @author MMDR Team
+ */
+public class ReloadEngineBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ReloadState {
+        @Param({"1", "50"})
+        public int classCount;
+
+        Map<String, byte[]> bytecode;
+        hotreload.BytecodeTransformer legacyTransformer;
+        hotreload.ClassReloader legacyReloader;
+        ClassReloader reloader;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            bytecode = new LinkedHashMap<>();
+            for (int i = 0; i < classCount; i++) {
+                String className = "mmdr.bench.Generated" + i;
+                bytecode.put(className, BenchmarkClasses.generate(className, 0, i));
+            }
+
+            legacyTransformer = new hotreload.BytecodeTransformer();
+            legacyReloader = new hotreload.ClassReloader();
+
+            // Classes are never loaded by the game, so every engine defines them in a new classloader
+            MMDRConfig config = new MMDRConfig();
+            config.setInstrumentationReloadEnabled(false);
+            reloader = new ClassReloader(config);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            reloader.shutdown();
+        }
+    }
+
+    /**
+     * Legacy stack: transform and define every class on its own, in its own classloader
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public void legacyReload(ReloadState state, Blackhole blackhole) {
+        for (Map.Entry<String, byte[]> entry : state.bytecode.entrySet()) {
+            byte[] transformed = state.legacyTransformer.transform(entry.getKey().replace('.', '/'), entry.getValue());
+            blackhole.consume(state.legacyReloader.reloadClass(entry.getKey(), transformed));
+        }
+    }
+
+    /**
+     * Production engine: prepare the batch in parallel, then commit it into one classloader generation
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public ReloadResult engineReload(ReloadState state) {
+        for (Map.Entry<String, byte[]> entry : state.bytecode.entrySet()) {
+            state.reloader.stageBytecode(entry.getKey(), entry.getValue());
+        }
+        return state.reloader.reloadClasses(state.bytecode.keySet());
+    }
+
+    @State(Scope.Benchmark)
+    public static class WatcherState {
+        Path legacyDir;
+        Path engineDir;
+        hotreload.FileWatcher legacyWatcher;
+        BlockingQueue<Path> legacyEvents = new LinkedBlockingQueue<>();
+        FileWatcher engineWatcher;
+        byte[] content = BenchmarkClasses.generate("mmdr.bench.Watched", 0, 0);
+        int writes;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            legacyDir = Files.createTempDirectory("mmdr-bench-legacy");
+            engineDir = Files.createTempDirectory("mmdr-bench-engine");
+
+            legacyWatcher = new hotreload.FileWatcher((path, kind) -> {
+                if (kind != StandardWatchEventKinds.ENTRY_DELETE) {
+                    legacyEvents.add(path);
+                }
+            });
+            legacyWatcher.watchDirectory(legacyDir);
+            legacyWatcher.start();
+
+            engineWatcher = new FileWatcher(List.of(engineDir), FileWatcher.DEFAULT_COALESCE_WINDOW_MS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            legacyWatcher.close();
+            engineWatcher.close();
+        }
+    }
+
+    /**
+     * Write to reported by the legacy listener thread, per event and without coalescing
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public Path legacyWatcherLatency(WatcherState state) throws Exception {
+        Path file = state.legacyDir.resolve("Watched" + state.writes++ + ".class").toAbsolutePath().normalize();
+        Files.write(file, state.content);
+
+        // A write produces several events; skip the late ones of earlier writes
+        Path reported;
+        do {
+            reported = state.legacyEvents.take();
+        } while (!reported.equals(file));
+        return reported;
+    }
+
+    /**
+     * Write to reported by {@link FileWatcher#take()}, including the adaptive quiet period
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public List<Path> engineWatcherLatency(WatcherState state) throws Exception {
+        Path file = state.engineDir.resolve("Watched" + state.writes++ + ".class");
+        Files.write(file, state.content);
+        return state.engineWatcher.take();
+    }
+}
@@ -0,0 +1,223 @@
+package com.mmdr.hotreload;
+
+import com.mmdr.util.MMDRConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of each stage of the reload pipeline, per class or per event.
+ *
+ * Batch benchmarks declare their size with {@link OperationsPerInvocation},
+ * so the scores and the {@code gc.alloc.rate.norm} of the GC profiler
+ * (enabled in {@code build.gradle}) are per class. Run with
+ * {@code ./gradlew jmh}; results are written to
+ * {@code build/results/jmh/results.json} for comparison between commits.
+ *
+ * @author MMDR Team
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReloadPipelineBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TransformState {
+        /**
+         * Number of generated methods: a handful, a typical mod class, a huge generated class
+         */
+        @Param({"small", "medium", "huge"})
+        public String size;
+
+        /**
+         * none: fast path, field: methods copied through, methods: every method re-encoded
+         */
+        @Param({"none", "field", "methods"})
+        public String pass;
+
+        String className = "mmdr.bench.Transformed";
+        byte[] bytecode;
+        BytecodeTransformer transformer;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int methods = switch (size) {
+                case "small" -> 4;
+                case "medium" -> 64;
+                case "huge" -> 2000;
+                default -> throw new IllegalArgumentException("Unknown size: " + size);
+            };
+            bytecode = BenchmarkClasses.generate(className, methods, 0);
+
+            transformer = new BytecodeTransformer();
+            switch (pass) {
+                case "none" -> { }
+                case "field" -> transformer.addPass(new BenchmarkClasses.AddFieldPass());
+                case "methods" -> transformer.addPass(new BenchmarkClasses.VisitMethodsPass());
+                default -> throw new IllegalArgumentException("Unknown pass: " + pass);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] transform(TransformState state) {
+        return state.transformer.transform(state.className, state.bytecode);
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReloadState {
+        static final int MAX_BATCH = 500;
+
+        List<String> classNames = new ArrayList<>();
+        Map<String, byte[]> bytecode = new HashMap<>();
+        ClassReloader reloader;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            for (int i = 0; i < MAX_BATCH; i++) {
+                String className = "mmdr.bench.Reloaded" + i;
+                classNames.add(className);
+                bytecode.put(className, BenchmarkClasses.generate(className, 4, i));
+            }
+
+            // Classes are never loaded by the game, so every batch is defined in a new generation
+            MMDRConfig config = new MMDRConfig();
+            config.setInstrumentationReloadEnabled(false);
+            reloader = new ClassReloader(config);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            reloader.shutdown();
+        }
+
+        ReloadResult reload(int batchSize) {
+            Set<String> batch = new LinkedHashSet<>(classNames.subList(0, batchSize));
+            for (String className : batch) {
+                reloader.stageBytecode(className, bytecode.get(className));
+            }
+            return reloader.reloadClasses(batch);
+        }
+    }
+
+    @Benchmark
+    public ReloadResult reloadClasses1(ReloadState state) {
+        return state.reload(1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(50)
+    public ReloadResult reloadClasses50(ReloadState state) {
+        return state.reload(50);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ReloadState.MAX_BATCH)
+    public ReloadResult reloadClasses500(ReloadState state) {
+        return state.reload(ReloadState.MAX_BATCH);
+    }
+
+    @State(Scope.Benchmark)
+    public static class PathState {
+        /**
+         * root: under the last watched root, fallback: under no root, found by its {@code classes} directory
+         */
+        @Param({"root", "fallback"})
+        public String location;
+
+        List<Path> roots;
+        Path classFile;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Path base = Path.of("run", "mods", "example").toAbsolutePath();
+            roots = List.of(
+                base.resolve("build/classes/java/main"),
+                base.resolve("build/classes/kotlin/main"),
+                base.resolve("out/production/classes"));
+
+            String resource = "com/example/mod/client/render/ExampleRenderer$Layer.class";
+            classFile = location.equals("root")
+                ? roots.get(roots.size() - 1).resolve(resource)
+                : base.resolve("bin/classes").resolve(resource);
+        }
+    }
+
+    @Benchmark
+    public String getClassNameFromPath(PathState state) {
+        return HotReloadManager.getClassNameFromPath(state.classFile, state.roots);
+    }
+
+    @State(Scope.Benchmark)
+    public static class WatcherState {
+        Path dir;
+        FileWatcher watcher;
+        byte[] content = BenchmarkClasses.generate("mmdr.bench.Watched", 0, 0);
+        int writes;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("mmdr-bench-burst");
+            watcher = new FileWatcher(List.of(dir), FileWatcher.DEFAULT_COALESCE_WINDOW_MS);
+        }
+
+        /**
+         * Delete the files of the iteration and drop the resulting events, outside the measurement
+         */
+        @TearDown(Level.Iteration)
+        public void clean() throws IOException, InterruptedException {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            while (!watcher.pollChanges(100).isEmpty()) {
+                // drain
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            watcher.close();
+            Files.delete(dir);
+        }
+
+        /**
+         * Write a burst of new class files and take changesets until all of them are reported
+         */
+        int burst(int files) throws IOException, InterruptedException {
+            Set<Path> pending = new HashSet<>();
+            for (int i = 0; i < files; i++) {
+                Path file = dir.resolve("Burst" + writes++ + ".class");
+                Files.write(file, content);
+                pending.add(file);
+            }
+
+            int changesets = 0;
+            while (!pending.isEmpty()) {
+                pending.removeAll(watcher.take());
+                changesets++;
+            }
+            return changesets;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public int watcherBurst10(WatcherState state) throws Exception {
+        return state.burst(10);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public int watcherBurst100(WatcherState state) throws Exception {
+        return state.burst(100);
+    }
+}
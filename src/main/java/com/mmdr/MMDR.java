@@ -2,8 +2,10 @@ package com.mmdr;
 
 import com.mmdr.console.DebugConsole;
 import com.mmdr.hotreload.HotReloadManager;
+import com.mmdr.hotreload.ReloadEngine;
 import com.mmdr.inspector.InspectorOverlay;
 import com.mmdr.testing.TestHarness;
+import com.mmdr.util.Log;
 import com.mmdr.util.MMDRConfig;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
@@ -13,7 +15,6 @@ import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
 import org.lwjgl.glfw.GLFW;
 import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Main entry point for Minecraft Mod Development Runtime (MMDR)
@@ -29,10 +30,10 @@ import org.slf4j.LoggerFactory;
  */
 public class MMDR implements ClientModInitializer {
     public static final String MOD_ID = "mmdr";
-    public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
+    public static final Logger LOGGER = Log.LOGGER;
     
     // Core Systems
-    private static HotReloadManager hotReloadManager;
+    private static ReloadEngine reloadEngine;
     private static DebugConsole debugConsole;
     private static InspectorOverlay inspectorOverlay;
     private static TestHarness testHarness;
@@ -69,11 +70,11 @@ public class MMDR implements ClientModInitializer {
      * Initialize the hot reload system
      */
     private void initializeHotReload() {
-        LOGGER.info("Initializing Hot Reload Manager...");
-        hotReloadManager = new HotReloadManager(config);
+        LOGGER.info("Initializing Hot Reload Manager ({} engine)...", config.getReloadEngine());
+        reloadEngine = ReloadEngine.create(config);
         
         if (config.isHotReloadEnabled()) {
-            hotReloadManager.start();
+            reloadEngine.start();
             LOGGER.info("Hot Reload is ACTIVE - watching for file changes");
         } else {
             LOGGER.info("Hot Reload is DISABLED - enable in config");
@@ -135,6 +136,12 @@ public class MMDR implements ClientModInitializer {
      */
     private void registerEventHandlers() {
         // Handle key presses
+        // Apply prepared hot reload batches between ticks
+        ClientTickEvents.END_CLIENT_TICK.register(client -> reloadEngine.tick());
+        
+        // Run console work marshalled onto the client thread and time out long evaluations
+        ClientTickEvents.END_CLIENT_TICK.register(client -> debugConsole.tick());
+        
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
             while (openConsoleKey.wasPressed()) {
                 debugConsole.toggle(client);
@@ -158,8 +165,15 @@ public class MMDR implements ClientModInitializer {
     }
     
     // Getters for accessing MMDR systems
+    public static ReloadEngine getReloadEngine() {
+        return reloadEngine;
+    }
+    
+    /**
+     * Get the production reload engine, or null if another engine is configured
+     */
     public static HotReloadManager getHotReloadManager() {
-        return hotReloadManager;
+        return reloadEngine instanceof HotReloadManager ? (HotReloadManager) reloadEngine : null;
     }
     
     public static DebugConsole getDebugConsole() {
@@ -0,0 +1,50 @@
+package com.mmdr;
+
+import com.mmdr.hotreload.ReloadEngine;
+import com.mmdr.util.Log;
+import com.mmdr.util.MMDRConfig;
+import net.fabricmc.api.DedicatedServerModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+
+/**
+ * Entry point on a dedicated server.
+ *
+ * Only hot reload runs here; the console, inspector and test harness need a
+ * client. Prepared reload batches are committed on the server thread between
+ * ticks, so server-side mod code can be iterated on without restarting.
+ *
+ * @author MMDR Team
+ */
+public class MMDRServer implements DedicatedServerModInitializer {
+    private static ReloadEngine reloadEngine;
+
+    @Override
+    public void onInitializeServer() {
+        Log.LOGGER.info("Initializing MMDR on a dedicated server");
+
+        MMDRConfig config = MMDRConfig.load();
+
+        if (!config.isHotReloadEnabled()) {
+            Log.LOGGER.info("Hot Reload is DISABLED - enable in config");
+            return;
+        }
+
+        Log.LOGGER.info("Initializing Hot Reload Manager ({} engine)...", config.getReloadEngine());
+        reloadEngine = ReloadEngine.create(config);
+        reloadEngine.start();
+
+        // Apply prepared hot reload batches between server ticks
+        ServerTickEvents.END_SERVER_TICK.register(server -> reloadEngine.tick());
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> reloadEngine.stop());
+
+        Log.LOGGER.info("Hot Reload is ACTIVE - watching for file changes");
+    }
+
+    /**
+     * Get the server's reload engine, or null if hot reload is disabled
+     */
+    public static ReloadEngine getReloadEngine() {
+        return reloadEngine;
+    }
+}
@@ -0,0 +1,165 @@
+package com.mmdr.console;
+
+import com.mmdr.MMDR;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Sorted index of the top-level class names on a classpath, for completion.
+ *
+ * Names are kept in two sorted arrays, one by fully qualified name and one by
+ * simple name, so all classes starting with a prefix are found with two
+ * binary searches. The index is immutable once built.
+ *
+ * @author MMDR Team
+ */
+final class ClassNameIndex {
+    /** Index without classes, used until the real one is built */
+    static final ClassNameIndex EMPTY = new ClassNameIndex(new TreeSet<>());
+
+    private final String[] qualifiedNames;
+    private final String[] simpleNames;
+    private final int[] simpleToQualified;
+
+    private ClassNameIndex(SortedSet<String> names) {
+        this.qualifiedNames = names.toArray(new String[0]);
+
+        Integer[] order = new Integer[qualifiedNames.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> simpleName(qualifiedNames[i])));
+
+        this.simpleNames = new String[order.length];
+        this.simpleToQualified = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            simpleNames[i] = simpleName(qualifiedNames[order[i]]);
+            simpleToQualified[i] = order[i];
+        }
+    }
+
+    /**
+     * Index the classes under the given roots. A root is a directory of class
+     * files or a jar; {@code jrt:/} modules named {@code java.*} are indexed
+     * too. Nested and anonymous classes are left out.
+     */
+    static ClassNameIndex build(Collection<Path> roots) {
+        SortedSet<String> names = new TreeSet<>();
+
+        for (Path root : roots) {
+            try {
+                if (Files.isDirectory(root)) {
+                    collect(root, names);
+                } else if (Files.isRegularFile(root) && root.toString().endsWith(".jar")) {
+                    try (FileSystem jar = FileSystems.newFileSystem(root)) {
+                        collect(jar.getPath("/"), names);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                MMDR.LOGGER.debug("Cannot index classes in {}", root, e);
+            }
+        }
+
+        try {
+            Path modules = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules");
+            try (Stream<Path> stream = Files.list(modules)) {
+                for (Path module : (Iterable<Path>) stream::iterator) {
+                    if (module.getFileName().toString().startsWith("java.")) {
+                        collect(module, names);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            MMDR.LOGGER.debug("Cannot index JDK classes", e);
+        }
+
+        return new ClassNameIndex(names);
+    }
+
+    /**
+     * Index exactly the given fully qualified names
+     */
+    static ClassNameIndex of(Collection<String> names) {
+        return new ClassNameIndex(new TreeSet<>(names));
+    }
+
+    private static void collect(Path root, Set<String> names) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.forEach(file -> {
+                String path = root.relativize(file).toString();
+                if (path.endsWith(".class") && path.indexOf('$') < 0 && !path.endsWith("-info.class")
+                        && !path.startsWith("META-INF")) {
+                    String separator = file.getFileSystem().getSeparator();
+                    names.add(path.substring(0, path.length() - ".class".length()).replace(separator, "."));
+                }
+            });
+        }
+    }
+
+    private static String simpleName(String qualifiedName) {
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Fully qualified names of classes whose simple name starts with {@code prefix}
+     *
+     * @param limit Maximum number of names to return
+     */
+    List<String> findBySimpleName(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        for (int i = lowerBound(simpleNames, prefix); i < simpleNames.length && result.size() < limit
+                && simpleNames[i].startsWith(prefix); i++) {
+            result.add(qualifiedNames[simpleToQualified[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Fully qualified names starting with {@code prefix}
+     *
+     * @param limit Maximum number of names to return
+     */
+    List<String> findByQualifiedName(String prefix, int limit) {
+        List<String> result = new ArrayList<>();
+        for (int i = lowerBound(qualifiedNames, prefix); i < qualifiedNames.length && result.size() < limit
+                && qualifiedNames[i].startsWith(prefix); i++) {
+            result.add(qualifiedNames[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Whether a fully qualified class name is indexed
+     */
+    boolean contains(String qualifiedName) {
+        return Arrays.binarySearch(qualifiedNames, qualifiedName) >= 0;
+    }
+
+    /**
+     * Index of the first element not less than {@code key}
+     */
+    private static int lowerBound(String[] sorted, String key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    int size() {
+        return qualifiedNames.length;
+    }
+}
@@ -1,9 +1,28 @@
 package com.mmdr.console;
 
 import com.mmdr.MMDR;
+import com.mmdr.hotreload.ClassReloader;
+import com.mmdr.hotreload.ClassSchema;
+import com.mmdr.hotreload.HotReloadManager;
+import com.mmdr.hotreload.ReloadGeneration;
+import com.mmdr.hotreload.ReloadTimeline;
+import com.mmdr.profiler.MethodProfiler;
+import com.mmdr.profiler.ProfilingRetransformer;
+import net.fabricmc.loader.api.FabricLoader;
+import net.fabricmc.loader.api.ModContainer;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Executes commands and code snippets in the debug console.
@@ -13,10 +32,24 @@ import java.util.List;
  * @author MMDR Team
  */
 public class CommandExecutor {
+    private static final String[] COMMANDS = {"clear", "help", "reload", "vars", "imports", "profile", "static"};
+    
     private final REPLEngine replEngine;
+    private final CompletionEngine completionEngine;
+    private final Runnable clearOutput;
     
     public CommandExecutor(REPLEngine replEngine) {
+        this(replEngine, () -> { });
+    }
+    
+    /**
+     * @param clearOutput Clears the console output, for /clear
+     */
+    public CommandExecutor(REPLEngine replEngine, Runnable clearOutput) {
         this.replEngine = replEngine;
+        this.clearOutput = clearOutput;
+        this.completionEngine = new CompletionEngine(replEngine::getVariables, replEngine::getImports,
+            CommandExecutor::classpathRoots);
     }
     
     /**
@@ -41,17 +74,14 @@ public class CommandExecutor {
         
         switch (cmd) {
             case "clear":
-                return "§7Console cleared (not implemented in screen yet)";
+                clearOutput.run();
+                return "";
             
             case "help":
                 return getHelpText();
             
             case "reload":
-                if (parts.length > 1) {
-                    MMDR.getHotReloadManager().reloadClass(parts[1]);
-                    return "§aQueued reload: " + parts[1];
-                }
-                return "§cUsage: /reload <classname>";
+                return executeReloadCommand(parts);
             
             case "vars":
                 return listVariables();
@@ -59,6 +89,12 @@ public class CommandExecutor {
             case "imports":
                 return "§7Available imports (feature coming soon)";
             
+            case "profile":
+                return executeProfileCommand(parts);
+            
+            case "static":
+                return executeStaticCommand(parts);
+            
             default:
                 return "§cUnknown command: " + cmd + " (type /help for commands)";
         }
@@ -73,15 +109,213 @@ public class CommandExecutor {
             §7/clear - Clear console output
             §7/help - Show this help
             §7/reload <class> - Reload a specific class
+            §7/reload rollback - Revert the last reload
+            §7/reload generations - Show reload classloaders and metaspace use
+            §7/reload stats [panel|clear] - Reload latency per stage
             §7/vars - List all variables
             §7/imports - Show available imports
+            §7/profile [on|off|reset|dump|top|panel] - Method profiler
+            §7/static [on|off] - Compile snippets with @CompileStatic
+            §7Ctrl+C - Cancel the running snippet
             
             §6Available Variables:
             §7mc - MinecraftClient instance
             §7mmdr - MMDR main class
+            §7onClient { ... } - Run a block on the client thread
             """;
     }
     
+    /**
+     * Handle /static: switch snippets between dynamic and static compilation
+     */
+    private String executeStaticCommand(String[] parts) {
+        String sub = parts.length > 1 ? parts[1].toLowerCase() : "";
+        
+        switch (sub) {
+            case "on":
+                replEngine.setStaticCompilation(true);
+                return "§aSnippets are compiled statically §7(variables are typed by their current value)";
+            
+            case "off":
+                replEngine.setStaticCompilation(false);
+                return "§7Snippets are compiled dynamically";
+            
+            case "":
+                return "§7Static compilation is " + (replEngine.isStaticCompilation() ? "§aon" : "§coff");
+            
+            default:
+                return "§cUsage: /static [on|off]";
+        }
+    }
+    
+    /**
+     * Handle /profile subcommands
+     */
+    private String executeProfileCommand(String[] parts) {
+        String sub = parts.length > 1 ? parts[1].toLowerCase() : "top";
+        
+        switch (sub) {
+            case "on":
+                MMDR.getConfig().setMethodProfilingEnabled(true);
+                MethodProfiler.setRecording(true);
+                int instrumented = ProfilingRetransformer.instrument(MMDR.getConfig());
+                return "§aMethod profiling enabled for " + MMDR.getConfig().getProfiledPackages()
+                    + (instrumented < 0
+                        ? " §7(applies to classes as they are reloaded)"
+                        : " §7(" + instrumented + " loaded classes instrumented)");
+            
+            case "off":
+                MMDR.getConfig().setMethodProfilingEnabled(false);
+                MethodProfiler.setRecording(false);
+                int restored = ProfilingRetransformer.restore();
+                return "§7Method profiling paused" + (restored > 0 ? " (" + restored + " classes restored)" : "");
+            
+            case "reset":
+                MethodProfiler.reset();
+                return "§7Profiler counters cleared";
+            
+            case "dump":
+                Path file = FabricLoader.getInstance().getGameDir()
+                    .resolve("mmdr_profiles")
+                    .resolve("profile-" + System.currentTimeMillis() + ".txt");
+                try {
+                    MethodProfiler.dump(file);
+                    return "§aProfile written to " + file;
+                } catch (IOException e) {
+                    return "§cFailed to write profile: " + e.getMessage();
+                }
+            
+            case "top":
+                return formatTopMethods(10);
+            
+            case "panel":
+                MMDR.getInspectorOverlay().toggleProfiler();
+                return "§7Toggled inspector profiler panel";
+            
+            default:
+                return "§cUsage: /profile [on|off|reset|dump|top|panel]";
+        }
+    }
+    
+    /**
+     * Handle /reload subcommands
+     */
+    private String executeReloadCommand(String[] parts) {
+        if (parts.length < 2) {
+            return "§cUsage: /reload <classname|rollback|generations|stats>";
+        }
+        
+        String sub = parts[1].toLowerCase();
+        
+        if (!List.of("rollback", "generations", "stats").contains(sub)) {
+            MMDR.getReloadEngine().reloadClass(parts[1]);
+            return "§aQueued reload: " + parts[1];
+        }
+        
+        // The remaining subcommands need the transactional engine
+        HotReloadManager manager = MMDR.getHotReloadManager();
+        if (manager == null) {
+            return "§c/reload " + sub + " is not supported by the " + MMDR.getReloadEngine().getName() + " reload engine";
+        }
+        
+        switch (sub) {
+            case "rollback":
+                return manager.rollback()
+                    ? "§aRolled back the last reload"
+                    : "§cNothing to roll back";
+            
+            case "generations":
+                return formatGenerations(manager.getClassReloader());
+            
+            default:
+                return executeReloadStatsCommand(manager, parts);
+        }
+    }
+    
+    /**
+     * Handle /reload stats subcommands
+     */
+    private String executeReloadStatsCommand(HotReloadManager manager, String[] parts) {
+        String sub = parts.length > 2 ? parts[2].toLowerCase() : "";
+        ReloadTimeline timeline = manager.getTimeline();
+        
+        switch (sub) {
+            case "":
+                return formatReloadStats(timeline, manager.getClassReloader());
+            
+            case "panel":
+                MMDR.getInspectorOverlay().toggleReloadTimeline();
+                return "§7Toggled inspector reload timeline panel";
+            
+            case "clear":
+                timeline.clear();
+                return "§7Reload timings cleared";
+            
+            default:
+                return "§cUsage: /reload stats [panel|clear]";
+        }
+    }
+    
+    /**
+     * Format p50/p95/max of every reload stage over the recorded reloads, and
+     * how the reloaded classes changed
+     */
+    private String formatReloadStats(ReloadTimeline timeline, ClassReloader reloader) {
+        if (timeline.size() == 0) {
+            return "§7No reloads recorded yet";
+        }
+        
+        StringBuilder sb = new StringBuilder(String.format("§6Reload latency over the last %d reload(s):%n", timeline.size()));
+        sb.append(String.format("§7%-10s %9s %9s %9s%n", "stage", "p50", "p95", "max"));
+        for (ReloadTimeline.StageStats stat : timeline.getStageStats()) {
+            sb.append(String.format("§f%-10s §7%7.1fms %7.1fms %7.1fms%n", stat.getStage(),
+                stat.getP50Nanos() / 1_000_000.0, stat.getP95Nanos() / 1_000_000.0, stat.getMaxNanos() / 1_000_000.0));
+        }
+        sb.append(String.format("§7Changes: §f%d body-only, %d member-added, %d schema-changed §7(lambdas renamed in %d)",
+            reloader.getChangeCount(ClassSchema.Change.BODY_ONLY), reloader.getChangeCount(ClassSchema.Change.MEMBER_ADDED),
+            reloader.getChangeCount(ClassSchema.Change.SCHEMA_CHANGED), reloader.getNormalizedClassCount()));
+        return sb.toString().trim();
+    }
+    
+    /**
+     * Format the classloader generations created by reloads and the JVM class counts
+     */
+    private String formatGenerations(ClassReloader reloader) {
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        
+        StringBuilder sb = new StringBuilder(String.format("§6Reload generations: §f%d created, %d reclaimed%n",
+            reloader.getGenerationCount(), reloader.getReclaimedGenerationCount()));
+        sb.append(String.format("§7JVM classes: §f%d loaded, %d unloaded%n",
+            classLoading.getLoadedClassCount(), classLoading.getUnloadedClassCount()));
+        
+        List<ReloadGeneration> generations = reloader.getGenerations();
+        for (ReloadGeneration generation : generations.subList(Math.max(0, generations.size() - 10), generations.size())) {
+            sb.append(String.format("§7#%d §f%d classes, %.1f KB bytecode, %s metaspace %s%n",
+                generation.getId(), generation.getClassCount(), generation.getBytecodeBytes() / 1024.0,
+                generation.getMetaspaceBytes() >= 0 ? String.format("%.1f KB", generation.getMetaspaceBytes() / 1024.0) : "?",
+                generation.isReclaimed() ? "§a(reclaimed)" : "§e(live)"));
+        }
+        return sb.toString().trim();
+    }
+    
+    /**
+     * Format the slowest methods by total time
+     */
+    private String formatTopMethods(int limit) {
+        List<MethodProfiler.MethodStats> stats = MethodProfiler.snapshot();
+        
+        if (stats.isEmpty()) {
+            return "§7No profiled calls recorded (" + MethodProfiler.getMethodCount() + " methods instrumented)";
+        }
+        
+        StringBuilder sb = new StringBuilder("§6Top methods by total time:\n");
+        for (MethodProfiler.MethodStats stat : stats.subList(0, Math.min(limit, stats.size()))) {
+            sb.append(String.format("§7%s §f%d calls, %.2f ms, avg %.1f us%n",
+                stat.getMethod(), stat.getCalls(), stat.getTotalNanos() / 1_000_000.0, stat.getAverageNanos() / 1_000.0));
+        }
+        return sb.toString().trim();
+    }
+    
     /**
      * List all variables in the REPL environment
      */
@@ -94,25 +328,60 @@ public class CommandExecutor {
     }
     
     /**
-     * Get auto-completion suggestions
+     * Get auto-completion suggestions: the input with its last identifier
+     * completed, one entry per candidate
      */
     public List<String> getSuggestions(String input) {
+        CompletionEngine.Completion completion = complete(input);
         List<String> suggestions = new ArrayList<>();
+        for (String candidate : completion.getCandidates()) {
+            suggestions.add(input.substring(0, completion.getStart()) + candidate);
+        }
+        return suggestions;
+    }
+    
+    /**
+     * Complete the command name or the identifier at the end of the input
+     */
+    CompletionEngine.Completion complete(String input) {
+        if (!MMDR.getConfig().isConsoleAutoComplete()) {
+            return new CompletionEngine.Completion(input.length(), List.of());
+        }
         
         // Suggest commands
         if (input.startsWith("/")) {
-            String[] commands = {"clear", "help", "reload", "vars", "imports"};
+            List<String> commands = new ArrayList<>();
             String partial = input.substring(1).toLowerCase();
-            
-            for (String cmd : commands) {
+            for (String cmd : COMMANDS) {
                 if (cmd.startsWith(partial)) {
-                    suggestions.add("/" + cmd);
+                    commands.add(cmd);
                 }
             }
+            return new CompletionEngine.Completion(1, commands);
         }
         
-        // TODO: Suggest variable names, method names, etc.
+        return completionEngine.complete(input);
+    }
+    
+    /**
+     * Directories and jars that the console can load classes from
+     */
+    private static Collection<Path> classpathRoots() {
+        Set<Path> roots = new LinkedHashSet<>();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            try {
+                if (!entry.isEmpty()) {
+                    roots.add(Paths.get(entry));
+                }
+            } catch (InvalidPathException e) {
+                MMDR.LOGGER.debug("Skipping classpath entry {}", entry, e);
+            }
+        }
         
-        return suggestions;
+        // In production the game and mods are not on the JVM classpath
+        for (ModContainer mod : FabricLoader.getInstance().getAllMods()) {
+            roots.addAll(mod.getRootPaths());
+        }
+        return roots;
     }
-}
\ No newline at end of file
+}
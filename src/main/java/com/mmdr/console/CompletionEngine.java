@@ -0,0 +1,347 @@
+package com.mmdr.console;
+
+import com.mmdr.MMDR;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Completes identifiers in console input from precomputed indexes.
+ *
+ * Class names come from a {@link ClassNameIndex} of the runtime classpath and
+ * members from cached {@link MemberTable}s, so a completion is a handful of
+ * binary searches and map lookups. Expressions like {@code mc.world.getE} are
+ * typed by walking the declared types of the properties and methods along
+ * the chain, starting at the current value of a console variable; nothing is
+ * evaluated.
+ *
+ * The class index is built on a background thread on first use, together
+ * with the member tables of the console variables. Until then only variables
+ * and members complete.
+ *
+ * @author MMDR Team
+ */
+final class CompletionEngine {
+    /** Maximum number of candidates returned by a completion */
+    static final int MAX_CANDIDATES = 50;
+
+    private final Supplier<Map<String, Object>> variables;
+    private final Supplier<List<String>> imports;
+    private final Supplier<Collection<Path>> classpath;
+    private final AtomicBoolean indexing = new AtomicBoolean();
+
+    private volatile ClassNameIndex index = ClassNameIndex.EMPTY;
+
+    /**
+     * @param variables Copy of the console variables by name, safe to take while a snippet runs
+     * @param imports Imported classes and {@code package.*} imports
+     * @param classpath Directories and jars to index class names from
+     */
+    CompletionEngine(Supplier<Map<String, Object>> variables, Supplier<List<String>> imports,
+                     Supplier<Collection<Path>> classpath) {
+        this.variables = variables;
+        this.imports = imports;
+        this.classpath = classpath;
+    }
+
+    /**
+     * Start building the indexes in the background, if not started yet
+     */
+    void startIndexing() {
+        if (!indexing.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread thread = new Thread(this::buildIndexes, "MMDR-Console-Index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void buildIndexes() {
+        long start = System.nanoTime();
+
+        // Variables and their properties are what gets completed first
+        for (Object value : variables.get().values()) {
+            if (value != null) {
+                MemberTable table = MemberTable.of(value instanceof Class ? (Class<?>) value : value.getClass());
+                for (Class<?> type : table.propertyTypes()) {
+                    MemberTable.of(type);
+                }
+            }
+        }
+
+        ClassNameIndex built = ClassNameIndex.build(classpath.get());
+        index = built;
+        MMDR.LOGGER.debug("Indexed {} classes for console completion in {} ms",
+            built.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Whether the class index has been built
+     */
+    boolean isIndexed() {
+        return index != ClassNameIndex.EMPTY;
+    }
+
+    /**
+     * Complete the identifier at the end of the input
+     */
+    Completion complete(String input) {
+        startIndexing();
+
+        int start = expressionStart(input);
+        List<String> segments = splitSegments(input.substring(start));
+        String prefix = segments.get(segments.size() - 1);
+        int prefixStart = input.length() - prefix.length();
+
+        if (prefix.indexOf('(') >= 0) {
+            return new Completion(input.length(), Collections.emptyList());
+        }
+        if (segments.size() == 1) {
+            return new Completion(prefixStart, completeName(prefix));
+        }
+
+        List<String> qualifier = segments.subList(0, segments.size() - 1);
+        Target target = resolve(qualifier);
+        if (target != null) {
+            return new Completion(prefixStart, MemberTable.of(target.type).complete(prefix, target.isStatic, MAX_CANDIDATES));
+        }
+        return new Completion(prefixStart, completePackage(String.join(".", qualifier), prefix));
+    }
+
+    /**
+     * Variables, then classes whose name starts with the prefix
+     */
+    private List<String> completeName(String prefix) {
+        List<String> result = new ArrayList<>();
+        for (String name : new TreeSet<>(variables.get().keySet())) {
+            if (name.startsWith(prefix)) {
+                result.add(name);
+            }
+        }
+
+        // Listing every class for an empty prefix is not useful
+        if (prefix.isEmpty()) {
+            return result;
+        }
+
+        List<String> visible = imports.get();
+        for (String className : index.findBySimpleName(prefix, MAX_CANDIDATES - result.size())) {
+            String simpleName = className.substring(className.lastIndexOf('.') + 1);
+            result.add(isImported(className, visible) ? simpleName : className);
+        }
+        return result;
+    }
+
+    /**
+     * Next segments of the packages and classes under a qualified name
+     */
+    private List<String> completePackage(String qualifier, String prefix) {
+        Set<String> result = new LinkedHashSet<>();
+        String start = qualifier + "." + prefix;
+        for (String className : index.findByQualifiedName(start, Integer.MAX_VALUE)) {
+            int end = className.indexOf('.', start.length());
+            result.add(className.substring(qualifier.length() + 1, end < 0 ? className.length() : end));
+            if (result.size() == MAX_CANDIDATES) {
+                break;
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Type of the value a dotted expression evaluates to, or null if it cannot be told
+     */
+    private Target resolve(List<String> segments) {
+        String root = segments.get(0);
+        if (root.indexOf('(') >= 0) {
+            return null;
+        }
+
+        Target target;
+        int next = 1;
+        Map<String, Object> vars = variables.get();
+        if (vars.containsKey(root)) {
+            Object value = vars.get(root);
+            if (value == null) {
+                return null;
+            }
+            target = value instanceof Class ? new Target((Class<?>) value, true) : new Target(value.getClass(), false);
+        } else {
+            // A simple class name, or the shortest package-qualified name that is a class
+            Class<?> type = findClass(root);
+            StringBuilder qualifiedName = new StringBuilder(root);
+            while (type == null && next < segments.size() && segments.get(next).indexOf('(') < 0) {
+                qualifiedName.append('.').append(segments.get(next++));
+                type = loadClass(qualifiedName.toString());
+            }
+            if (type == null) {
+                return null;
+            }
+            target = new Target(type, true);
+        }
+
+        for (String segment : segments.subList(next, segments.size())) {
+            MemberTable table = MemberTable.of(target.type);
+            int paren = segment.indexOf('(');
+            Class<?> type = paren < 0 ? table.propertyType(segment) : table.methodType(segment.substring(0, paren));
+            if (type == null || type == void.class) {
+                return null;
+            }
+            target = new Target(type, false);
+        }
+        return target;
+    }
+
+    /**
+     * Resolve a simple class name against the imports and {@code java.lang}
+     */
+    private Class<?> findClass(String simpleName) {
+        for (String imported : imports.get()) {
+            Class<?> type = null;
+            if (imported.endsWith("." + simpleName)) {
+                type = loadClass(imported);
+            } else if (imported.endsWith(".*")) {
+                type = loadClass(imported.substring(0, imported.length() - 1) + simpleName);
+            }
+            if (type != null) {
+                return type;
+            }
+        }
+        return loadClass("java.lang." + simpleName);
+    }
+
+    private Class<?> loadClass(String qualifiedName) {
+        // Only ask the class loader about names that exist, once the index knows them
+        ClassNameIndex current = index;
+        if (current != ClassNameIndex.EMPTY && !current.contains(qualifiedName)) {
+            return null;
+        }
+
+        try {
+            return Class.forName(qualifiedName, false, CompletionEngine.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static boolean isImported(String className, List<String> imports) {
+        String packageName = className.substring(0, Math.max(0, className.lastIndexOf('.')));
+        return packageName.equals("java.lang") || imports.contains(className) || imports.contains(packageName + ".*");
+    }
+
+
+    /**
+     * Start of the dotted expression that ends the input: identifiers, dots
+     * and balanced parentheses
+     */
+    static int expressionStart(String input) {
+        int i = input.length();
+        while (i > 0) {
+            char c = input.charAt(i - 1);
+            if (Character.isJavaIdentifierPart(c) || c == '.') {
+                i--;
+            } else if (c == ')') {
+                int depth = 0;
+                int j = i - 1;
+                for (; j >= 0; j--) {
+                    char d = input.charAt(j);
+                    if (d == ')') {
+                        depth++;
+                    } else if (d == '(' && --depth == 0) {
+                        break;
+                    }
+                }
+                if (j < 0) {
+                    break;
+                }
+                i = j;
+            } else {
+                break;
+            }
+        }
+
+        // A leading dot belongs to the preceding expression, which could not be read
+        while (i < input.length() && input.charAt(i) == '.') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Split an expression on the dots outside parentheses
+     */
+    static List<String> splitSegments(String expression) {
+        List<String> segments = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '.' && depth == 0) {
+                segments.add(expression.substring(start, i));
+                start = i + 1;
+            }
+        }
+        segments.add(expression.substring(start));
+        return segments;
+    }
+
+    private static final class Target {
+        final Class<?> type;
+        final boolean isStatic;
+
+        Target(Class<?> type, boolean isStatic) {
+            this.type = type;
+            this.isStatic = isStatic;
+        }
+    }
+
+    /**
+     * Candidates that replace the input from a start offset on
+     */
+    static final class Completion {
+        private final int start;
+        private final List<String> candidates;
+
+        Completion(int start, List<String> candidates) {
+            this.start = start;
+            this.candidates = candidates;
+        }
+
+        /**
+         * Offset in the input where the completed text begins
+         */
+        int getStart() {
+            return start;
+        }
+
+        List<String> getCandidates() {
+            return candidates;
+        }
+
+        /**
+         * Longest text all candidates start with
+         */
+        String getCommonPrefix() {
+            if (candidates.isEmpty()) {
+                return "";
+            }
+
+            String common = candidates.get(0);
+            for (String candidate : candidates) {
+                int i = 0;
+                while (i < common.length() && i < candidate.length() && common.charAt(i) == candidate.charAt(i)) {
+                    i++;
+                }
+                common = common.substring(0, i);
+            }
+            return common;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.mmdr.console;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded scrollback of the console screen.
+ *
+ * Lines are wrapped to the screen width once, when they arrive, and the
+ * wrapped rows are kept with their width in a ring buffer, so drawing a frame
+ * only reads the visible rows. The raw lines are kept in a second ring of the
+ * same capacity to wrap them again when the screen is resized. When more
+ * lines arrive at once than fit, only the newest ones are wrapped.
+ *
+ * @param <L> Type of a wrapped row
+ * @author MMDR Team
+ */
+final class ConsoleOutput<L> {
+    private final int capacity;
+
+    private final String[] sources;
+    private int sourceEnd;
+    private int sourceCount;
+
+    private final Object[] rows;
+    private final int[] widths;
+    private int rowEnd;
+    private int rowCount;
+
+    private Function<String, List<L>> wrapper;
+    private ToIntFunction<L> measure;
+    private int scroll;
+
+    /**
+     * @param capacity Maximum number of lines and of wrapped rows kept
+     */
+    ConsoleOutput(int capacity) {
+        this.capacity = capacity;
+        this.sources = new String[capacity];
+        this.rows = new Object[capacity];
+        this.widths = new int[capacity];
+    }
+
+    /**
+     * Wrap all kept lines again, e.g. after a resize. Lines added before the
+     * first call are kept and wrapped by it.
+     *
+     * @param wrapper Splits a line into the rows it takes on screen
+     * @param measure Width of a row
+     */
+    void rewrap(Function<String, List<L>> wrapper, ToIntFunction<L> measure) {
+        this.wrapper = wrapper;
+        this.measure = measure;
+        this.rowCount = 0;
+        this.scroll = 0;
+        wrapNewest(sourceCount);
+    }
+
+    void add(String line) {
+        addAll(List.of(line));
+    }
+
+    void addAll(Collection<String> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        for (String line : lines) {
+            sources[sourceEnd] = line;
+            sourceEnd = (sourceEnd + 1) % capacity;
+            sourceCount = Math.min(capacity, sourceCount + 1);
+        }
+
+        int added = wrapNewest(Math.min(lines.size(), capacity));
+
+        // Keep the view in place while scrolled back
+        if (scroll > 0) {
+            scroll = Math.min(scroll + added, rowCount);
+        }
+    }
+
+    /**
+     * Wrap the newest {@code count} lines and append their rows, skipping
+     * lines whose rows would be pushed out right away
+     *
+     * @return Number of rows appended
+     */
+    private int wrapNewest(int count) {
+        if (wrapper == null || count == 0) {
+            return 0;
+        }
+
+        List<List<L>> wrapped = new ArrayList<>();
+        int total = 0;
+        for (int i = 1; i <= count && total < capacity; i++) {
+            List<L> lineRows = wrapper.apply(sources[Math.floorMod(sourceEnd - i, capacity)]);
+            wrapped.add(lineRows);
+            total += lineRows.size();
+        }
+
+        for (int i = wrapped.size() - 1; i >= 0; i--) {
+            for (L row : wrapped.get(i)) {
+                rows[rowEnd] = row;
+                widths[rowEnd] = measure.applyAsInt(row);
+                rowEnd = (rowEnd + 1) % capacity;
+                rowCount = Math.min(capacity, rowCount + 1);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Drop all lines and rows
+     */
+    void clear() {
+        Arrays.fill(sources, null);
+        Arrays.fill(rows, null);
+        sourceCount = 0;
+        rowCount = 0;
+        scroll = 0;
+    }
+
+    /**
+     * Number of wrapped rows
+     */
+    int size() {
+        return rowCount;
+    }
+
+    /**
+     * Wrapped row by index, 0 being the oldest row kept
+     */
+    @SuppressWarnings("unchecked")
+    L getRow(int index) {
+        return (L) rows[physical(index)];
+    }
+
+    /**
+     * Width of a wrapped row, as measured when it was wrapped
+     */
+    int getWidth(int index) {
+        return widths[physical(index)];
+    }
+
+    private int physical(int index) {
+        return Math.floorMod(rowEnd - rowCount + index, capacity);
+    }
+
+    /**
+     * Scroll back (positive) or forward (negative) by a number of rows
+     *
+     * @param visibleRows Rows that fit on screen; the oldest row stays at the top
+     */
+    void scroll(int rows, int visibleRows) {
+        scroll = Math.max(0, Math.min(scroll + rows, rowCount - visibleRows));
+    }
+
+    /**
+     * Rows scrolled back from the newest one
+     */
+    int getScroll() {
+        return scroll;
+    }
+
+    /**
+     * Index of the first row to draw
+     */
+    int firstVisible(int visibleRows) {
+        return Math.max(0, rowCount - scroll - visibleRows);
+    }
+}
@@ -1,8 +1,11 @@
 package com.mmdr.console;
 
+import com.mmdr.MMDR;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.TextFieldWidget;
+import net.minecraft.text.OrderedText;
+import net.minecraft.text.Style;
 import net.minecraft.text.Text;
 
 import java.util.ArrayList;
@@ -11,11 +14,19 @@ import java.util.List;
 /**
  * GUI screen for the debug console.
  * 
+ * Output is kept in a bounded {@link ConsoleOutput} of rows that are wrapped
+ * and have their formatting codes parsed once, when the line arrives, so a
+ * frame only draws the rows on screen however much output there is. The
+ * mouse wheel and Page Up/Down scroll back.
+ * 
  * @author MMDR Team
  */
 public class ConsoleScreen extends Screen {
     private final DebugConsole console;
-    private final List<String> outputLines;
+    private static final int LINE_HEIGHT = 12;
+    private static final int SCROLL_ROWS = 3;
+    
+    private final ConsoleOutput<OrderedText> output;
     
     private TextFieldWidget inputField;
     private int historyIndex = -1;
@@ -23,12 +34,12 @@ public class ConsoleScreen extends Screen {
     public ConsoleScreen(DebugConsole console) {
         super(Text.literal("MMDR Debug Console"));
         this.console = console;
-        this.outputLines = new ArrayList<>();
+        this.output = new ConsoleOutput<>(MMDR.getConfig().getConsoleMaxOutputLines());
         
         // Welcome message
-        outputLines.add("§6MMDR Debug Console v1.0.0");
-        outputLines.add("§7Type Java/Groovy code to execute. Press ESC to close.");
-        outputLines.add("");
+        output.add("§6MMDR Debug Console v1.0.0");
+        output.add("§7Type Java/Groovy code to execute. Press ESC to close.");
+        output.add("");
     }
     
     @Override
@@ -49,6 +60,59 @@ public class ConsoleScreen extends Screen {
         inputField.setFocused(true);
         
         this.addSelectableChild(inputField);
+        
+        // Called again on resize, when the rows need wrapping to the new width
+        int wrapWidth = this.width - 20;
+        output.rewrap(line -> bake(this.textRenderer.wrapLines(Text.literal(line), wrapWidth)), this.textRenderer::getWidth);
+    }
+    
+    /**
+     * Replace wrapped rows by rows that replay their characters and styles,
+     * so that drawing them does not parse formatting codes again
+     */
+    private static List<OrderedText> bake(List<OrderedText> rows) {
+        List<OrderedText> baked = new ArrayList<>(rows.size());
+        for (OrderedText row : rows) {
+            List<Style> styleList = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            row.accept((index, style, codePoint) -> {
+                styleList.add(style);
+                text.appendCodePoint(codePoint);
+                return true;
+            });
+            
+            Style[] styles = styleList.toArray(new Style[0]);
+            int[] codePoints = text.codePoints().toArray();
+            baked.add(visitor -> {
+                for (int i = 0; i < codePoints.length; i++) {
+                    if (!visitor.accept(i, styles[i], codePoints[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+        return baked;
+    }
+    
+    @Override
+    public void tick() {
+        super.tick();
+        
+        // Output of snippets running on the evaluation worker
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = console.pollOutput()) != null) {
+            lines.add("  " + line);
+        }
+        output.addAll(lines);
+    }
+    
+    /**
+     * Drop all output, e.g. for /clear
+     */
+    void clearOutput() {
+        output.clear();
     }
     
     @Override
@@ -56,18 +120,21 @@ public class ConsoleScreen extends Screen {
         // Draw background
         context.fill(0, 0, this.width, this.height, 0xCC000000);
         
-        // Draw output lines
+        // Draw the visible output rows
         int y = 10;
-        int maxLines = (this.height - 40) / 12;
-        int startLine = Math.max(0, outputLines.size() - maxLines);
+        int maxLines = visibleRows();
+        int startLine = output.firstVisible(maxLines);
+        int endLine = Math.min(output.size(), startLine + maxLines);
         
-        for (int i = startLine; i < outputLines.size(); i++) {
-            context.drawText(this.textRenderer, outputLines.get(i), 10, y, 0xFFFFFF, false);
-            y += 12;
+        for (int i = startLine; i < endLine; i++) {
+            if (output.getWidth(i) > 0) {
+                context.drawText(this.textRenderer, output.getRow(i), 10, y, 0xFFFFFF, false);
+            }
+            y += LINE_HEIGHT;
         }
         
-        // Draw input prompt
-        context.drawText(this.textRenderer, "§a> ", 10, this.height - 25, 0xFFFFFF, false);
+        // Draw input prompt, marked while a snippet is running
+        context.drawText(this.textRenderer, console.isBusy() ? "§e* " : "§a> ", 10, this.height - 25, 0xFFFFFF, false);
         
         // Draw input field
         inputField.render(context, mouseX, mouseY, delta);
@@ -83,6 +150,29 @@ public class ConsoleScreen extends Screen {
             return true;
         }
         
+        // Handle Ctrl+C to cancel a running snippet
+        if (keyCode == 67 && (modifiers & 2) != 0 && console.isBusy()) { // C with CONTROL
+            console.cancel();
+            return true;
+        }
+        
+        // Handle Tab to complete the identifier at the end of the input
+        if (keyCode == 258) { // TAB
+            completeInput();
+            return true;
+        }
+        
+        // Handle Page Up/Down to scroll the output
+        if (keyCode == 266) { // PAGE_UP
+            output.scroll(visibleRows() - 1, visibleRows());
+            return true;
+        }
+        
+        if (keyCode == 267) { // PAGE_DOWN
+            output.scroll(1 - visibleRows(), visibleRows());
+            return true;
+        }
+        
         // Handle Up/Down arrows for history
         if (keyCode == 265) { // UP
             navigateHistory(1);
@@ -97,6 +187,16 @@ public class ConsoleScreen extends Screen {
         return super.keyPressed(keyCode, scanCode, modifiers);
     }
     
+    @Override
+    public boolean mouseScrolled(double mouseX, double mouseY, double horizontalAmount, double verticalAmount) {
+        output.scroll((int) Math.signum(verticalAmount) * SCROLL_ROWS, visibleRows());
+        return true;
+    }
+    
+    private int visibleRows() {
+        return Math.max(1, (this.height - 40) / LINE_HEIGHT);
+    }
+    
     /**
      * Execute the current input
      */
@@ -107,24 +207,39 @@ public class ConsoleScreen extends Screen {
             return;
         }
         
-        // Display input
-        outputLines.add("§a> §f" + input);
-        
-        // Execute
-        String result = console.execute(input);
+        // Display input, jumping back to the newest output
+        output.scroll(-output.getScroll(), visibleRows());
+        output.add("§a> §f" + input);
         
-        // Display result
-        if (!result.isEmpty()) {
-            for (String line : result.split("\n")) {
-                outputLines.add("  " + line);
-            }
-        }
+        // Execute; output and the result arrive through tick()
+        console.submit(input);
         
         // Clear input
         inputField.setText("");
         historyIndex = -1;
     }
     
+    /**
+     * Complete the input up to the longest common prefix of the candidates,
+     * listing them when there is more than one
+     */
+    private void completeInput() {
+        String input = inputField.getText();
+        CompletionEngine.Completion completion = console.complete(input);
+        List<String> candidates = completion.getCandidates();
+        
+        if (candidates.isEmpty()) {
+            return;
+        }
+        
+        String completed = input.substring(0, completion.getStart()) + completion.getCommonPrefix();
+        if (completed.length() > input.length()) {
+            inputField.setText(completed);
+        } else if (candidates.size() > 1) {
+            output.add("§7" + String.join("  ", candidates));
+        }
+    }
+    
     /**
      * Navigate command history
      */
@@ -1,10 +1,17 @@
 package com.mmdr.console;
 
 import com.mmdr.MMDR;
+import groovy.lang.Closure;
 import net.minecraft.client.MinecraftClient;
 
+import java.io.PrintWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Interactive debug console with REPL (Read-Eval-Print-Loop) functionality.
@@ -18,20 +25,37 @@ import java.util.List;
  * - Command history and auto-completion
  * - Multi-line input support
  * 
+ * Code submitted from the console screen runs on a worker thread; its output
+ * is collected for the screen to pick up with {@link #pollOutput()}. Console
+ * commands run on the client thread right away.
+ * 
  * @author MMDR Team
  */
 public class DebugConsole {
     private final REPLEngine replEngine;
     private final CommandExecutor commandExecutor;
     private final List<String> commandHistory;
+    private final EvaluationWorker worker;
+    private final Queue<String> output = new ConcurrentLinkedQueue<>();
+    private final PrintWriter scriptOut = new PrintWriter(new LineWriter(output::add), true);
     
     private boolean visible = false;
     private ConsoleScreen currentScreen = null;
     
     public DebugConsole() {
-        this.replEngine = new REPLEngine();
-        this.commandExecutor = new CommandExecutor(replEngine);
+        this.replEngine = new REPLEngine(MMDR.getConfig().getConsoleScriptCacheSize());
+        this.commandExecutor = new CommandExecutor(replEngine, this::clearOutput);
         this.commandHistory = new ArrayList<>();
+        this.worker = new EvaluationWorker(MMDR.getConfig().getConsoleEvaluationTimeout());
+        replEngine.setStaticCompilation(MMDR.getConfig().isConsoleStaticCompilation());
+        
+        // println in snippets goes to the console, and onClient { ... } runs a block on the client thread
+        replEngine.setVariable("out", scriptOut);
+        replEngine.setVariable("onClient", new Closure<Object>(this) {
+            public Object doCall(Closure<?> action) throws Exception {
+                return worker.onClient(action::call);
+            }
+        });
         
         // Pre-import common packages
         replEngine.addImport("net.minecraft.client.MinecraftClient");
@@ -105,6 +129,98 @@ public class DebugConsole {
         }
     }
     
+    /**
+     * Run a command or code snippet without blocking the caller. Commands run
+     * immediately; code is queued on the evaluation worker. Output, the result
+     * and errors are delivered through {@link #pollOutput()}.
+     * 
+     * @param input The code to execute
+     */
+    public void submit(String input) {
+        if (input == null || input.trim().isEmpty()) {
+            return;
+        }
+        
+        if (input.startsWith("/")) {
+            emit(execute(input));
+            return;
+        }
+        
+        commandHistory.add(input);
+        
+        // A cancelled snippet may keep running, so it gets its own copy of the variables
+        AtomicReference<REPLEngine.Scope> scope = new AtomicReference<>();
+        worker.submit(
+            () -> {
+                scope.set(replEngine.newScope());
+                try {
+                    return replEngine.evaluate(input, scope.get());
+                } finally {
+                    scriptOut.flush();
+                }
+            },
+            result -> {
+                replEngine.commit(scope.get());
+                emit(formatResult(result));
+            },
+            error -> {
+                if (scope.get() != null) {
+                    replEngine.commit(scope.get());
+                }
+                emit(formatError(error));
+            },
+            reason -> emit("§c[" + reason + "]"));
+    }
+    
+    /**
+     * Cancel the running evaluation
+     * 
+     * @return false if nothing was running
+     */
+    public boolean cancel() {
+        return worker.cancel();
+    }
+    
+    /**
+     * Whether a submitted snippet is still running
+     */
+    public boolean isBusy() {
+        return worker.isBusy();
+    }
+    
+    /**
+     * Run work that snippets queued for the client thread and enforce the
+     * evaluation timeout. Called every client tick.
+     */
+    public void tick() {
+        worker.tick();
+    }
+    
+    /**
+     * Take the next line of output, or null if there is none
+     */
+    public String pollOutput() {
+        return output.poll();
+    }
+    
+    /**
+     * Drop the output shown on the console screen and output not picked up yet
+     */
+    private void clearOutput() {
+        output.clear();
+        if (currentScreen != null) {
+            currentScreen.clearOutput();
+        }
+    }
+    
+    private void emit(String text) {
+        if (!text.isEmpty()) {
+            for (String line : text.split("\n")) {
+                output.add(line);
+            }
+        }
+    }
+    
     /**
      * Format execution result for display
      */
@@ -119,7 +235,7 @@ public class DebugConsole {
     /**
      * Format error for display
      */
-    private String formatError(Exception e) {
+    private String formatError(Throwable e) {
         return "§c[ERROR] " + e.getClass().getSimpleName() + ": " + e.getMessage();
     }
     
@@ -144,6 +260,13 @@ public class DebugConsole {
         return commandExecutor.getSuggestions(input);
     }
     
+    /**
+     * Complete the command name or identifier at the end of the input
+     */
+    CompletionEngine.Completion complete(String input) {
+        return commandExecutor.complete(input);
+    }
+    
     public boolean isVisible() {
         return visible;
     }
@@ -151,4 +274,43 @@ public class DebugConsole {
     public REPLEngine getReplEngine() {
         return replEngine;
     }
+    
+    /**
+     * Writer that hands complete lines to a consumer; flushing also hands
+     * over an unterminated last line
+     */
+    private static final class LineWriter extends Writer {
+        private final Consumer<String> lines;
+        private final StringBuilder line = new StringBuilder();
+        
+        LineWriter(Consumer<String> lines) {
+            this.lines = lines;
+        }
+        
+        @Override
+        public synchronized void write(char[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                char c = buffer[i];
+                if (c == '\n') {
+                    lines.accept(line.toString());
+                    line.setLength(0);
+                } else if (c != '\r') {
+                    line.append(c);
+                }
+            }
+        }
+        
+        @Override
+        public synchronized void flush() {
+            if (line.length() > 0) {
+                lines.accept(line.toString());
+                line.setLength(0);
+            }
+        }
+        
+        @Override
+        public void close() {
+            flush();
+        }
+    }
 }
\ No newline at end of file
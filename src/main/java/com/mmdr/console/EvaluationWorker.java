@@ -0,0 +1,197 @@
+package com.mmdr.console;
+
+import com.mmdr.MMDR;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs console evaluations one at a time on a dedicated thread, so a slow or
+ * endless snippet does not block the client thread.
+ *
+ * An evaluation can be cancelled, and is cancelled when it runs longer than
+ * the timeout. Cancelling interrupts the worker thread; compiled snippets
+ * check for interrupts in every loop and closure, so they stop at the next
+ * iteration. The worker is replaced on cancellation, so a snippet stuck in
+ * code that ignores interrupts does not hold up the next one.
+ *
+ * Code that has to touch game state passes it to {@link #onClient}, which
+ * runs it on the client thread during the next {@link #tick()} and waits for
+ * the result.
+ *
+ * @author MMDR Team
+ */
+final class EvaluationWorker {
+    private final long timeoutMillis;
+    private final Queue<Runnable> clientTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final AtomicReference<Evaluation> current = new AtomicReference<>();
+    private ExecutorService executor;
+
+    /**
+     * @param timeoutMillis Longest an evaluation may run before it is cancelled, 0 for no limit
+     */
+    EvaluationWorker(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.executor = newExecutor();
+    }
+
+    private ExecutorService newExecutor() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "MMDR-Console-Eval-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Queue an evaluation. Exactly one of the callbacks is called, on the
+     * worker thread, unless the evaluation is cancelled first, in which case
+     * {@code onCancel} is called on the cancelling thread.
+     *
+     * @param task The evaluation
+     * @param onResult Receives the result
+     * @param onError Receives the exception the evaluation threw
+     * @param onCancel Receives why the evaluation was cancelled
+     */
+    synchronized void submit(Callable<?> task, Consumer<Object> onResult, Consumer<Throwable> onError,
+                             Consumer<String> onCancel) {
+        Evaluation evaluation = new Evaluation(onCancel);
+
+        FutureTask<Void> future = new FutureTask<>(() -> {
+            evaluation.thread = Thread.currentThread();
+            evaluation.startedAt = System.nanoTime();
+            current.set(evaluation);
+            try {
+                Object result = task.call();
+                if (evaluation.finish()) {
+                    onResult.accept(result);
+                }
+            } catch (Throwable t) {
+                if (evaluation.finish()) {
+                    onError.accept(t);
+                }
+            } finally {
+                current.compareAndSet(evaluation, null);
+                // Clear an interrupt that arrived after the evaluation finished
+                Thread.interrupted();
+            }
+        }, null);
+        evaluation.future = future;
+        executor.execute(future);
+    }
+
+    /**
+     * Cancel the running evaluation
+     *
+     * @return false if nothing was running
+     */
+    synchronized boolean cancel() {
+        return cancel(current.get(), "cancelled");
+    }
+
+    private synchronized boolean cancel(Evaluation evaluation, String reason) {
+        if (evaluation == null || !evaluation.finish()) {
+            return false;
+        }
+
+        evaluation.future.cancel(true);
+        evaluation.onCancel.accept(reason);
+
+        // Abandon the thread in case the snippet ignores the interrupt; queued evaluations move along
+        current.compareAndSet(evaluation, null);
+        List<Runnable> queued = executor.shutdownNow();
+        executor = newExecutor();
+        queued.forEach(executor::execute);
+        return true;
+    }
+
+    /**
+     * Whether an evaluation is running
+     */
+    boolean isBusy() {
+        return current.get() != null;
+    }
+
+    /**
+     * Run code on the client thread at the next tick and wait for it. Called
+     * from evaluations; on the client thread itself it runs immediately.
+     *
+     * @throws InterruptedException if the evaluation is cancelled while waiting
+     */
+    <T> T onClient(Supplier<T> action) throws InterruptedException, ExecutionException {
+        Evaluation evaluation = current.get();
+        if (evaluation != null && evaluation.thread == Thread.currentThread()) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            clientTasks.add(() -> {
+                try {
+                    result.complete(action.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+            return result.get();
+        }
+        return action.get();
+    }
+
+    /**
+     * Run code queued with {@link #onClient} and cancel an evaluation that ran
+     * past the timeout. Called on the client thread every tick.
+     */
+    void tick() {
+        Runnable task;
+        while ((task = clientTasks.poll()) != null) {
+            task.run();
+        }
+
+        Evaluation evaluation = current.get();
+        if (evaluation != null && timeoutMillis > 0
+                && System.nanoTime() - evaluation.startedAt > timeoutMillis * 1_000_000L) {
+            MMDR.LOGGER.warn("Console evaluation exceeded {} ms, cancelling it", timeoutMillis);
+            cancel(evaluation, "timed out after " + timeoutMillis + " ms");
+        }
+    }
+
+    /**
+     * Stop the worker thread
+     */
+    synchronized void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One submitted evaluation
+     */
+    private static final class Evaluation {
+        final Consumer<String> onCancel;
+        final AtomicBoolean finished = new AtomicBoolean();
+        volatile Future<?> future;
+        volatile Thread thread;
+        volatile long startedAt;
+
+        Evaluation(Consumer<String> onCancel) {
+            this.onCancel = onCancel;
+        }
+
+        /**
+         * Claim the right to report the outcome
+         */
+        boolean finish() {
+            return finished.compareAndSet(false, true);
+        }
+    }
+}
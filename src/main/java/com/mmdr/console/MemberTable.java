@@ -0,0 +1,143 @@
+package com.mmdr.console;
+
+import java.beans.Introspector;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Public members of a class as the console completes them: fields, methods
+ * and bean properties, sorted by name, with the type each one evaluates to.
+ *
+ * Tables are built once per class and cached in a {@link ClassValue}, so
+ * they do not keep reloaded classes alive.
+ *
+ * @author MMDR Team
+ */
+final class MemberTable {
+    private static final ClassValue<MemberTable> TABLES = new ClassValue<>() {
+        @Override
+        protected MemberTable computeValue(Class<?> type) {
+            return new MemberTable(type);
+        }
+    };
+
+    private final String[] names;
+    private final boolean[] statics;
+    private final Map<String, Class<?>> propertyTypes = new HashMap<>();
+    private final Map<String, Class<?>> methodTypes = new HashMap<>();
+
+    private MemberTable(Class<?> type) {
+        // Completion text -> static; an instance member wins over a static one of the same name
+        TreeMap<String, Boolean> members = new TreeMap<>();
+        Map<String, Integer> methodArity = new HashMap<>();
+
+        try {
+            for (Field field : type.getFields()) {
+                boolean isStatic = Modifier.isStatic(field.getModifiers());
+                members.merge(field.getName(), isStatic, Boolean::logicalAnd);
+                propertyTypes.putIfAbsent(field.getName(), field.getType());
+            }
+
+            for (Method method : type.getMethods()) {
+                if (method.isSynthetic() || method.isBridge()) {
+                    continue;
+                }
+
+                String name = method.getName();
+                int arity = method.getParameterCount();
+                boolean isStatic = Modifier.isStatic(method.getModifiers());
+                members.merge(name + (arity == 0 ? "()" : "("), isStatic, Boolean::logicalAnd);
+
+                // Calls resolve to the overload with the fewest parameters
+                if (arity < methodArity.getOrDefault(name, Integer.MAX_VALUE)) {
+                    methodArity.put(name, arity);
+                    methodTypes.put(name, method.getReturnType());
+                }
+
+                String property = propertyName(method);
+                if (property != null) {
+                    members.merge(property, isStatic, Boolean::logicalAnd);
+                    propertyTypes.putIfAbsent(property, method.getReturnType());
+                }
+            }
+        } catch (LinkageError e) {
+            // Member types that cannot be resolved, e.g. classes of the other physical side
+            members.clear();
+            propertyTypes.clear();
+            methodTypes.clear();
+        }
+
+        this.names = members.keySet().toArray(new String[0]);
+        this.statics = new boolean[names.length];
+        int i = 0;
+        for (boolean isStatic : members.values()) {
+            statics[i++] = isStatic;
+        }
+    }
+
+    /**
+     * Get the member table of a class
+     */
+    static MemberTable of(Class<?> type) {
+        return TABLES.get(type);
+    }
+
+    /**
+     * Groovy property name of a getter, or null if the method is not one
+     */
+    private static String propertyName(Method method) {
+        if (method.getParameterCount() != 0 || method.getReturnType() == void.class
+                || method.getDeclaringClass() == Object.class) {
+            return null;
+        }
+
+        String name = method.getName();
+        if (name.startsWith("get") && name.length() > 3) {
+            return Introspector.decapitalize(name.substring(3));
+        }
+        if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+            return Introspector.decapitalize(name.substring(2));
+        }
+        return null;
+    }
+
+    /**
+     * Member completions starting with {@code prefix}, in name order
+     *
+     * @param staticOnly Whether only static members apply, for access through a class
+     * @param limit Maximum number of completions to return
+     */
+    List<String> complete(String prefix, boolean staticOnly, int limit) {
+        List<String> result = new ArrayList<>();
+        int i = Arrays.binarySearch(names, prefix);
+        for (i = i >= 0 ? i : -i - 1; i < names.length && result.size() < limit && names[i].startsWith(prefix); i++) {
+            if (!staticOnly || statics[i]) {
+                result.add(names[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Type of a field or property access, or null if the class has no such property
+     */
+    Class<?> propertyType(String name) {
+        return propertyTypes.get(name);
+    }
+
+    /**
+     * Return type of a method call, or null if the class has no such method
+     */
+    Class<?> methodType(String name) {
+        return methodTypes.get(name);
+    }
+
+    /**
+     * Types of all properties, the classes completed next after a dot
+     */
+    Collection<Class<?>> propertyTypes() {
+        return propertyTypes.values();
+    }
+}
@@ -2,28 +2,54 @@ package com.mmdr.console;
 
 import com.mmdr.MMDR;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
 import net.minecraft.client.MinecraftClient;
+import org.codehaus.groovy.runtime.InvokerHelper;
 
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * REPL (Read-Eval-Print-Loop) engine using Groovy.
  * 
  * Executes code snippets and provides a scripting environment
- * with access to Minecraft game objects.
+ * with access to Minecraft game objects. Compiled snippets are cached, so
+ * running the same snippet again with the same imports skips compilation.
+ * 
+ * With static compilation enabled, snippets are compiled with
+ * {@code @CompileStatic}: calls are bound at compile time, which makes loops
+ * over many objects run at close to Java speed. Variables the snippet uses
+ * are declared as typed locals of their current runtime type, so
+ * {@code mc.world} resolves statically. Variables assigned in such a snippet
+ * are local to it.
+ * 
+ * Snippets that may be abandoned part way, like those on the evaluation
+ * worker, run in a {@link Scope}: a copy of the variables that is applied to
+ * the shared ones only once the snippet has finished.
+ * 
+ * The shared variables are a synchronized map, and copies of them are taken
+ * while holding its lock, so they can be read from other threads, e.g. for
+ * completion, while a snippet assigns them.
  * 
  * @author MMDR Team
  */
 public class REPLEngine {
     private final Binding binding;
-    private final GroovyShell shell;
+    private final ScriptCache scripts;
+    private final ScriptCache staticScripts;
     private final List<String> imports;
+    private volatile boolean staticCompilation;
     
-    public REPLEngine() {
-        this.binding = new Binding();
-        this.shell = new GroovyShell(binding);
+    /**
+     * @param scriptCacheSize Number of compiled snippets to keep
+     */
+    public REPLEngine(int scriptCacheSize) {
+        this.binding = new Binding(Collections.synchronizedMap(new LinkedHashMap<>()));
+        this.scripts = new ScriptCache(REPLEngine.class.getClassLoader(), scriptCacheSize);
+        this.staticScripts = new ScriptCache(REPLEngine.class.getClassLoader(), scriptCacheSize, true);
         this.imports = new ArrayList<>();
         
         // Provide access to common objects
@@ -38,14 +64,129 @@ public class REPLEngine {
      * @return Result of evaluation
      */
     public Object evaluate(String code) throws Exception {
+        return run(code, binding);
+    }
+    
+    /**
+     * Evaluate a code snippet with its own copy of the variables
+     * 
+     * @see #newScope()
+     */
+    Object evaluate(String code, Scope scope) throws Exception {
+        return run(code, scope);
+    }
+    
+    private Object run(String code, Binding variables) throws Exception {
         // Prepend imports
         StringBuilder fullCode = new StringBuilder();
         for (String imp : imports) {
             fullCode.append("import ").append(imp).append("\n");
         }
-        fullCode.append(code);
         
-        return shell.evaluate(fullCode.toString());
+        if (!staticCompilation) {
+            fullCode.append(code);
+            return InvokerHelper.createScript(scripts.get(fullCode.toString()), variables).run();
+        }
+        
+        // Imports of the snippet itself have to stay ahead of the declarations
+        String body = code.stripLeading();
+        while (body.startsWith("import ")) {
+            int end = body.indexOf('\n');
+            fullCode.append(end < 0 ? body : body.substring(0, end)).append("\n");
+            body = end < 0 ? "" : body.substring(end + 1).stripLeading();
+        }
+        
+        appendTypedDeclarations(fullCode, body, variables);
+        fullCode.append(body);
+        return InvokerHelper.createScript(staticScripts.get(fullCode.toString()), variables).run();
+    }
+    
+    /**
+     * Declare the variables a snippet refers to as locals of their runtime type
+     */
+    private static void appendTypedDeclarations(StringBuilder fullCode, String code, Binding variables) {
+        for (Map.Entry<String, Object> entry : copyOf(variables).entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            
+            if (isIdentifier(name) && refersTo(code, name)) {
+                String type = staticTypeName(value);
+                fullCode.append(type).append(' ').append(name)
+                    .append(" = (").append(type).append(") binding.getVariable('").append(name).append("')\n");
+            }
+        }
+    }
+    
+    /**
+     * Name of the most specific type of a value that snippets can refer to:
+     * public, with a canonical name, and visible from the REPL's classloader
+     */
+    static String staticTypeName(Object value) {
+        if (value == null) {
+            return "Object";
+        }
+        
+        for (Class<?> type = value.getClass(); type != null; type = type.getSuperclass()) {
+            if (isAccessible(type)) {
+                return type.getCanonicalName();
+            }
+        }
+        return "Object";
+    }
+    
+    private static boolean isAccessible(Class<?> type) {
+        if (type.getCanonicalName() == null) {
+            return false;
+        }
+        
+        for (Class<?> enclosing = type; enclosing != null; enclosing = enclosing.getEnclosingClass()) {
+            if (!Modifier.isPublic(enclosing.getModifiers())) {
+                return false;
+            }
+        }
+        
+        try {
+            return Class.forName(type.getName(), false, REPLEngine.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+    
+    private static boolean isIdentifier(String name) {
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Whether {@code name} occurs in the code as a whole word
+     */
+    static boolean refersTo(String code, String name) {
+        for (int i = code.indexOf(name); i >= 0; i = code.indexOf(name, i + 1)) {
+            int end = i + name.length();
+            if ((i == 0 || !Character.isJavaIdentifierPart(code.charAt(i - 1)))
+                    && (end == code.length() || !Character.isJavaIdentifierPart(code.charAt(end)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Compile snippets with {@code @CompileStatic}
+     */
+    public void setStaticCompilation(boolean staticCompilation) {
+        this.staticCompilation = staticCompilation;
+    }
+    
+    public boolean isStaticCompilation() {
+        return staticCompilation;
     }
     
     /**
@@ -55,6 +196,13 @@ public class REPLEngine {
         imports.add(importStatement);
     }
     
+    /**
+     * Get a copy of the imports
+     */
+    public List<String> getImports() {
+        return new ArrayList<>(imports);
+    }
+    
     /**
      * Set a variable in the REPL environment
      */
@@ -69,10 +217,89 @@ public class REPLEngine {
         return binding.getProperty(name);
     }
     
+    /**
+     * Get a copy of all variables by name. Safe to call while a snippet runs.
+     */
+    public Map<String, Object> getVariables() {
+        return copyOf(binding);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> copyOf(Binding variables) {
+        Map<String, Object> map = variables.getVariables();
+        synchronized (map) {
+            return new LinkedHashMap<>(map);
+        }
+    }
+    
+    /**
+     * Copy the variables for a snippet whose assignments should only apply
+     * once it finishes, see {@link #commit(Scope)}
+     */
+    Scope newScope() {
+        return new Scope(getVariables());
+    }
+    
+    /**
+     * Apply the variables a finished snippet assigned or removed to the
+     * shared ones. Variables it did not touch keep their current value.
+     */
+    void commit(Scope scope) {
+        Map<String, Object> assigned = copyOf(scope);
+        Map<?, ?> shared = binding.getVariables();
+        synchronized (shared) {
+            for (Map.Entry<String, Object> entry : assigned.entrySet()) {
+                String name = entry.getKey();
+                if (!scope.initial.containsKey(name) || scope.initial.get(name) != entry.getValue()) {
+                    binding.setVariable(name, entry.getValue());
+                }
+            }
+            for (String name : scope.initial.keySet()) {
+                if (!assigned.containsKey(name)) {
+                    shared.remove(name);
+                }
+            }
+        }
+    }
+    
     /**
      * Clear all variables
      */
     public void clearVariables() {
         binding.getVariables().clear();
     }
+    
+    /**
+     * Drop all compiled snippets
+     */
+    public void clearScriptCache() {
+        scripts.clear();
+        staticScripts.clear();
+    }
+    
+    /**
+     * Number of evaluations that reused a compiled snippet
+     */
+    public long getScriptCacheHits() {
+        return scripts.getHits() + staticScripts.getHits();
+    }
+    
+    /**
+     * Number of evaluations that had to compile their snippet
+     */
+    public long getScriptCacheMisses() {
+        return scripts.getMisses() + staticScripts.getMisses();
+    }
+    
+    /**
+     * Variables of one snippet, copied from the shared ones when it started
+     */
+    static final class Scope extends Binding {
+        private final Map<String, Object> initial;
+        
+        private Scope(Map<String, Object> initial) {
+            super(new LinkedHashMap<>(initial));
+            this.initial = initial;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package com.mmdr.console;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.transform.CompileStatic;
+import groovy.transform.ThreadInterrupt;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled REPL snippets, keyed by their full source including imports.
+ *
+ * Compiling a snippet costs a Groovy parse, compile and class definition;
+ * running a cached one only instantiates its script class. The cache holds at
+ * most {@code capacity} snippets and evicts the least recently used one.
+ *
+ * Script classes are not registered with the shared {@link GroovyClassLoader},
+ * so an evicted snippet is unreachable once its meta class is removed, and its
+ * classes are unloaded together with the loader Groovy defined them in.
+ *
+ * Snippets are compiled with {@link ThreadInterrupt}, so loops and closures
+ * stop with an {@link InterruptedException} once their thread is interrupted.
+ * A cache created for static compilation also applies {@link CompileStatic},
+ * so method calls are bound at compile time instead of dispatched dynamically.
+ *
+ * @author MMDR Team
+ */
+final class ScriptCache {
+    private final ScriptClassLoader loader;
+    private final int capacity;
+    private final LinkedHashMap<String, Class<?>> scripts = new LinkedHashMap<>(16, 0.75f, true);
+    private int nextScriptId;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param parent Loader the snippets resolve game and mod classes through
+     * @param capacity Maximum number of compiled snippets to keep
+     */
+    ScriptCache(ClassLoader parent, int capacity) {
+        this(parent, capacity, false);
+    }
+
+    /**
+     * @param parent Loader the snippets resolve game and mod classes through
+     * @param capacity Maximum number of compiled snippets to keep
+     * @param staticCompilation Whether snippets are compiled with {@link CompileStatic}
+     */
+    ScriptCache(ClassLoader parent, int capacity, boolean staticCompilation) {
+        this.loader = new ScriptClassLoader(parent, staticCompilation);
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Get the compiled script class for a source, compiling it on a miss
+     *
+     * @param source Full script source, including imports
+     * @throws org.codehaus.groovy.control.CompilationFailedException if the source does not compile
+     */
+    synchronized Class<?> get(String source) {
+        String key = normalize(source);
+        Class<?> script = scripts.get(key);
+
+        if (script != null) {
+            hits++;
+            return script;
+        }
+
+        misses++;
+        script = loader.parseClass(key, "ReplScript" + (++nextScriptId) + ".groovy");
+        scripts.put(key, script);
+
+        if (scripts.size() > capacity) {
+            Iterator<Map.Entry<String, Class<?>>> eldest = scripts.entrySet().iterator();
+            release(eldest.next().getValue());
+            eldest.remove();
+        }
+        return script;
+    }
+
+    /**
+     * Canonical form of a source, so that snippets differing only in line
+     * endings and surrounding whitespace share one compiled class. Whitespace
+     * within the source is kept, since it can be part of a multi-line string.
+     */
+    static String normalize(String source) {
+        return source.strip().replaceAll("\r\n?", "\n");
+    }
+
+    /**
+     * Drop all compiled snippets
+     */
+    synchronized void clear() {
+        scripts.values().forEach(ScriptCache::release);
+        scripts.clear();
+    }
+
+    private static void release(Class<?> script) {
+        InvokerHelper.removeClass(script);
+    }
+
+    synchronized int size() {
+        return scripts.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Loader that does not keep the classes it compiled. Classes of one
+     * snippet still resolve each other through the inner loader Groovy
+     * defines them in.
+     */
+    private static final class ScriptClassLoader extends GroovyClassLoader {
+        ScriptClassLoader(ClassLoader parent, boolean staticCompilation) {
+            super(parent, compilerConfiguration(staticCompilation));
+        }
+
+        private static CompilerConfiguration compilerConfiguration(boolean staticCompilation) {
+            CompilerConfiguration configuration = new CompilerConfiguration();
+            configuration.addCompilationCustomizers(new ASTTransformationCustomizer(ThreadInterrupt.class));
+            if (staticCompilation) {
+                configuration.addCompilationCustomizers(new ASTTransformationCustomizer(CompileStatic.class));
+            }
+            return configuration;
+        }
+
+        @Override
+        protected void setClassCacheEntry(Class cls) {
+            // Owned by the script cache
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.mmdr.hotreload;
+
+import java.util.*;
+
+/**
+ * Bounded in-memory history of committed reload batches.
+ *
+ * For each committed batch, a generation records what the batch replaced: the
+ * previous bytecode of classes redefined in place, and the previous version of
+ * classes defined in a new classloader. Reverting a generation restores all of
+ * them at once. Only the most recent generations are kept.
+ *
+ * The bytecode currently live for every class reloaded in this session is
+ * tracked as well, so the previous bytecode of a class reloaded twice is known
+ * without asking the JVM.
+ *
+ * Not thread-safe; used on the thread committing reloads.
+ *
+ * @author MMDR Team
+ */
+final class BytecodeHistory {
+    private final int maxGenerations;
+    private final Map<String, byte[]> liveBytecode = new HashMap<>();
+    private final Deque<Generation> generations = new ArrayDeque<>();
+
+    BytecodeHistory(int maxGenerations) {
+        this.maxGenerations = Math.max(1, maxGenerations);
+    }
+
+    /**
+     * Bytecode of the version of a class currently in use, if it was reloaded before
+     */
+    byte[] getLiveBytecode(String className) {
+        return liveBytecode.get(className);
+    }
+
+    /**
+     * Record a committed batch
+     */
+    void record(Generation generation, Map<String, byte[]> committedBytecode) {
+        liveBytecode.putAll(committedBytecode);
+        generations.addLast(generation);
+
+        while (generations.size() > maxGenerations) {
+            generations.removeFirst();
+        }
+    }
+
+    /**
+     * Remove and return the most recent generation, or null if there is none
+     */
+    Generation pollLatest() {
+        Generation generation = generations.pollLast();
+
+        if (generation != null) {
+            for (Map.Entry<String, byte[]> entry : generation.previousBytecode.entrySet()) {
+                liveBytecode.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return generation;
+    }
+
+    int size() {
+        return generations.size();
+    }
+
+    /**
+     * What one committed batch replaced
+     */
+    static final class Generation {
+        /** Previous bytecode of classes redefined in place */
+        final Map<Class<?>, byte[]> previousDefinitions = new LinkedHashMap<>();
+        /** Same bytecode by class name */
+        final Map<String, byte[]> previousBytecode = new LinkedHashMap<>();
+        /** Previous versions of classes defined in a new classloader; null if there was none */
+        final Map<String, Class<?>> previousVersions = new LinkedHashMap<>();
+        final Map<String, ClassLoader> previousLoaders = new LinkedHashMap<>();
+
+        void addDefinition(Class<?> clazz, byte[] bytecode) {
+            previousDefinitions.put(clazz, bytecode);
+            previousBytecode.put(clazz.getName(), bytecode);
+        }
+
+        List<String> getClassNames() {
+            List<String> names = new ArrayList<>(previousBytecode.keySet());
+            names.addAll(previousVersions.keySet());
+            return names;
+        }
+    }
+}
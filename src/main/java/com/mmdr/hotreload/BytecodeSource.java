@@ -0,0 +1,220 @@
+package com.mmdr.hotreload;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Where {@link ClassReloader} gets the bytecode of a class to reload.
+ *
+ * In order of preference:
+ * <ol>
+ *   <li>bytecode staged by the in-memory compiler, which is not on disk;</li>
+ *   <li>bytecode the watcher already read and hashed when it saw the change,
+ *       taken from a small LRU keyed by content hash;</li>
+ *   <li>the class file in the first class output root that has it, read
+ *       through a {@link FileChannel} into an exactly sized array;</li>
+ *   <li>the game classloader, for classes outside the output roots. This may
+ *       return the bytecode the game was started with.</li>
+ * </ol>
+ *
+ * Safe to use from the prepare threads.
+ *
+ * @author MMDR Team
+ */
+public final class BytecodeSource {
+    private static final int DEFAULT_CACHE_BYTES = 8 * 1024 * 1024;
+
+    private final List<Path> roots;
+    private final Map<String, byte[]> staged = new ConcurrentHashMap<>();
+    private final Map<String, Long> offered = new ConcurrentHashMap<>();
+    private final Cache cache;
+
+    private long cacheHits;
+    private long fileReads;
+
+    /**
+     * @param roots Class output directories, searched in order
+     */
+    public BytecodeSource(List<Path> roots) {
+        this(roots, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @param roots Class output directories, searched in order
+     * @param cacheBytes Total size of the bytecode kept in the LRU
+     */
+    public BytecodeSource(List<Path> roots, int cacheBytes) {
+        this.roots = List.copyOf(roots);
+        this.cache = new Cache(cacheBytes);
+    }
+
+    /**
+     * Use this bytecode for the next read of a class instead of looking it up,
+     * e.g. output of the in-process compiler
+     */
+    public void stage(String className, byte[] bytecode) {
+        staged.put(className, bytecode);
+    }
+
+    /**
+     * Offer bytecode that was just read from a class file, so the next read of
+     * the class does not go to disk again. Identical bytecode that is already
+     * cached is shared.
+     *
+     * @param hash {@link ContentHash} of the bytecode
+     */
+    public void offer(String className, byte[] bytecode, long hash) {
+        cache.put(hash, bytecode);
+        offered.put(className, hash);
+    }
+
+    /**
+     * Read the current bytecode of a class. Staged and offered bytecode is
+     * used once; later reads go to the class file again.
+     *
+     * @return The bytecode, or null if the class cannot be found
+     */
+    public byte[] read(String className) throws IOException {
+        byte[] bytecode = staged.remove(className);
+        if (bytecode != null) {
+            return bytecode;
+        }
+
+        Long hash = offered.remove(className);
+        if (hash != null) {
+            bytecode = cache.get(hash);
+            if (bytecode != null) {
+                synchronized (this) {
+                    cacheHits++;
+                }
+                return bytecode;
+            }
+        }
+
+        String resourcePath = className.replace('.', '/') + ".class";
+
+        for (Path root : roots) {
+            bytecode = readFile(root.resolve(resourcePath));
+            if (bytecode != null) {
+                synchronized (this) {
+                    fileReads++;
+                }
+                return bytecode;
+            }
+        }
+
+        try (InputStream is = BytecodeSource.class.getClassLoader().getResourceAsStream(resourcePath)) {
+            return is != null ? is.readAllBytes() : null;
+        }
+    }
+
+    /**
+     * Read a whole file into an exactly sized array
+     *
+     * @return null if the file does not exist
+     */
+    static byte[] readFile(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Class file too large: " + file);
+            }
+
+            // Not mapped: a mapped file truncated while reading throws InternalError, not an IOException
+            byte[] bytecode = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(bytecode);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    // Truncated while reading, e.g. the compiler is rewriting it
+                    throw new EOFException("Class file shrank while reading: " + file);
+                }
+            }
+            return bytecode;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Drop all staged, offered and cached bytecode
+     */
+    public void clear() {
+        staged.clear();
+        offered.clear();
+        cache.clear();
+    }
+
+    /**
+     * Reads served from bytecode offered by the watcher
+     */
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Reads that went to a class output root
+     */
+    public synchronized long getFileReads() {
+        return fileReads;
+    }
+
+    public int getCachedCount() {
+        return cache.size();
+    }
+
+    /**
+     * Content hash to bytecode, least recently used first, bounded by total size
+     */
+    private static final class Cache {
+        private final int maxBytes;
+        private final LinkedHashMap<Long, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        Cache(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized void put(long hash, byte[] bytecode) {
+            if (bytecode.length > maxBytes || entries.get(hash) != null) {
+                return;
+            }
+
+            entries.put(hash, bytecode);
+            bytes += bytecode.length;
+
+            var it = entries.values().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                bytes -= it.next().length;
+                it.remove();
+            }
+        }
+
+        synchronized byte[] get(long hash) {
+            return entries.get(hash);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+}
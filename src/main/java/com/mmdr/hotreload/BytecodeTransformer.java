@@ -1,54 +1,102 @@
 package com.mmdr.hotreload;
 
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.tree.ClassNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Transforms bytecode for hot-reloaded classes.
  * 
- * Can inject hooks, modify methods, or add instrumentation
- * to support advanced hot reload features.
+ * Transformations are contributed as ordered {@link TransformPass}es, e.g. to
+ * inject hooks, modify methods, or add instrumentation. Classes no pass
+ * applies to are returned as-is without parsing or copying. Otherwise the
+ * passes are chained between a {@link ClassReader} and a {@link ClassWriter}
+ * built from it, so methods the passes do not touch are copied verbatim
+ * instead of being re-analysed.
+ * 
+ * {@link #normalizeSynthetics} is applied separately when a batch is
+ * committed, since it needs the bytecode the class is currently defined with.
  * 
  * @author MMDR Team
  */
 public class BytecodeTransformer {
+    private final List<TransformPass> passes = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Add a pass to the end of the pipeline
+     */
+    public void addPass(TransformPass pass) {
+        passes.add(pass);
+    }
+    
+    /**
+     * Remove a pass from the pipeline
+     */
+    public void removePass(TransformPass pass) {
+        passes.remove(pass);
+    }
+    
+    public List<TransformPass> getPasses() {
+        return new ArrayList<>(passes);
+    }
     
     /**
      * Transform class bytecode
      * 
      * @param className Name of the class being transformed
      * @param originalBytecode Original class bytecode
-     * @return Transformed bytecode
+     * @return Transformed bytecode, or the original array if no pass applies
      */
     public byte[] transform(String className, byte[] originalBytecode) {
+        if (passes.isEmpty()) {
+            return originalBytecode;
+        }
+        
         ClassReader reader = new ClassReader(originalBytecode);
-        ClassNode classNode = new ClassNode();
-        reader.accept(classNode, 0);
+        List<TransformPass> applicable = new ArrayList<>();
+        int writerFlags = 0;
+        int readerFlags = 0;
+        
+        for (TransformPass pass : passes) {
+            if (pass.appliesTo(className, reader)) {
+                applicable.add(pass);
+                writerFlags |= pass.writerFlags();
+                readerFlags |= pass.readerFlags();
+            }
+        }
+        
+        // Fast path - nothing to do, no copy
+        if (applicable.isEmpty()) {
+            return originalBytecode;
+        }
         
-        // Apply transformations
-        injectReloadHooks(classNode);
-        instrumentMethods(classNode);
+        // Copy-through writer: untouched methods are copied without recomputation
+        ClassWriter writer = new ClassWriter(reader, writerFlags);
+        ClassVisitor visitor = writer;
         
-        // Write back to bytecode
-        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
-        classNode.accept(writer);
+        for (int i = applicable.size() - 1; i >= 0; i--) {
+            visitor = applicable.get(i).createVisitor(visitor, className);
+        }
         
+        reader.accept(visitor, readerFlags);
         return writer.toByteArray();
     }
     
     /**
-     * Inject hooks to support state migration
-     */
-    private void injectReloadHooks(ClassNode classNode) {
-        // TODO: Add methods for state serialization/deserialization
-        // This allows preserving field values across reloads
-    }
-    
-    /**
-     * Instrument methods for debugging/profiling
+     * Rename the compiler-generated lambda methods of a new class version to
+     * the names they have in the version in use, so that renumbering by javac
+     * does not count as a schema change
+     * 
+     * @param previousBytecode Bytecode the class is currently defined with
+     * @param bytecode New bytecode of the class
+     * @return Normalized bytecode, or {@code bytecode} itself if nothing was renamed
+     * @see SyntheticMemberNormalizer
      */
-    private void instrumentMethods(ClassNode classNode) {
-        // TODO: Add entry/exit logging, performance tracking, etc.
+    public byte[] normalizeSynthetics(byte[] previousBytecode, byte[] bytecode) {
+        return SyntheticMemberNormalizer.normalize(previousBytecode, bytecode);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+package com.mmdr.hotreload;
+
+
+import com.mmdr.util.Log;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Content-digest index of watched class files.
+ *
+ * Maps class names to the 64-bit {@link ContentHash} of their bytecode plus a
+ * cheap file stamp (size and modification time). Values are kept in primitive
+ * {@code long[]} arrays using open addressing, so lookups on the watcher thread
+ * do not box. The index can be persisted so that unchanged files do not have
+ * to be re-hashed on the next session.
+ *
+ * Not thread-safe; owned by the hot reload watcher thread.
+ *
+ * @author MMDR Team
+ */
+public class ClassHashIndex {
+    private static final int FORMAT_VERSION = 1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private String[] keys;
+    private long[] hashes;
+    private long[] stamps;
+    private int size;
+
+    public ClassHashIndex() {
+        this(256);
+    }
+
+    public ClassHashIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new String[capacity];
+        this.hashes = new long[capacity];
+        this.stamps = new long[capacity];
+    }
+
+    /**
+     * Compute the file stamp used to decide whether a persisted hash is still valid
+     */
+    public static long stampOf(long size, long lastModified) {
+        return size * 0x9E3779B97F4A7C15L ^ lastModified;
+    }
+
+    /**
+     * Record the hash of a class.
+     *
+     * @return true if the class was unknown or its hash differs from the recorded one
+     */
+    public boolean update(String className, long hash, long stamp) {
+        int slot = findSlot(className);
+
+        if (keys[slot] != null) {
+            boolean changed = hashes[slot] != hash;
+            hashes[slot] = hash;
+            stamps[slot] = stamp;
+            return changed;
+        }
+
+        keys[slot] = className;
+        hashes[slot] = hash;
+        stamps[slot] = stamp;
+
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether the recorded hash of a class equals the given one
+     */
+    public boolean matches(String className, long hash) {
+        int slot = findSlot(className);
+        return keys[slot] != null && hashes[slot] == hash;
+    }
+
+    /**
+     * Whether the class is known with the given file stamp
+     */
+    public boolean hasStamp(String className, long stamp) {
+        int slot = findSlot(className);
+        return keys[slot] != null && stamps[slot] == stamp;
+    }
+
+    public boolean contains(String className) {
+        return keys[findSlot(className)] != null;
+    }
+
+    /**
+     * Get the recorded hash of a class, or {@code defaultValue} if unknown
+     */
+    public long getHash(String className, long defaultValue) {
+        int slot = findSlot(className);
+        return keys[slot] != null ? hashes[slot] : defaultValue;
+    }
+
+    /**
+     * Remove a class from the index
+     */
+    public void remove(String className) {
+        int slot = findSlot(className);
+
+        if (keys[slot] == null) {
+            return;
+        }
+
+        keys[slot] = null;
+        size--;
+
+        // Re-insert the rest of the probe cluster so lookups stay correct
+        int mask = keys.length - 1;
+        int next = (slot + 1) & mask;
+
+        while (keys[next] != null) {
+            String key = keys[next];
+            long hash = hashes[next];
+            long stamp = stamps[next];
+            keys[next] = null;
+
+            int target = findSlot(key);
+            keys[target] = key;
+            hashes[target] = hash;
+            stamps[target] = stamp;
+
+            next = (next + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    private int findSlot(String className) {
+        int mask = keys.length - 1;
+        int slot = mix(className.hashCode()) & mask;
+
+        while (keys[slot] != null && !keys[slot].equals(className)) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash(int newCapacity) {
+        String[] oldKeys = keys;
+        long[] oldHashes = hashes;
+        long[] oldStamps = stamps;
+
+        keys = new String[newCapacity];
+        hashes = new long[newCapacity];
+        stamps = new long[newCapacity];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                stamps[slot] = oldStamps[i];
+            }
+        }
+    }
+
+    /**
+     * Save the index to a file
+     */
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(size);
+
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    out.writeUTF(keys[i]);
+                    out.writeLong(hashes[i]);
+                    out.writeLong(stamps[i]);
+                }
+            }
+        }
+
+        Files.move(tmp, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Load an index previously written by {@link #save(Path)}.
+     * Returns an empty index if the file is missing or unreadable.
+     */
+    public static ClassHashIndex load(Path file) {
+        if (!Files.exists(file)) {
+            return new ClassHashIndex();
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                Log.LOGGER.info("Ignoring class hash index with old format: {}", file);
+                return new ClassHashIndex();
+            }
+
+            int count = in.readInt();
+            ClassHashIndex index = new ClassHashIndex(count);
+
+            for (int i = 0; i < count; i++) {
+                String className = in.readUTF();
+                long hash = in.readLong();
+                long stamp = in.readLong();
+                index.update(className, hash, stamp);
+            }
+
+            return index;
+        } catch (IOException e) {
+            Log.LOGGER.warn("Failed to load class hash index from {}, rebuilding", file, e);
+            return new ClassHashIndex();
+        }
+    }
+}
@@ -1,126 +1,721 @@
 package com.mmdr.hotreload;
 
-import com.mmdr.MMDR;
+import com.mmdr.util.Log;
+import com.mmdr.util.MMDRConfig;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.util.CheckClassAdapter;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Handles the actual reloading of Java classes at runtime.
- * 
- * Uses bytecode manipulation and custom classloaders to reload
- * modified classes while preserving as much state as possible.
- * 
+ *
+ * When an {@link Instrumentation} instance is available, changed classes whose
+ * schema is unchanged are redefined in place with a single batched
+ * {@code redefineClasses} call, so live instances run the new code. Classes
+ * with schema changes fall back to being defined in a new classloader,
+ * with compatible static state migrated from the previous version. All such
+ * classes of one batch share a single classloader generation, which can be
+ * garbage collected once it is superseded and no longer in use.
+ *
+ * Each loaded class is classified as {@link ClassSchema.Change body-only,
+ * member-added or schema-changed} against the version in use. When the only
+ * difference is javac renumbering lambda methods, they are renamed back first
+ * so the class can still be redefined in place.
+ *
+ * Reloading is two-phase. {@link #prepare} reads, transforms and verifies a
+ * batch off the client thread; {@link #commit} applies it on the client thread
+ * so that either every class of the batch is replaced or none is. What each
+ * committed batch replaced is kept in a bounded history, so the most recent
+ * batches can be reverted with {@link #rollbackLastBatch()}.
+ *
  * @author MMDR Team
  */
 public class ClassReloader {
+    private final MMDRConfig config;
     private final Map<String, ClassLoader> classLoaders = new HashMap<>();
+    private final Map<String, Class<?>> latestVersions = new ConcurrentHashMap<>();
+    private final BytecodeSource bytecodeSource;
+    private final StaticStateMigrator migrator = new StaticStateMigrator();
+    private final BytecodeHistory history;
+    private final ReloadGenerations generations = new ReloadGenerations();
     private final BytecodeTransformer transformer = new BytecodeTransformer();
-    
+    private final ExecutorService prepareExecutor;
+    private final AtomicLongArray changeCounts = new AtomicLongArray(ClassSchema.Change.values().length);
+    private final AtomicLong normalizedCount = new AtomicLong();
+
+    /**
+     * Create a reloader that reads classes through the game classloader only
+     */
+    public ClassReloader(MMDRConfig config) {
+        this(config, new BytecodeSource(List.of()));
+    }
+
+    public ClassReloader(MMDRConfig config, BytecodeSource bytecodeSource) {
+        this.config = config;
+        this.bytecodeSource = bytecodeSource;
+        this.history = new BytecodeHistory(config.getReloadHistorySize());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.prepareExecutor = Executors.newFixedThreadPool(Math.max(1, config.getMaxReloadThreads()), r -> {
+            Thread t = new Thread(r, "MMDR-HotReload-Prepare-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
     /**
-     * Reload a set of classes
-     * 
+     * Prepare and immediately commit a batch on the calling thread
+     *
      * @param classNames Set of fully qualified class names to reload
-     * @return Map of class names to reloaded Class objects
-     * @throws Exception if reload fails
+     * @return Reloaded classes and per-class failures
+     */
+    public ReloadResult reloadClasses(Set<String> classNames) {
+        return commit(prepare(classNames));
+    }
+
+    /**
+     * Read, transform and verify a batch of classes.
+     *
+     * Bytecode is prepared concurrently on up to {@code maxReloadThreads}
+     * threads and ordered so that supertypes and outer classes come first.
+     * Nothing is applied; this can be called from any thread.
+     *
+     * @param classNames Classes to reload, in preferred definition order
+     */
+    public ReloadTransaction prepare(Set<String> classNames) {
+        return prepare(classNames, new ReloadTrace());
+    }
+
+    /**
+     * Prepare a batch, adding the read, transform and verify times to a trace
+     * that already holds the earlier stages of the reload
+     */
+    public ReloadTransaction prepare(Set<String> classNames, ReloadTrace trace) {
+        long start = System.nanoTime();
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        Map<String, PreparedClass> prepared = prepareClasses(classNames, failures, trace);
+        return new ReloadTransaction(sortForDefinition(prepared), failures, System.nanoTime() - start, trace);
+    }
+
+    /**
+     * Apply a prepared batch as a whole.
+     *
+     * Classes that need a new classloader are defined first but not published.
+     * Then all schema-compatible classes are redefined with one
+     * {@code redefineClasses} call, which the JVM applies completely or not at
+     * all. Only then are the new classes published and their static state
+     * migrated. If any step fails, everything done so far is reverted and the
+     * result is marked as rolled back.
+     *
+     * Must be called on the thread that runs the reloaded code, between ticks.
+     */
+    public ReloadResult commit(ReloadTransaction transaction) {
+        ReloadResult result = new ReloadResult();
+        ReloadTrace trace = transaction.getTrace();
+        trace.add(ReloadTrace.Stage.QUEUE, System.nanoTime() - transaction.getPreparedAt());
+
+        if (transaction.hasFailures()) {
+            transaction.getFailures().forEach(result::addFailure);
+            abort(result, "preparation failed");
+            return result;
+        }
+
+        Map<String, byte[]> pending = new LinkedHashMap<>();
+        for (PreparedClass preparedClass : transaction.classes) {
+            pending.put(preparedClass.className, preparedClass.bytecode);
+        }
+
+        Instrumentation instrumentation = config.isInstrumentationReloadEnabled()
+            ? InstrumentationProvider.get()
+            : null;
+
+        Map<String, ClassSchema.Change> changes = new HashMap<>();
+        Map<Class<?>, byte[]> previous = new HashMap<>();
+        Map<String, Class<?>> redefinitions = instrumentation != null && instrumentation.isRedefineClassesSupported()
+            ? selectRedefinitions(instrumentation, pending, changes, previous)
+            : Collections.emptyMap();
+
+        // A class redefined in place can only be reverted with its current bytecode
+        if (!redefinitions.isEmpty()) {
+            long captureStart = System.nanoTime();
+            capturePreviousBytecode(instrumentation, redefinitions.values(), previous);
+            redefinitions.values().removeIf(clazz -> {
+                if (previous.containsKey(clazz)) {
+                    return false;
+                }
+                Log.LOGGER.warn("Current bytecode of {} unknown, reloading it in a new classloader", clazz.getName());
+                return true;
+            });
+            trace.add(ReloadTrace.Stage.REDEFINE, System.nanoTime() - captureStart);
+        }
+
+        // Phase 1: define classes that need a new classloader without publishing them
+        Map<String, byte[]> replaced = new LinkedHashMap<>(pending);
+        replaced.keySet().removeAll(redefinitions.keySet());
+
+        long defineStart = System.nanoTime();
+        Map<String, StagedClass> staged = new LinkedHashMap<>();
+        GenerationClassLoader generationLoader = replaced.isEmpty()
+            ? null
+            : defineGeneration(replaced, staged, result);
+        trace.add(ReloadTrace.Stage.DEFINE, System.nanoTime() - defineStart);
+
+        if (result.hasFailures()) {
+            abort(result, "definition failed");
+            return result;
+        }
+
+        // Phase 2: redefine in place, all or nothing
+        BytecodeHistory.Generation generation = new BytecodeHistory.Generation();
+        Map<String, byte[]> redefinedBytecode = new LinkedHashMap<>();
+
+        if (!redefinitions.isEmpty()) {
+            long redefineStart = System.nanoTime();
+            List<ClassDefinition> definitions = new ArrayList<>();
+
+            for (Map.Entry<String, Class<?>> entry : redefinitions.entrySet()) {
+                byte[] bytecode = pending.get(entry.getKey());
+                definitions.add(new ClassDefinition(entry.getValue(), bytecode));
+                redefinedBytecode.put(entry.getKey(), bytecode);
+                generation.addDefinition(entry.getValue(), previous.get(entry.getValue()));
+            }
+
+            try {
+                instrumentation.redefineClasses(definitions.toArray(new ClassDefinition[0]));
+            } catch (Exception | LinkageError e) {
+                Log.LOGGER.error("✗ Failed to redefine {} class(es)", definitions.size(), e);
+                for (String className : redefinitions.keySet()) {
+                    result.addFailure(className, e);
+                }
+                abort(result, "redefinition failed");
+                return result;
+            } finally {
+                trace.add(ReloadTrace.Stage.REDEFINE, System.nanoTime() - redefineStart);
+            }
+        }
+
+        // Phase 3: publish the new classes and carry their static state over
+        for (Map.Entry<String, StagedClass> entry : staged.entrySet()) {
+            generation.previousVersions.put(entry.getKey(), latestVersions.get(entry.getKey()));
+            generation.previousLoaders.put(entry.getKey(), classLoaders.get(entry.getKey()));
+            classLoaders.put(entry.getKey(), entry.getValue().loader);
+            latestVersions.put(entry.getKey(), entry.getValue().clazz);
+        }
+
+        long migrateStart = System.nanoTime();
+        for (StagedClass stagedClass : staged.values()) {
+            if (stagedClass.previous == null || !config.isStaticStateMigrationEnabled()) {
+                continue;
+            }
+            try {
+                StaticStateMigrator.MigrationReport report = migrator.migrate(stagedClass.previous, stagedClass.clazz);
+                result.addMigration(report);
+                Log.LOGGER.info("Migrated static state: {}", report);
+            } catch (RuntimeException | LinkageError e) {
+                // Typically the static initializer of the new version threw
+                Log.LOGGER.error("✗ Failed to initialize: {}", stagedClass.clazz.getName(), e);
+                result.addFailure(stagedClass.clazz.getName(), e);
+                trace.add(ReloadTrace.Stage.MIGRATE, System.nanoTime() - migrateStart);
+                revert(instrumentation, generation);
+                abort(result, "initialization failed");
+                return result;
+            }
+        }
+        trace.add(ReloadTrace.Stage.MIGRATE, System.nanoTime() - migrateStart);
+
+        for (PreparedClass preparedClass : transaction.classes) {
+            String className = preparedClass.className;
+            if (redefinitions.containsKey(className)) {
+                result.addReloaded(className, redefinitions.get(className), redefinitions.get(className),
+                    changes.get(className));
+                Log.LOGGER.info("✓ Redefined: {}", className);
+            } else if (staged.containsKey(className)) {
+                result.addReloaded(className, staged.get(className).previous, staged.get(className).clazz,
+                    changes.get(className));
+                Log.LOGGER.info("✓ Reloaded: {}", className);
+            }
+        }
+
+        history.record(generation, redefinedBytecode);
+        for (ClassSchema.Change change : changes.values()) {
+            changeCounts.incrementAndGet(change.ordinal());
+        }
+        if (generationLoader != null) {
+            generations.record(generationLoader, new ArrayList<>(staged.keySet()));
+        }
+        return result;
+    }
+
+    /**
+     * Revert the most recently committed batch: classes redefined in place get
+     * their previous bytecode back, and classes defined in a new classloader
+     * resolve to their previous version again. Static values written after the
+     * batch was committed are not carried back.
+     *
+     * Must be called on the thread that runs the reloaded code.
+     *
+     * @return false if there is no batch left in the history
      */
-    public Map<String, Class<?>> reloadClasses(Set<String> classNames) throws Exception {
-        Map<String, Class<?>> reloadedClasses = new HashMap<>();
-        
+    public boolean rollbackLastBatch() {
+        BytecodeHistory.Generation generation = history.pollLatest();
+
+        if (generation == null) {
+            return false;
+        }
+
+        revert(InstrumentationProvider.get(), generation);
+        Log.LOGGER.info("Rolled back reload of {} class(es): {}", generation.getClassNames().size(), generation.getClassNames());
+        return true;
+    }
+
+    /**
+     * Number of committed batches that can still be rolled back
+     */
+    public int getRollbackDepth() {
+        return history.size();
+    }
+
+    private void abort(ReloadResult result, String reason) {
+        result.setRolledBack(true);
+        Log.LOGGER.error("✗ Reload batch aborted ({}), no classes were changed", reason);
+    }
+
+    /**
+     * Undo what a batch replaced
+     */
+    private void revert(Instrumentation instrumentation, BytecodeHistory.Generation generation) {
+        for (Map.Entry<String, Class<?>> entry : generation.previousVersions.entrySet()) {
+            if (entry.getValue() != null) {
+                latestVersions.put(entry.getKey(), entry.getValue());
+                classLoaders.put(entry.getKey(), generation.previousLoaders.get(entry.getKey()));
+            } else {
+                latestVersions.remove(entry.getKey());
+                classLoaders.remove(entry.getKey());
+            }
+        }
+
+        if (generation.previousDefinitions.isEmpty()) {
+            return;
+        }
+
+        List<ClassDefinition> definitions = new ArrayList<>();
+        generation.previousDefinitions.forEach((clazz, bytecode) -> definitions.add(new ClassDefinition(clazz, bytecode)));
+
+        try {
+            instrumentation.redefineClasses(definitions.toArray(new ClassDefinition[0]));
+        } catch (Exception | LinkageError e) {
+            Log.LOGGER.error("✗ Failed to restore previous bytecode of {} class(es)", definitions.size(), e);
+        }
+    }
+
+    /**
+     * Provide the bytecode to use for the next reload of a class instead of
+     * reading it from the class path, e.g. output of the in-process compiler
+     */
+    public void stageBytecode(String className, byte[] bytecode) {
+        bytecodeSource.stage(className, bytecode);
+    }
+
+    /**
+     * Read and transform all classes of the batch in parallel
+     */
+    private Map<String, PreparedClass> prepareClasses(Set<String> classNames, Map<String, Throwable> failures,
+                                                      ReloadTrace trace) {
+        Map<String, CompletableFuture<PreparedClass>> futures = new LinkedHashMap<>();
+
         for (String className : classNames) {
+            futures.put(className, CompletableFuture.supplyAsync(() -> prepareClass(className, trace), prepareExecutor));
+        }
+
+        Map<String, PreparedClass> prepared = new LinkedHashMap<>();
+
+        for (Map.Entry<String, CompletableFuture<PreparedClass>> entry : futures.entrySet()) {
             try {
-                Class<?> reloadedClass = reloadClass(className);
-                reloadedClasses.put(className, reloadedClass);
-                MMDR.LOGGER.info("✓ Reloaded: {}", className);
-            } catch (Exception e) {
-                MMDR.LOGGER.error("✗ Failed to reload: {}", className, e);
-                throw e;
-            }
-        }
-        
-        return reloadedClasses;
-    }
-    
-    /**
-     * Reload a single class
-     */
-    private Class<?> reloadClass(String className) throws Exception {
-        // Load the class bytecode
-        byte[] bytecode = loadClassBytecode(className);
-        
-        if (bytecode == null) {
-            throw new ClassNotFoundException("Cannot find bytecode for: " + className);
-        }
-        
-        // Transform bytecode if needed
-        byte[] transformedBytecode = transformer.transform(className, bytecode);
-        
-        // Create a new classloader for this class
-        HotReloadClassLoader classLoader = new HotReloadClassLoader(
-            className,
-            transformedBytecode,
-            getClass().getClassLoader()
-        );
-        
-        // Load the class
-        Class<?> reloadedClass = classLoader.loadClass(className);
-        
-        // Store the classloader
-        classLoaders.put(className, classLoader);
-        
-        // TODO: Migrate static state from old class to new class
-        // This is the hard part - requires sophisticated state migration
-        
-        return reloadedClass;
-    }
-    
-    /**
-     * Load bytecode for a class from the file system
-     */
-    private byte[] loadClassBytecode(String className) throws IOException {
-        String resourcePath = className.replace('.', '/') + ".class";
-        
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
-            if (is == null) {
+                prepared.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                Log.LOGGER.error("✗ Failed to prepare: {}", entry.getKey(), cause);
+                failures.put(entry.getKey(), cause);
+            }
+        }
+
+        return prepared;
+    }
+
+    /**
+     * Load, transform and verify the bytecode of a class
+     */
+    private PreparedClass prepareClass(String className, ReloadTrace trace) {
+        try {
+            long start = System.nanoTime();
+
+            byte[] bytecode = bytecodeSource.read(className);
+
+            if (bytecode == null) {
+                throw new ClassNotFoundException("Cannot find bytecode for: " + className);
+            }
+
+            long read = System.nanoTime();
+            trace.add(ReloadTrace.Stage.READ, read - start);
+
+            // Transform bytecode if needed
+            byte[] transformed = transformer.transform(className, bytecode);
+            long transform = System.nanoTime();
+            trace.add(ReloadTrace.Stage.TRANSFORM, transform - read);
+
+            verify(transformed);
+            trace.add(ReloadTrace.Stage.VERIFY, System.nanoTime() - transform);
+            return new PreparedClass(className, transformed);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Check the structure and data flow of each method. Types are not resolved,
+     * so no classes are loaded off the client thread.
+     *
+     * @throws IllegalArgumentException or IllegalStateException describing the problem
+     */
+    private static void verify(byte[] bytecode) {
+        new ClassReader(bytecode).accept(new CheckClassAdapter(null, true), 0);
+    }
+
+    /**
+     * Order prepared classes so that superclasses, interfaces and outer classes
+     * within the batch are defined before the classes that depend on them.
+     */
+    private List<PreparedClass> sortForDefinition(Map<String, PreparedClass> prepared) {
+        List<PreparedClass> ordered = new ArrayList<>(prepared.size());
+        Set<String> visited = new HashSet<>();
+
+        for (PreparedClass preparedClass : prepared.values()) {
+            visitForDefinition(preparedClass, prepared, visited, ordered);
+        }
+
+        return ordered;
+    }
+
+    private void visitForDefinition(PreparedClass preparedClass, Map<String, PreparedClass> prepared,
+                                    Set<String> visited, List<PreparedClass> ordered) {
+        if (!visited.add(preparedClass.className)) {
+            return;
+        }
+
+        List<String> dependencies = new ArrayList<>(preparedClass.interfaces);
+        dependencies.add(preparedClass.superName);
+        dependencies.add(preparedClass.outerName());
+
+        for (String dependency : dependencies) {
+            PreparedClass dependencyClass = dependency != null ? prepared.get(dependency) : null;
+            if (dependencyClass != null) {
+                visitForDefinition(dependencyClass, prepared, visited, ordered);
+            }
+        }
+
+        ordered.add(preparedClass);
+    }
+
+    /**
+     * Pick the classes of the batch that can be redefined in place: loaded and
+     * with a {@link ClassSchema.Change#BODY_ONLY body-only} change. Classes that
+     * are not loaded yet are removed from {@code pending}, since their current
+     * bytecode will be used when they are first loaded. The remaining classes
+     * need a new classloader.
+     *
+     * @param changes Receives the classification of each loaded class
+     * @param previous Receives the current bytecode of classes it had to be captured for
+     */
+    private Map<String, Class<?>> selectRedefinitions(Instrumentation instrumentation, Map<String, byte[]> pending,
+                                                      Map<String, ClassSchema.Change> changes,
+                                                      Map<Class<?>, byte[]> previous) {
+        Map<String, Class<?>> loaded = findLoadedClasses(instrumentation, pending.keySet());
+        Map<String, Class<?>> redefinitions = new LinkedHashMap<>();
+
+        for (Iterator<Map.Entry<String, byte[]>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, byte[]> entry = it.next();
+            Class<?> current = loaded.get(entry.getKey());
+
+            if (current == null) {
+                Log.LOGGER.debug("Not loaded yet, nothing to reload: {}", entry.getKey());
+                it.remove();
+                continue;
+            }
+
+            ClassSchema.Change change = classifyChange(instrumentation, current, entry, previous);
+            changes.put(entry.getKey(), change);
+
+            if (change != ClassSchema.Change.BODY_ONLY) {
+                Log.LOGGER.info("{}, falling back to classloader reload: {}",
+                    change == ClassSchema.Change.MEMBER_ADDED ? "Members added" : "Schema changed", entry.getKey());
+                continue;
+            }
+
+            redefinitions.put(entry.getKey(), current);
+        }
+
+        return redefinitions;
+    }
+
+    /**
+     * Classify how new bytecode differs from the loaded class. If it differs
+     * in lambda method names only, the lambdas are renamed to match the
+     * current bytecode and the entry is updated to the renamed bytecode.
+     */
+    private ClassSchema.Change classifyChange(Instrumentation instrumentation, Class<?> current,
+                                              Map.Entry<String, byte[]> entry, Map<Class<?>, byte[]> previous) {
+        ClassSchema currentSchema;
+        try {
+            currentSchema = ClassSchema.of(current);
+        } catch (LinkageError e) {
+            Log.LOGGER.debug("Cannot inspect loaded class {}", current.getName(), e);
+            return ClassSchema.Change.SCHEMA_CHANGED;
+        }
+
+        ClassSchema newSchema = ClassSchema.of(entry.getValue());
+        if (currentSchema.isRedefinitionCompatible(newSchema) || !currentSchema.differsOnlyInLambdaMethods(newSchema)) {
+            return currentSchema.classify(newSchema);
+        }
+
+        capturePreviousBytecode(instrumentation, List.of(current), previous);
+        byte[] previousBytecode = previous.get(current);
+        if (previousBytecode == null) {
+            return currentSchema.classify(newSchema);
+        }
+
+        byte[] normalized = transformer.normalizeSynthetics(previousBytecode, entry.getValue());
+        if (normalized != entry.getValue()) {
+            entry.setValue(normalized);
+            newSchema = ClassSchema.of(normalized);
+            normalizedCount.incrementAndGet();
+            Log.LOGGER.debug("Renamed lambda methods to match the loaded version: {}", entry.getKey());
+        }
+        return currentSchema.classify(newSchema);
+    }
+
+    /**
+     * Get the bytecode the given classes are currently defined with, for rollback.
+     * Classes reloaded before are looked up in the history; others are asked from
+     * the JVM by retransforming them with a transformer that only records its input.
+     * Classes already in {@code previous} are skipped.
+     */
+    private void capturePreviousBytecode(Instrumentation instrumentation, Collection<Class<?>> classes,
+                                         Map<Class<?>, byte[]> previous) {
+        List<Class<?>> unknown = new ArrayList<>();
+
+        for (Class<?> clazz : classes) {
+            if (previous.containsKey(clazz)) {
+                continue;
+            }
+            byte[] live = history.getLiveBytecode(clazz.getName());
+            if (live != null) {
+                previous.put(clazz, live);
+            } else {
+                unknown.add(clazz);
+            }
+        }
+
+        if (unknown.isEmpty() || !instrumentation.isRetransformClassesSupported()) {
+            return;
+        }
+
+        ClassFileTransformer recorder = new ClassFileTransformer() {
+            @Override
+            public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                                    ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+                if (classBeingRedefined != null && unknown.contains(classBeingRedefined)) {
+                    previous.put(classBeingRedefined, classfileBuffer.clone());
+                }
                 return null;
             }
-            
-            return is.readAllBytes();
+        };
+
+        instrumentation.addTransformer(recorder, true);
+        try {
+            instrumentation.retransformClasses(unknown.toArray(new Class<?>[0]));
+        } catch (Exception | LinkageError e) {
+            Log.LOGGER.debug("Could not capture current bytecode of {} class(es)", unknown.size(), e);
+        } finally {
+            instrumentation.removeTransformer(recorder);
+        }
+    }
+
+    /**
+     * Find the currently loaded versions of the given classes, ignoring versions
+     * defined by earlier classloader reloads.
+     */
+    private Map<String, Class<?>> findLoadedClasses(Instrumentation instrumentation, Set<String> classNames) {
+        Map<String, Class<?>> loaded = new HashMap<>();
+
+        for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
+            if (classNames.contains(clazz.getName())
+                    && !(clazz.getClassLoader() instanceof GenerationClassLoader)
+                    && instrumentation.isModifiableClass(clazz)) {
+                loaded.put(clazz.getName(), clazz);
+            }
         }
+
+        return loaded;
     }
-    
+
     /**
-     * Custom classloader for hot-reloaded classes
+     * Define the given classes together in one new classloader generation
+     * without publishing them, so classes of the batch link to each other. If
+     * static state will be migrated, classes are rewritten so that they can
+     * receive it. Failures are added to the result.
      */
-    private static class HotReloadClassLoader extends ClassLoader {
-        private final String className;
-        private final byte[] bytecode;
-        
-        public HotReloadClassLoader(String className, byte[] bytecode, ClassLoader parent) {
-            super(parent);
-            this.className = className;
-            this.bytecode = bytecode;
+    private GenerationClassLoader defineGeneration(Map<String, byte[]> classes, Map<String, StagedClass> staged,
+                                                   ReloadResult result) {
+        Map<String, Class<?>> previousVersions = new HashMap<>();
+        Map<String, byte[]> bytecode = new ConcurrentHashMap<>();
+
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            String className = entry.getKey();
+            Class<?> previous = findPreviousVersion(className);
+            previousVersions.put(className, previous);
+
+            try {
+                bytecode.put(className, previous != null && config.isStaticStateMigrationEnabled()
+                    ? migrator.prepareBytecode(className, entry.getValue())
+                    : entry.getValue());
+            } catch (RuntimeException e) {
+                Log.LOGGER.error("✗ Failed to define: {}", className, e);
+                result.addFailure(className, e);
+            }
+        }
+
+        if (result.hasFailures()) {
+            return null;
         }
-        
-        @Override
-        protected Class<?> findClass(String name) throws ClassNotFoundException {
-            if (name.equals(className)) {
-                return defineClass(name, bytecode, 0, bytecode.length);
+
+        GenerationClassLoader loader = generations.newLoader(bytecode, latestVersions::get, getClass().getClassLoader());
+        long metaspaceBefore = ReloadGenerations.metaspaceUsed();
+
+        for (String className : classes.keySet()) {
+            try {
+                // Load the class without initializing it
+                Class<?> reloadedClass = loader.loadClass(className);
+                staged.put(className, new StagedClass(reloadedClass, loader, previousVersions.get(className)));
+            } catch (Exception | LinkageError e) {
+                Log.LOGGER.error("✗ Failed to define: {}", className, e);
+                result.addFailure(className, e);
             }
-            return super.findClass(name);
         }
+
+        long metaspaceAfter = ReloadGenerations.metaspaceUsed();
+        if (metaspaceBefore >= 0 && metaspaceAfter >= 0) {
+            loader.setMetaspaceBytes(Math.max(0, metaspaceAfter - metaspaceBefore));
+        }
+
+        return loader;
+    }
+
+    /**
+     * Find the version of a class that is currently in use, if it was ever loaded
+     */
+    private Class<?> findPreviousVersion(String className) {
+        Class<?> previous = latestVersions.get(className);
+        if (previous != null) {
+            return previous;
+        }
+
+        try {
+            return Class.forName(className, false, getClass().getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * A class defined in a new classloader during a commit, not yet published
+     */
+    private static final class StagedClass {
+        final Class<?> clazz;
+        final ClassLoader loader;
+        final Class<?> previous;
+
+        StagedClass(Class<?> clazz, ClassLoader loader, Class<?> previous) {
+            this.clazz = clazz;
+            this.loader = loader;
+            this.previous = previous;
+        }
+    }
+
+    /**
+     * Get the source reloaded bytecode is read from
+     */
+    public BytecodeSource getBytecodeSource() {
+        return bytecodeSource;
+    }
+
+    /**
+     * Get the transformer applied to every reloaded class
+     */
+    public BytecodeTransformer getTransformer() {
+        return transformer;
     }
-    
+
     /**
      * Get the classloader for a reloaded class
      */
     public ClassLoader getClassLoader(String className) {
         return classLoaders.get(className);
     }
-}
\ No newline at end of file
+
+    /**
+     * Statistics of the most recent classloader generations, oldest first
+     */
+    public List<ReloadGeneration> getGenerations() {
+        return generations.getRecent();
+    }
+
+    /**
+     * Number of classloader generations created by committed batches
+     */
+    public int getGenerationCount() {
+        return generations.getCreatedCount();
+    }
+
+    /**
+     * Number of classloader generations that have been garbage collected
+     */
+    public int getReclaimedGenerationCount() {
+        return generations.getReclaimedCount();
+    }
+
+    /**
+     * Number of loaded classes whose change was classified as {@code change}
+     * since startup, counted when their batch is committed
+     */
+    public long getChangeCount(ClassSchema.Change change) {
+        return changeCounts.get(change.ordinal());
+    }
+
+    /**
+     * Number of classes whose lambda methods had to be renamed to match the
+     * loaded version
+     */
+    public long getNormalizedClassCount() {
+        return normalizedCount.get();
+    }
+
+    /**
+     * Stop the bytecode preparation threads
+     */
+    public void shutdown() {
+        prepareExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,222 @@
+package com.mmdr.hotreload;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Structural shape of a class: supertypes, fields and method signatures.
+ *
+ * Two versions of a class with equal schemas differ only in method bodies and
+ * can be redefined in place with {@link java.lang.instrument.Instrumentation}.
+ * Any other difference requires loading the new version in a new class loader.
+ * {@link #classify} tells how far two versions are apart.
+ *
+ * The synthetic {@code lambda$...} methods javac generates for lambda bodies
+ * are part of the schema, but not of its {@link #fingerprint()}: they are
+ * private, so their renumbering never affects other classes.
+ *
+ * @author MMDR Team
+ */
+public final class ClassSchema {
+    /**
+     * How a new version of a class differs from the current one
+     */
+    public enum Change {
+        /** Only method bodies changed; the class can be redefined in place */
+        BODY_ONLY,
+        /** Fields or methods were added, nothing was removed or changed */
+        MEMBER_ADDED,
+        /** Supertypes changed or members were removed or changed */
+        SCHEMA_CHANGED
+    }
+
+    private static final int FIELD_FLAGS = Modifier.PUBLIC | Modifier.PRIVATE | Modifier.PROTECTED
+        | Modifier.STATIC | Modifier.FINAL | Modifier.VOLATILE | Modifier.TRANSIENT;
+    private static final int METHOD_FLAGS = Modifier.PUBLIC | Modifier.PRIVATE | Modifier.PROTECTED
+        | Modifier.STATIC | Modifier.FINAL | Modifier.ABSTRACT | Modifier.NATIVE;
+
+    private final String superName;
+    private final List<String> interfaces;
+    private final Set<String> fields;
+    private final Set<String> methods;
+    private final Set<String> lambdaMethods;
+
+    private ClassSchema(String superName, List<String> interfaces, Set<String> fields, Set<String> methods,
+                        Set<String> lambdaMethods) {
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.fields = fields;
+        this.methods = methods;
+        this.lambdaMethods = lambdaMethods;
+    }
+
+    /**
+     * Read the schema from class bytecode
+     */
+    public static ClassSchema of(byte[] bytecode) {
+        ClassReader reader = new ClassReader(bytecode);
+        Set<String> fields = new HashSet<>();
+        Set<String> methods = new HashSet<>();
+        Set<String> lambdaMethods = new HashSet<>();
+
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                fields.add(member(access & FIELD_FLAGS, name, descriptor));
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if (!"<clinit>".equals(name)) {
+                    String member = member(access & METHOD_FLAGS, name, descriptor);
+                    methods.add(member);
+                    if ((access & Opcodes.ACC_SYNTHETIC) != 0 && isLambdaMethod(name)) {
+                        lambdaMethods.add(member);
+                    }
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        String superName = reader.getSuperName() != null ? reader.getSuperName().replace('/', '.') : null;
+        List<String> interfaces = new ArrayList<>();
+        for (String itf : reader.getInterfaces()) {
+            interfaces.add(itf.replace('/', '.'));
+        }
+
+        return new ClassSchema(superName, interfaces, fields, methods, lambdaMethods);
+    }
+
+    /**
+     * Read the schema of a loaded class through reflection
+     *
+     * @throws LinkageError if member types of the class cannot be resolved
+     */
+    public static ClassSchema of(Class<?> clazz) {
+        Set<String> fields = new HashSet<>();
+        Set<String> methods = new HashSet<>();
+        Set<String> lambdaMethods = new HashSet<>();
+
+        for (Field field : clazz.getDeclaredFields()) {
+            fields.add(member(field.getModifiers() & FIELD_FLAGS, field.getName(), Type.getDescriptor(field.getType())));
+        }
+
+        for (Method method : clazz.getDeclaredMethods()) {
+            String member = member(method.getModifiers() & METHOD_FLAGS, method.getName(), Type.getMethodDescriptor(method));
+            methods.add(member);
+            if (method.isSynthetic() && isLambdaMethod(method.getName())) {
+                lambdaMethods.add(member);
+            }
+        }
+
+        for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+            methods.add(member(constructor.getModifiers() & METHOD_FLAGS, "<init>", Type.getConstructorDescriptor(constructor)));
+        }
+
+        // Interfaces have no superclass through reflection, but java/lang/Object in their bytecode
+        String superName = clazz.getSuperclass() != null ? clazz.getSuperclass().getName()
+            : clazz.isInterface() ? "java.lang.Object" : null;
+        List<String> interfaces = new ArrayList<>();
+        for (Class<?> itf : clazz.getInterfaces()) {
+            interfaces.add(itf.getName());
+        }
+
+        return new ClassSchema(superName, interfaces, fields, methods, lambdaMethods);
+    }
+
+    private static String member(int access, String name, String descriptor) {
+        return access + " " + name + descriptor;
+    }
+
+    /**
+     * Whether a method name follows javac's naming of lambda bodies
+     */
+    static boolean isLambdaMethod(String name) {
+        return name.startsWith("lambda$");
+    }
+
+    /**
+     * Whether a class with this schema can be redefined in place to {@code newer}
+     */
+    public boolean isRedefinitionCompatible(ClassSchema newer) {
+        return Objects.equals(superName, newer.superName)
+            && interfaces.equals(newer.interfaces)
+            && fields.equals(newer.fields)
+            && methods.equals(newer.methods);
+    }
+
+    /**
+     * Classify the difference from this version of a class to {@code newer}
+     */
+    public Change classify(ClassSchema newer) {
+        if (isRedefinitionCompatible(newer)) {
+            return Change.BODY_ONLY;
+        }
+
+        boolean onlyAdded = Objects.equals(superName, newer.superName)
+            && interfaces.equals(newer.interfaces)
+            && newer.fields.containsAll(fields)
+            && newer.methods.containsAll(methods);
+
+        return onlyAdded ? Change.MEMBER_ADDED : Change.SCHEMA_CHANGED;
+    }
+
+    /**
+     * Whether {@code newer} differs from this schema in lambda methods only,
+     * e.g. because javac renumbered them
+     */
+    public boolean differsOnlyInLambdaMethods(ClassSchema newer) {
+        return Objects.equals(superName, newer.superName)
+            && interfaces.equals(newer.interfaces)
+            && fields.equals(newer.fields)
+            && withoutLambdaMethods().equals(newer.withoutLambdaMethods());
+    }
+
+    private Set<String> withoutLambdaMethods() {
+        if (lambdaMethods.isEmpty()) {
+            return methods;
+        }
+        Set<String> result = new HashSet<>(methods);
+        result.removeAll(lambdaMethods);
+        return result;
+    }
+
+    /**
+     * 64-bit digest of the schema without lambda methods; equal schemas have
+     * equal fingerprints
+     */
+    public long fingerprint() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(superName).append('\n').append(interfaces).append('\n');
+        new TreeSet<>(fields).forEach(field -> sb.append(field).append('\n'));
+        new TreeSet<>(withoutLambdaMethods()).forEach(method -> sb.append(method).append('\n'));
+        return ContentHash.hash(sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    public String getSuperName() {
+        return superName;
+    }
+
+    public List<String> getInterfaces() {
+        return Collections.unmodifiableList(interfaces);
+    }
+
+    public Set<String> getFields() {
+        return Collections.unmodifiableSet(fields);
+    }
+
+    public Set<String> getMethods() {
+        return Collections.unmodifiableSet(methods);
+    }
+}
@@ -0,0 +1,108 @@
+package com.mmdr.hotreload;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Fast 64-bit content digest for class bytecode (XXH64).
+ *
+ * Used to tell whether a class file actually changed, independent of
+ * timestamps. Not a cryptographic hash.
+ *
+ * @author MMDR Team
+ */
+public final class ContentHash {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONG_LE =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE =
+        MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hash a whole byte array
+     */
+    public static long hash(byte[] data) {
+        return hash(data, 0, data.length);
+    }
+
+    /**
+     * Hash a range of a byte array
+     */
+    public static long hash(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int p = offset;
+        long h;
+
+        if (length >= 32) {
+            long v1 = PRIME1 + PRIME2;
+            long v2 = PRIME2;
+            long v3 = 0;
+            long v4 = -PRIME1;
+            int limit = end - 32;
+
+            do {
+                v1 = round(v1, (long) LONG_LE.get(data, p));
+                v2 = round(v2, (long) LONG_LE.get(data, p + 8));
+                v3 = round(v3, (long) LONG_LE.get(data, p + 16));
+                v4 = round(v4, (long) LONG_LE.get(data, p + 24));
+                p += 32;
+            } while (p <= limit);
+
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = PRIME5;
+        }
+
+        h += length;
+
+        while (p + 8 <= end) {
+            h ^= round(0, (long) LONG_LE.get(data, p));
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+            p += 8;
+        }
+
+        if (p + 4 <= end) {
+            h ^= ((int) INT_LE.get(data, p) & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+            p += 4;
+        }
+
+        while (p < end) {
+            h ^= (data[p] & 0xFF) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+            p++;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME1 + PRIME4;
+    }
+}
@@ -0,0 +1,321 @@
+package com.mmdr.hotreload;
+
+import com.mmdr.util.Log;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Type;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Class-level dependency graph of the watched output directories.
+ *
+ * Dependencies are read from the constant pool of each class (class
+ * references plus the types in member and method-type descriptors), so
+ * building an entry needs no full parse. Reverse edges are kept alongside,
+ * and both are updated incrementally as single classes change or disappear.
+ *
+ * For each class the fingerprint of its {@link ClassSchema} is recorded, so
+ * an update can tell whether the class changed shape or only its code.
+ *
+ * Not thread-safe; owned by the hot reload watcher thread.
+ *
+ * @author MMDR Team
+ */
+public class DependencyIndex {
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+    private final Map<String, Long> schemas = new HashMap<>();
+    private final NavigableSet<String> classes = new TreeSet<>();
+
+    /**
+     * Record the current bytecode of a class.
+     *
+     * @return true if the class is new or its schema differs from the recorded one
+     */
+    public boolean update(String className, byte[] bytecode) {
+        ClassReader reader = new ClassReader(bytecode);
+        Set<String> referenced = referencedClasses(reader);
+        referenced.remove(className);
+
+        long fingerprint = ClassSchema.of(bytecode).fingerprint();
+        Long previous = schemas.put(className, fingerprint);
+
+        setDependencies(className, referenced);
+        return previous == null || previous != fingerprint;
+    }
+
+    /**
+     * Whether the given bytecode has a different schema than the recorded version
+     * of the class, without recording it. Unknown classes count as changed.
+     */
+    public boolean isSchemaChanged(String className, byte[] bytecode) {
+        Long previous = schemas.get(className);
+        return previous == null || previous != ClassSchema.of(bytecode).fingerprint();
+    }
+
+    /**
+     * Remove a class whose class file was deleted. Edges pointing at it from
+     * other classes are kept, since those classes still reference the name.
+     */
+    public void remove(String className) {
+        setDependencies(className, Collections.emptySet());
+        dependencies.remove(className);
+        schemas.remove(className);
+        classes.remove(className);
+    }
+
+    public boolean contains(String className) {
+        return classes.contains(className);
+    }
+
+    public int size() {
+        return classes.size();
+    }
+
+    /**
+     * All indexed classes, sorted by name
+     */
+    public Set<String> getClasses() {
+        return Collections.unmodifiableSet(classes);
+    }
+
+    /**
+     * Indexed classes referenced by a class
+     */
+    public Set<String> getDependencies(String className) {
+        Set<String> result = new HashSet<>();
+        for (String dependency : dependencies.getOrDefault(className, Collections.emptySet())) {
+            if (classes.contains(dependency)) {
+                result.add(dependency);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indexed classes that reference a class
+     */
+    public Set<String> getDependents(String className) {
+        Set<String> result = new HashSet<>();
+        for (String dependent : dependents.getOrDefault(className, Collections.emptySet())) {
+            if (classes.contains(dependent)) {
+                result.add(dependent);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indexed nested classes of a class, at any depth ({@code Outer$Inner}, {@code Outer$1}, ...)
+     */
+    public Set<String> getNestedClasses(String className) {
+        return Collections.unmodifiableSet(classes.subSet(className + "$", true, className + "$\uffff", true));
+    }
+
+    /**
+     * Expand a set of changed classes into the set that has to be reloaded together.
+     *
+     * Nested classes of every changed class are always included, since they
+     * are compiled together and access each other's members. Direct dependents
+     * are included only for classes whose schema changed, since only those
+     * have to be linked again. The result is ordered so that dependencies come
+     * before the classes using them; cycles are broken arbitrarily.
+     *
+     * @param changed        Classes whose bytecode changed
+     * @param schemaChanged  Subset of {@code changed} whose schema changed
+     */
+    public Set<String> expandReloadSet(Set<String> changed, Set<String> schemaChanged) {
+        Set<String> affected = new HashSet<>(changed);
+
+        for (String className : changed) {
+            affected.addAll(getNestedClasses(className));
+        }
+
+        for (String className : schemaChanged) {
+            affected.addAll(getDependents(className));
+        }
+
+        Set<String> ordered = new LinkedHashSet<>();
+        Set<String> visiting = new HashSet<>();
+
+        for (String className : new TreeSet<>(affected)) {
+            visitInOrder(className, affected, visiting, ordered);
+        }
+
+        return ordered;
+    }
+
+    private void visitInOrder(String className, Set<String> affected, Set<String> visiting, Set<String> ordered) {
+        if (ordered.contains(className) || !visiting.add(className)) {
+            return;
+        }
+
+        for (String dependency : dependencies.getOrDefault(className, Collections.emptySet())) {
+            if (affected.contains(dependency)) {
+                visitInOrder(dependency, affected, visiting, ordered);
+            }
+        }
+
+        visiting.remove(className);
+        ordered.add(className);
+    }
+
+    private void setDependencies(String className, Set<String> referenced) {
+        Set<String> previous = dependencies.put(className, referenced);
+        classes.add(className);
+
+        if (previous != null) {
+            for (String dependency : previous) {
+                if (!referenced.contains(dependency)) {
+                    Set<String> reverse = dependents.get(dependency);
+                    if (reverse != null) {
+                        reverse.remove(className);
+                        if (reverse.isEmpty()) {
+                            dependents.remove(dependency);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (String dependency : referenced) {
+            dependents.computeIfAbsent(dependency, key -> new HashSet<>()).add(className);
+        }
+    }
+
+    /**
+     * Collect the classes referenced from the constant pool of a class
+     */
+    static Set<String> referencedClasses(ClassReader reader) {
+        Set<String> referenced = new HashSet<>();
+        char[] buffer = new char[reader.getMaxStringLength()];
+
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int offset = reader.getItem(i);
+
+            // Second slot of a long or double constant
+            if (offset == 0) {
+                continue;
+            }
+
+            switch (reader.readByte(offset - 1)) {
+                case CONSTANT_CLASS:
+                    addInternalName(referenced, reader.readUTF8(offset, buffer));
+                    break;
+                case CONSTANT_NAME_AND_TYPE:
+                    addDescriptor(referenced, reader.readUTF8(offset + 2, buffer));
+                    break;
+                case CONSTANT_METHOD_TYPE:
+                    addDescriptor(referenced, reader.readUTF8(offset, buffer));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return referenced;
+    }
+
+    private static void addInternalName(Set<String> referenced, String internalName) {
+        if (internalName.startsWith("[")) {
+            addType(referenced, Type.getType(internalName));
+        } else {
+            referenced.add(internalName.replace('/', '.'));
+        }
+    }
+
+    private static void addDescriptor(Set<String> referenced, String descriptor) {
+        if (descriptor.startsWith("(")) {
+            for (Type argument : Type.getArgumentTypes(descriptor)) {
+                addType(referenced, argument);
+            }
+            addType(referenced, Type.getReturnType(descriptor));
+        } else {
+            addType(referenced, Type.getType(descriptor));
+        }
+    }
+
+    private static void addType(Set<String> referenced, Type type) {
+        Type element = type.getSort() == Type.ARRAY ? type.getElementType() : type;
+        if (element.getSort() == Type.OBJECT) {
+            referenced.add(element.getClassName());
+        }
+    }
+
+    /**
+     * Save the index to a file
+     */
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(classes.size());
+
+            for (String className : classes) {
+                Set<String> references = dependencies.get(className);
+                out.writeUTF(className);
+                out.writeLong(schemas.get(className));
+                out.writeInt(references.size());
+                for (String reference : references) {
+                    out.writeUTF(reference);
+                }
+            }
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Load an index previously written by {@link #save(Path)}.
+     * Returns an empty index if the file is missing or unreadable.
+     */
+    public static DependencyIndex load(Path file) {
+        DependencyIndex index = new DependencyIndex();
+
+        if (!Files.exists(file)) {
+            return index;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                Log.LOGGER.info("Ignoring dependency index with old format: {}", file);
+                return index;
+            }
+
+            int count = in.readInt();
+
+            for (int i = 0; i < count; i++) {
+                String className = in.readUTF();
+                long fingerprint = in.readLong();
+                int referenceCount = in.readInt();
+                Set<String> references = new HashSet<>(referenceCount * 2);
+
+                for (int j = 0; j < referenceCount; j++) {
+                    references.add(in.readUTF());
+                }
+
+                index.schemas.put(className, fingerprint);
+                index.setDependencies(className, references);
+            }
+
+            return index;
+        } catch (IOException e) {
+            Log.LOGGER.warn("Failed to load dependency index from {}, rebuilding", file, e);
+            return new DependencyIndex();
+        }
+    }
+}
@@ -1,37 +1,145 @@
 package com.mmdr.hotreload;
 
-import com.mmdr.MMDR;
+import com.mmdr.util.Log;
+import com.mmdr.util.PackageFilter;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Watches file system for changes using Java NIO WatchService.
- * 
+ *
+ * Directories are registered recursively, and package directories created
+ * while watching (e.g. by a Gradle compile) are registered as they appear.
+ * Events are coalesced per path so that one compile produces one changeset.
+ *
+ * A changeset is complete once no event has arrived for a quiet period. The
+ * quiet period adapts to the gaps between events seen in recent changesets,
+ * so a single saved file is reported after a few milliseconds while a slow
+ * multi-file compile still ends up in one changeset. It never exceeds the
+ * coalesce window.
+ *
+ * A {@link PackageFilter} prunes excluded package directories before they
+ * are registered or listed, and drops events for files in excluded packages.
+ * When the filter changes, the roots are walked again.
+ *
  * @author MMDR Team
  */
 public class FileWatcher {
+    /** Default upper bound of the quiet period before a batch of changes is considered complete */
+    public static final long DEFAULT_COALESCE_WINDOW_MS = 150;
+    /** Shortest quiet period, enough for the writes of a single class file to settle */
+    static final long MIN_QUIET_MS = 20;
+
     private final WatchService watchService;
     private final Map<WatchKey, Path> watchKeys = new HashMap<>();
-    
+    private final List<Path> roots = new ArrayList<>();
+    private final Supplier<PackageFilter> filterSupplier;
+    private PackageFilter filter;
+    private int prunedDirectories;
+    private final long coalesceWindowMs;
+    private volatile long quietMs;
+    private long lastEventNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+
+    private final Object wakeupLock = new Object();
+    private Thread waitingThread;
+    private boolean wakeupPending;
+
     public FileWatcher(List<Path> pathsToWatch) {
+        this(pathsToWatch, DEFAULT_COALESCE_WINDOW_MS);
+    }
+
+    public FileWatcher(List<Path> pathsToWatch, long coalesceWindowMs) {
+        this(pathsToWatch, coalesceWindowMs, () -> PackageFilter.ALLOW_ALL);
+    }
+
+    /**
+     * @param filterSupplier Current package filter, checked for changes before each changeset
+     */
+    public FileWatcher(List<Path> pathsToWatch, long coalesceWindowMs, Supplier<PackageFilter> filterSupplier) {
+        this.coalesceWindowMs = Math.max(0, coalesceWindowMs);
+        this.quietMs = clampQuiet(MIN_QUIET_MS);
+        this.filterSupplier = filterSupplier;
+        this.filter = filterSupplier.get();
+
         try {
             this.watchService = FileSystems.getDefault().newWatchService();
-            
+
             for (Path path : pathsToWatch) {
                 if (Files.exists(path)) {
-                    registerPath(path);
+                    roots.add(path);
+                    registerRecursive(path);
                 } else {
-                    MMDR.LOGGER.warn("Watch path does not exist: {}", path);
+                    Log.LOGGER.warn("Watch path does not exist: {}", path);
                 }
             }
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize file watcher", e);
         }
     }
-    
+
+    /**
+     * Register a directory and all of its subdirectories that the filter does not exclude
+     */
+    private void registerRecursive(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!filter.visitsDirectory(root.relativize(dir))) {
+                    prunedDirectories++;
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                registerPath(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Re-register the roots if the package filter changed since they were walked
+     */
+    private void refreshFilter() {
+        PackageFilter current = filterSupplier.get();
+        if (current == filter) {
+            return;
+        }
+
+        filter = current;
+        prunedDirectories = 0;
+
+        for (WatchKey key : watchKeys.keySet()) {
+            key.cancel();
+        }
+        watchKeys.clear();
+
+        for (Path root : roots) {
+            try {
+                registerRecursive(root);
+            } catch (IOException e) {
+                Log.LOGGER.warn("Failed to watch {} after the package filter changed", root, e);
+            }
+        }
+
+        Log.LOGGER.info("Package filter changed, watching {} director(ies), {} pruned",
+            watchKeys.size(), prunedDirectories);
+    }
+
+    /**
+     * Get the watched root a registered directory belongs to
+     */
+    private Path rootOf(Path dir) {
+        for (Path root : roots) {
+            if (dir.startsWith(root)) {
+                return root;
+            }
+        }
+        return dir;
+    }
+
     /**
      * Register a path for watching
      */
@@ -42,53 +150,240 @@ public class FileWatcher {
             StandardWatchEventKinds.ENTRY_MODIFY,
             StandardWatchEventKinds.ENTRY_DELETE
         );
-        
+
         watchKeys.put(key, path);
-        MMDR.LOGGER.debug("Watching: {}", path);
+        Log.LOGGER.debug("Watching: {}", path);
     }
-    
+
     /**
-     * Poll for file changes
-     * 
+     * Wait for the next changeset.
+     *
+     * Blocks without polling until the first event arrives, then keeps
+     * collecting events until the quiet period passes without one. Each path
+     * is reported once per changeset, in the order it was first seen.
+     *
+     * @return Changed file paths; empty if woken up by {@link #wakeup()}
+     */
+    public List<Path> take() throws InterruptedException {
+        refreshFilter();
+        WatchKey key = awaitKey();
+        return key != null ? collectChanges(key) : new ArrayList<>();
+    }
+
+    /**
+     * Poll for file changes.
+     *
+     * Waits up to {@code timeoutMs} for the first event, then collects the
+     * changeset like {@link #take()}.
+     *
      * @param timeoutMs Timeout in milliseconds
      * @return List of changed file paths
      */
     public List<Path> pollChanges(long timeoutMs) throws InterruptedException {
-        List<Path> changedPaths = new ArrayList<>();
-        
+        refreshFilter();
         WatchKey key = watchService.poll(timeoutMs, TimeUnit.MILLISECONDS);
-        
-        if (key == null) {
-            return changedPaths;
+        return key != null ? collectChanges(key) : new ArrayList<>();
+    }
+
+    /**
+     * Make a thread blocked in {@link #take()} return an empty changeset, e.g.
+     * because work was queued that does not come from a file change. If no
+     * thread is waiting, the next call returns immediately.
+     */
+    public void wakeup() {
+        synchronized (wakeupLock) {
+            wakeupPending = true;
+            if (waitingThread != null) {
+                waitingThread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Block for the next signalled key
+     *
+     * @return null if woken up
+     */
+    private WatchKey awaitKey() throws InterruptedException {
+        synchronized (wakeupLock) {
+            if (wakeupPending) {
+                wakeupPending = false;
+                return null;
+            }
+            waitingThread = Thread.currentThread();
+        }
+
+        try {
+            return watchService.take();
+        } catch (InterruptedException e) {
+            synchronized (wakeupLock) {
+                if (!wakeupPending) {
+                    throw e;
+                }
+                wakeupPending = false;
+                return null;
+            }
+        } finally {
+            synchronized (wakeupLock) {
+                waitingThread = null;
+                // A wakeup that raced with a returned key is served by this changeset
+                if (wakeupPending) {
+                    wakeupPending = false;
+                    Thread.interrupted();
+                }
+            }
         }
-        
+    }
+
+    /**
+     * Collect events starting with a signalled key until the quiet period passes
+     * without new events, then adapt the quiet period to the gaps seen
+     */
+    private List<Path> collectChanges(WatchKey key) throws InterruptedException {
+        Set<Path> changedPaths = new LinkedHashSet<>();
+        drainKey(key, changedPaths);
+        long lastEvent = System.nanoTime();
+
+        long batchQuietMs = quietMs;
+        long maxGapNanos = 0;
+
+        // Starting just after the previous changeset ended means its quiet period cut a burst short
+        long sincePreviousMs = TimeUnit.NANOSECONDS.toMillis(lastEvent - lastEventNanos);
+        if (sincePreviousMs < 2 * quietMs) {
+            batchQuietMs = clampQuiet(sincePreviousMs + MIN_QUIET_MS);
+        }
+
+        while (true) {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(batchQuietMs) - (System.nanoTime() - lastEvent);
+
+            if (remainingNanos <= 0) {
+                break;
+            }
+
+            key = watchService.poll(remainingNanos, TimeUnit.NANOSECONDS);
+
+            if (key == null) {
+                break;
+            }
+
+            if (drainKey(key, changedPaths)) {
+                long now = System.nanoTime();
+                maxGapNanos = Math.max(maxGapNanos, now - lastEvent);
+                lastEvent = now;
+                // Wait at least twice the longest gap so far before calling the changeset complete
+                batchQuietMs = clampQuiet(Math.max(batchQuietMs, 2 * TimeUnit.NANOSECONDS.toMillis(maxGapNanos)));
+            }
+        }
+
+        lastEventNanos = lastEvent;
+
+        // Move halfway towards what this changeset needed, so single slow builds do not stick
+        quietMs = clampQuiet((quietMs + 2 * TimeUnit.NANOSECONDS.toMillis(maxGapNanos)) / 2);
+
+        return new ArrayList<>(changedPaths);
+    }
+
+    private long clampQuiet(long ms) {
+        return Math.min(Math.max(ms, MIN_QUIET_MS), coalesceWindowMs);
+    }
+
+    /**
+     * Current quiet period in milliseconds
+     */
+    public long getQuietPeriodMs() {
+        return quietMs;
+    }
+
+    /**
+     * Collect events from a signalled key, registering newly created directories.
+     *
+     * @return true if at least one path was reported
+     */
+    private boolean drainKey(WatchKey key, Set<Path> changedPaths) {
         Path dir = watchKeys.get(key);
-        
+
         if (dir == null) {
             key.reset();
-            return changedPaths;
+            return false;
         }
-        
+
+        Path root = rootOf(dir);
+        boolean changed = false;
+
         for (WatchEvent<?> event : key.pollEvents()) {
             WatchEvent.Kind<?> kind = event.kind();
-            
+
             if (kind == StandardWatchEventKinds.OVERFLOW) {
+                Log.LOGGER.warn("File watcher overflowed in {}, some changes may be missed", dir);
                 continue;
             }
-            
+
             @SuppressWarnings("unchecked")
             WatchEvent<Path> ev = (WatchEvent<Path>) event;
             Path filename = ev.context();
             Path fullPath = dir.resolve(filename);
-            
-            changedPaths.add(fullPath);
+
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(fullPath)) {
+                registerNewDirectory(root, fullPath, changedPaths);
+            } else if (filter.includesFile(root.relativize(fullPath))) {
+                changedPaths.add(fullPath);
+            } else {
+                continue;
+            }
+            changed = true;
         }
-        
-        key.reset();
-        
-        return changedPaths;
+
+        if (!key.reset()) {
+            watchKeys.remove(key);
+        }
+
+        return changed;
     }
-    
+
+    /**
+     * Register a directory created after watching started. Files written into it
+     * before registration completed are reported as changes so they are not lost.
+     */
+    private void registerNewDirectory(Path root, Path dir, Set<Path> changedPaths) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path subDir, BasicFileAttributes attrs) throws IOException {
+                    if (!filter.visitsDirectory(root.relativize(subDir))) {
+                        prunedDirectories++;
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    registerPath(subDir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (filter.includesFile(root.relativize(file))) {
+                        changedPaths.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            Log.LOGGER.warn("Failed to watch new directory: {}", dir, e);
+        }
+    }
+
+    /**
+     * Number of directories currently being watched
+     */
+    public int getWatchedDirectoryCount() {
+        return watchKeys.size();
+    }
+
+    /**
+     * Number of directories skipped because the package filter excludes everything below them
+     */
+    public int getPrunedDirectoryCount() {
+        return prunedDirectories;
+    }
+
     /**
      * Close the file watcher
      */
@@ -96,7 +391,7 @@ public class FileWatcher {
         try {
             watchService.close();
         } catch (IOException e) {
-            MMDR.LOGGER.error("Error closing file watcher", e);
+            Log.LOGGER.error("Error closing file watcher", e);
         }
     }
-}
\ No newline at end of file
+}
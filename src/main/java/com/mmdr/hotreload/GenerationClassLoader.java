@@ -0,0 +1,89 @@
+package com.mmdr.hotreload;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Classloader for the classes of one reload batch that could not be redefined
+ * in place.
+ *
+ * Classes of the batch are defined child-first, so they link to each other.
+ * Any other class resolves to its latest reloaded version if there is one,
+ * and to the parent otherwise. The loader does not reference other
+ * generations, so it becomes collectable, together with its classes and their
+ * metaspace, once none of its classes is the latest version or in use anymore.
+ *
+ * @author MMDR Team
+ */
+final class GenerationClassLoader extends ClassLoader {
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final int generation;
+    private final Map<String, byte[]> bytecode;
+    private final Function<String, Class<?>> latestVersions;
+    private final long bytecodeBytes;
+    private long metaspaceBytes = -1;
+
+    /**
+     * @param bytecode       Classes of the batch; entries are removed as they are defined
+     * @param latestVersions Lookup of the latest reloaded version of a class, or null
+     */
+    GenerationClassLoader(int generation, Map<String, byte[]> bytecode,
+                          Function<String, Class<?>> latestVersions, ClassLoader parent) {
+        super("mmdr-generation-" + generation, parent);
+        this.generation = generation;
+        this.bytecode = bytecode;
+        this.latestVersions = latestVersions;
+
+        long total = 0;
+        for (byte[] classBytes : bytecode.values()) {
+            total += classBytes.length;
+        }
+        this.bytecodeBytes = total;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+
+            if (loaded == null) {
+                byte[] classBytes = bytecode.remove(name);
+                if (classBytes != null) {
+                    loaded = defineClass(name, classBytes, 0, classBytes.length);
+                }
+            }
+
+            if (loaded == null) {
+                loaded = latestVersions.apply(name);
+            }
+
+            if (loaded == null) {
+                return super.loadClass(name, resolve);
+            }
+
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    long getBytecodeBytes() {
+        return bytecodeBytes;
+    }
+
+    long getMetaspaceBytes() {
+        return metaspaceBytes;
+    }
+
+    void setMetaspaceBytes(long metaspaceBytes) {
+        this.metaspaceBytes = metaspaceBytes;
+    }
+}
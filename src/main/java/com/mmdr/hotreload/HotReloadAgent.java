@@ -0,0 +1,55 @@
+package com.mmdr.hotreload;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Method;
+
+/**
+ * Java agent entry point used to obtain an {@link Instrumentation} instance.
+ *
+ * This class is copied into a small agent jar by {@link InstrumentationProvider}
+ * and loaded by the system class loader, so it must not depend on any other
+ * MMDR or library class.
+ *
+ * It can also be run as a main class to attach the agent to another JVM,
+ * which is used when the running JVM does not allow attaching to itself.
+ *
+ * @author MMDR Team
+ */
+public final class HotReloadAgent {
+    private static volatile Instrumentation instrumentation;
+
+    private HotReloadAgent() {
+    }
+
+    public static void premain(String args, Instrumentation inst) {
+        instrumentation = inst;
+    }
+
+    public static void agentmain(String args, Instrumentation inst) {
+        instrumentation = inst;
+    }
+
+    public static Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Attach the agent jar to a JVM: {@code HotReloadAgent <pid> <agentJar>}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: HotReloadAgent <pid> <agentJar>");
+            System.exit(2);
+        }
+
+        Class<?> vmClass = Class.forName("com.sun.tools.attach.VirtualMachine");
+        Object vm = vmClass.getMethod("attach", String.class).invoke(null, args[0]);
+
+        try {
+            Method loadAgent = vmClass.getMethod("loadAgent", String.class);
+            loadAgent.invoke(vm, args[1]);
+        } finally {
+            vmClass.getMethod("detach").invoke(vm);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.mmdr.hotreload;
 
-import com.mmdr.MMDR;
+import com.mmdr.profiler.ProfilingPass;
+import com.mmdr.util.Log;
 import com.mmdr.util.MMDRConfig;
+import com.mmdr.util.PackageFilter;
 import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -21,22 +24,77 @@ import java.util.concurrent.*;
  * - State preservation during reload
  * - Rollback support on reload failure
  * 
+ * Reload batches are prepared on the watcher thread as soon as a changeset
+ * settles and handed to the client thread through a lock-free queue. They are
+ * committed from {@link #tick()}, so game code never observes a batch that is
+ * only partly applied. The changes of a batch that is discarded or rolled
+ * back are retried with the next batch, even if their bytecode does not
+ * change again.
+ * 
+ * This is the production {@link ReloadEngine}.
+ * 
  * @author MMDR Team
  */
-public class HotReloadManager {
+public class HotReloadManager implements ReloadEngine {
+    private static final String HASH_INDEX_FILE = "class-hashes.bin";
+    private static final String DEPENDENCY_INDEX_FILE = "class-dependencies.bin";
+    
     private final MMDRConfig config;
     private final FileWatcher fileWatcher;
     private final ClassReloader classReloader;
     private final ExecutorService watcherThread;
+    private final Executor commitExecutor;
+    
+    private final List<Path> classOutputPaths;
+    private final List<Path> watchPaths;
+    private final List<Path> sourcePaths;
+    private final Path hashIndexFile;
+    private final Path dependencyIndexFile;
+    private ClassHashIndex hashIndex;
+    private DependencyIndex dependencyIndex;
+    private IncrementalCompiler compiler;
     
     private volatile boolean running = false;
-    private final Map<String, Long> lastModified = new ConcurrentHashMap<>();
+    private volatile long reloadedClassCount = 0L;
     private final Set<String> pendingReloads = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingSchemaChanges = ConcurrentHashMap.newKeySet();
+    private final Set<Path> pendingSources = new LinkedHashSet<>();
+    private final Queue<PendingBatch> pendingCommits = new ConcurrentLinkedQueue<>();
+    // Changes of batches that were discarded or rolled back
+    private final Set<String> unappliedReloads = ConcurrentHashMap.newKeySet();
+    private final Set<String> unappliedSchemaChanges = ConcurrentHashMap.newKeySet();
+    // Bytecode compiled in memory, staged again when its batch is not applied
+    private final Map<String, byte[]> compiledBytecode = new ConcurrentHashMap<>();
+    private final ReloadEventBus eventBus = new ReloadEventBus();
+    private final ReloadTimeline timeline;
     
+    /**
+     * Create the engine for the running game. Batches are committed from
+     * {@link #tick()}, which the game calls between ticks.
+     */
     public HotReloadManager(MMDRConfig config) {
+        this(config, ReloadPaths.forGameDir(FabricLoader.getInstance().getGameDir(), config), null);
+    }
+    
+    /**
+     * Create a headless engine configured by explicit paths, e.g. for a plain
+     * JVM test runner. Batching, instrumentation and rollback work as in the game.
+     *
+     * @param commitExecutor Executor each prepared batch is committed on; must
+     *                       run tasks one at a time. If null, batches wait for {@link #tick()}.
+     */
+    public HotReloadManager(MMDRConfig config, ReloadPaths paths, Executor commitExecutor) {
         this.config = config;
-        this.fileWatcher = new FileWatcher(getWatchPaths());
-        this.classReloader = new ClassReloader();
+        this.commitExecutor = commitExecutor;
+        this.classOutputPaths = paths.getClassOutputPaths();
+        this.sourcePaths = paths.getSourcePaths();
+        this.watchPaths = getWatchPaths();
+        this.hashIndexFile = paths.getCacheDirectory().resolve(HASH_INDEX_FILE);
+        this.dependencyIndexFile = paths.getCacheDirectory().resolve(DEPENDENCY_INDEX_FILE);
+        this.fileWatcher = new FileWatcher(watchPaths, config.getFileWatchInterval(), config::getPackageFilter);
+        this.classReloader = new ClassReloader(config, new BytecodeSource(classOutputPaths));
+        this.classReloader.getTransformer().addPass(new ProfilingPass(config));
+        this.timeline = new ReloadTimeline(config.getReloadTimelineSize());
         this.watcherThread = Executors.newSingleThreadExecutor(r -> {
             Thread t = new Thread(r, "MMDR-HotReload-Watcher");
             t.setDaemon(true);
@@ -47,29 +105,31 @@ public class HotReloadManager {
     /**
      * Start the hot reload system
      */
+    @Override
     public void start() {
         if (running) {
-            MMDR.LOGGER.warn("Hot reload already running!");
+            Log.LOGGER.warn("Hot reload already running!");
             return;
         }
         
         running = true;
-        MMDR.LOGGER.info("Starting hot reload system...");
+        Log.LOGGER.info("Starting hot reload system...");
         
         watcherThread.submit(() -> {
             try {
                 watchForChanges();
             } catch (Exception e) {
-                MMDR.LOGGER.error("Hot reload watcher encountered an error", e);
+                Log.LOGGER.error("Hot reload watcher encountered an error", e);
             }
         });
         
-        MMDR.LOGGER.info("Hot reload system started successfully");
+        Log.LOGGER.info("Hot reload system started successfully");
     }
     
     /**
      * Stop the hot reload system
      */
+    @Override
     public void stop() {
         if (!running) {
             return;
@@ -78,19 +138,45 @@ public class HotReloadManager {
         running = false;
         watcherThread.shutdown();
         fileWatcher.close();
-        MMDR.LOGGER.info("Hot reload system stopped");
+        classReloader.shutdown();
+        Log.LOGGER.info("Hot reload system stopped");
     }
     
     /**
      * Watch for file changes and trigger reloads
      */
     private void watchForChanges() {
-        MMDR.LOGGER.info("Watching for file changes in: {}", getWatchPaths());
+        Log.LOGGER.info("Watching for file changes in: {}", watchPaths);
+        
+        indexWatchedClasses();
         
+        try {
+            runWatchLoop();
+        } finally {
+            saveIndexes();
+            if (compiler != null) {
+                compiler.close();
+            }
+        }
+    }
+    
+    /**
+     * Wait for changesets until the system is stopped. The thread blocks while
+     * nothing changes and is woken up for manually queued reloads.
+     */
+    private void runWatchLoop() {
         while (running) {
             try {
-                List<Path> changedFiles = fileWatcher.pollChanges(1000);
+                List<Path> changedFiles = fileWatcher.take();
                 
+                ReloadTrace trace = new ReloadTrace();
+                
+                if (!changedFiles.isEmpty()) {
+                    Log.LOGGER.debug("Received changeset of {} file(s)", changedFiles.size());
+                    trace.add(ReloadTrace.Stage.DETECT, detectionLatency(changedFiles));
+                }
+                
+                long indexStart = System.nanoTime();
                 for (Path file : changedFiles) {
                     if (file.toString().endsWith(".class")) {
                         handleClassChange(file);
@@ -98,23 +184,138 @@ public class HotReloadManager {
                         handleSourceChange(file);
                     }
                 }
+                trace.add(ReloadTrace.Stage.INDEX, System.nanoTime() - indexStart);
+                
+                if (!pendingSources.isEmpty()) {
+                    long compileStart = System.nanoTime();
+                    compilePendingSources();
+                    trace.add(ReloadTrace.Stage.COMPILE, System.nanoTime() - compileStart);
+                }
                 
-                // Process pending reloads
+                // Process the whole changeset as one reload batch
                 if (!pendingReloads.isEmpty()) {
-                    processPendingReloads();
+                    processPendingReloads(trace);
                 }
                 
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 break;
+            } catch (ClosedWatchServiceException e) {
+                // Closed by stop()
+                break;
             } catch (Exception e) {
-                MMDR.LOGGER.error("Error watching for changes", e);
+                Log.LOGGER.error("Error watching for changes", e);
+            }
+        }
+    }
+    
+    /**
+     * Time from the oldest write in a changeset to now, i.e. how long the
+     * watcher took to deliver it. Deleted files are ignored.
+     */
+    private static long detectionLatency(List<Path> changedFiles) {
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        
+        for (Path file : changedFiles) {
+            try {
+                oldest = Math.min(oldest, Files.getLastModifiedTime(file).toMillis());
+            } catch (IOException e) {
+                // Deleted since the event
+            }
+        }
+        
+        return TimeUnit.MILLISECONDS.toNanos(now - oldest);
+    }
+    
+    /**
+     * Build the content-hash and dependency indexes of all class files currently
+     * in the watched directories. Files whose size and timestamp match the
+     * persisted indexes are not re-read, and directories of excluded packages
+     * are not listed.
+     */
+    private void indexWatchedClasses() {
+        hashIndex = ClassHashIndex.load(hashIndexFile);
+        dependencyIndex = DependencyIndex.load(dependencyIndexFile);
+        PackageFilter filter = config.getPackageFilter();
+        Set<String> present = new HashSet<>();
+        int[] hashed = new int[1];
+        int[] reused = new int[1];
+        
+        for (Path root : watchPaths) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        return filter.visitsDirectory(root.relativize(dir))
+                            ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+                    }
+                    
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        if (!file.toString().endsWith(".class") || !filter.includesFile(root.relativize(file))) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        
+                        String className = getClassNameFromPath(file);
+                        long stamp = ClassHashIndex.stampOf(attrs.size(), attrs.lastModifiedTime().toMillis());
+                        present.add(className);
+                        
+                        if (hashIndex.hasStamp(className, stamp) && dependencyIndex.contains(className)) {
+                            reused[0]++;
+                        } else {
+                            byte[] bytecode = Files.readAllBytes(file);
+                            hashIndex.update(className, ContentHash.hash(bytecode), stamp);
+                            dependencyIndex.update(className, bytecode);
+                            hashed[0]++;
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                Log.LOGGER.warn("Failed to index class files in {}", root, e);
             }
         }
+        
+        // Forget classes deleted while the game was not running
+        for (String className : new ArrayList<>(dependencyIndex.getClasses())) {
+            if (!present.contains(className)) {
+                dependencyIndex.remove(className);
+                hashIndex.remove(className);
+            }
+        }
+        
+        Log.LOGGER.info("Indexed {} class file(s) ({} read, {} from cache)", present.size(), hashed[0], reused[0]);
     }
     
     /**
-     * Handle a changed class file
+     * Persist the content-hash and dependency indexes for the next session
+     */
+    private void saveIndexes() {
+        if (hashIndex == null) {
+            return;
+        }
+        
+        try {
+            hashIndex.save(hashIndexFile);
+        } catch (IOException e) {
+            Log.LOGGER.warn("Failed to save class hash index to {}", hashIndexFile, e);
+        }
+        
+        try {
+            dependencyIndex.save(dependencyIndexFile);
+        } catch (IOException e) {
+            Log.LOGGER.warn("Failed to save dependency index to {}", dependencyIndexFile, e);
+        }
+    }
+    
+    /**
+     * Handle a changed class file. Classes whose bytecode is identical to the
+     * indexed version (e.g. touched or recompiled without changes) are skipped.
      */
     private void handleClassChange(Path classFile) {
         String className = getClassNameFromPath(classFile);
@@ -123,14 +324,48 @@ public class HotReloadManager {
             return;
         }
         
-        long lastMod = lastModified.getOrDefault(className, 0L);
-        long currentMod = classFile.toFile().lastModified();
+        // The build output is newer than anything compiled in memory
+        compiledBytecode.remove(className);
+        if (compiler != null) {
+            compiler.invalidate(className);
+        }
         
-        if (currentMod > lastMod) {
-            MMDR.LOGGER.info("Detected change in class: {}", className);
-            pendingReloads.add(className);
-            lastModified.put(className, currentMod);
+        if (!Files.exists(classFile)) {
+            hashIndex.remove(className);
+            dependencyIndex.remove(className);
+            unappliedReloads.remove(className);
+            unappliedSchemaChanges.remove(className);
+            return;
         }
+        
+        try {
+            byte[] bytecode = BytecodeSource.readFile(classFile);
+            if (bytecode == null) {
+                return;
+            }
+            
+            long hash = ContentHash.hash(bytecode);
+            long stamp = ClassHashIndex.stampOf(bytecode.length, Files.getLastModifiedTime(classFile).toMillis());
+            
+            if (!hashIndex.update(className, hash, stamp) && !unappliedReloads.contains(className)) {
+                Log.LOGGER.debug("Bytecode unchanged, skipping: {}", className);
+                return;
+            }
+            
+            if (dependencyIndex.update(className, bytecode)) {
+                pendingSchemaChanges.add(className);
+            }
+            
+            // Prepare reuses these bytes instead of reading the file again
+            classReloader.getBytecodeSource().offer(className, bytecode, hash);
+        } catch (IOException e) {
+            // The compiler may still be writing the file; the next event will pick it up
+            Log.LOGGER.debug("Could not read changed class file: {}", classFile, e);
+            return;
+        }
+        
+        Log.LOGGER.info("Detected change in class: {}", className);
+        pendingReloads.add(className);
     }
     
     /**
@@ -141,63 +376,276 @@ public class HotReloadManager {
             return;
         }
         
-        MMDR.LOGGER.info("Detected change in source: {}", sourceFile);
-        // TODO: Trigger incremental compilation
+        Log.LOGGER.info("Detected change in source: {}", sourceFile);
+        pendingSources.add(sourceFile);
     }
     
     /**
-     * Process all pending class reloads
+     * Compile all changed source files in process and queue the resulting
+     * classes for reload without writing them to disk
      */
-    private void processPendingReloads() {
-        Set<String> toReload = new HashSet<>(pendingReloads);
-        pendingReloads.clear();
+    private void compilePendingSources() {
+        List<Path> sources = new ArrayList<>(pendingSources);
+        pendingSources.clear();
         
-        MMDR.LOGGER.info("Reloading {} classe(s)...", toReload.size());
+        if (compiler == null) {
+            compiler = IncrementalCompiler.create(sourcePaths, getCompileClassPath());
+            if (compiler == null) {
+                return;
+            }
+        }
         
-        try {
-            Map<String, Class<?>> reloadedClasses = classReloader.reloadClasses(toReload);
-            
-            MMDR.LOGGER.info("Successfully reloaded {} classe(s)", reloadedClasses.size());
-            
-            // Notify listeners
-            notifyReloadListeners(reloadedClasses);
-            
-        } catch (Exception e) {
-            MMDR.LOGGER.error("Failed to reload classes", e);
-            // TODO: Implement rollback mechanism
+        long start = System.nanoTime();
+        IncrementalCompiler.CompilationResult result = compiler.compile(sources, dependencyIndex);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        if (!result.isSuccess()) {
+            Log.LOGGER.error("Compilation failed with {} error(s), retrying with the next change:",
+                result.getErrors().size());
+            for (String error : result.getErrors()) {
+                Log.LOGGER.error("  {}", error);
+            }
+            // None of the changes were applied, so they are compiled again together with the fix
+            pendingSources.addAll(sources);
+            return;
+        }
+        
+        Log.LOGGER.info("Compiled {} source file(s) into {} classe(s) in {} ms",
+            result.getCompiledSources(), result.getClasses().size(), elapsedMs);
+        
+        for (Map.Entry<String, byte[]> entry : result.getClasses().entrySet()) {
+            handleCompiledClass(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Queue a class compiled in memory for reload, unless its bytecode is unchanged
+     */
+    private void handleCompiledClass(String className, byte[] bytecode) {
+        // No file stamp, so the class file is re-read on the next startup
+        if (!hashIndex.update(className, ContentHash.hash(bytecode), 0L) && !unappliedReloads.contains(className)) {
+            Log.LOGGER.debug("Bytecode unchanged, skipping: {}", className);
+            return;
+        }
+        
+        if (dependencyIndex.update(className, bytecode)) {
+            pendingSchemaChanges.add(className);
+        }
+        
+        compiledBytecode.put(className, bytecode);
+        classReloader.stageBytecode(className, bytecode);
+        pendingReloads.add(className);
+    }
+    
+    /**
+     * Prepare all pending class reloads, together with the nested classes of
+     * changed classes and the dependents of classes whose schema changed, and
+     * queue the batch for commit on the client thread
+     */
+    private void processPendingReloads(ReloadTrace trace) {
+        Set<String> changed = new HashSet<>(pendingReloads);
+        Set<String> schemaChanged = new HashSet<>(pendingSchemaChanges);
+        pendingReloads.removeAll(changed);
+        pendingSchemaChanges.removeAll(schemaChanged);
+        
+        // The indexes already hold the bytecode of unapplied changes, so they are only found here
+        drainInto(unappliedReloads, changed);
+        drainInto(unappliedSchemaChanges, schemaChanged);
+        
+        Set<String> toReload = dependencyIndex.expandReloadSet(changed, schemaChanged);
+        
+        if (toReload.size() > changed.size()) {
+            Log.LOGGER.debug("Reload set expanded from {} to {} classe(s) by dependencies", changed.size(), toReload.size());
+        }
+        
+        Log.LOGGER.info("Preparing {} classe(s) for reload...", toReload.size());
+        
+        ReloadTransaction transaction = classReloader.prepare(toReload, trace);
+        
+        if (transaction.hasFailures()) {
+            Log.LOGGER.error("Failed to prepare {} classe(s), batch discarded until the next change: {}",
+                transaction.getFailures().size(), transaction.getFailures().keySet());
+            requeue(changed, schemaChanged);
+            return;
+        }
+        
+        pendingCommits.add(new PendingBatch(transaction, changed, schemaChanged));
+        
+        if (commitExecutor != null) {
+            commitExecutor.execute(this::tick);
+        }
+    }
+    
+    /**
+     * Commit prepared reload batches. Called on the client thread between ticks,
+     * or on the commit executor of a headless engine.
+     */
+    @Override
+    public void tick() {
+        PendingBatch batch;
+        
+        while ((batch = pendingCommits.poll()) != null) {
+            commit(batch);
+        }
+    }
+    
+    private void commit(PendingBatch batch) {
+        ReloadTransaction transaction = batch.transaction;
+        long start = System.nanoTime();
+        ReloadResult result = classReloader.commit(transaction);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        ReloadTrace trace = transaction.getTrace();
+        
+        if (result.isRolledBack()) {
+            Log.LOGGER.error("Reload of {} classe(s) rolled back until the next change, failed: {}",
+                transaction.getClassNames().size(), result.getFailures().keySet());
+            requeue(batch.changed, batch.schemaChanged);
+            trace.setRolledBack(true);
+            timeline.record(trace);
+            return;
+        }
+        
+        Log.LOGGER.info("Successfully reloaded {} classe(s) in {} ms (prepared in {} ms)",
+            result.getReloaded().size(), elapsedMs, TimeUnit.NANOSECONDS.toMillis(transaction.getPrepareNanos()));
+        
+        reloadedClassCount += result.getReloaded().size();
+        
+        // Notify listeners
+        long notifyStart = System.nanoTime();
+        notifyReloadListeners(result);
+        trace.add(ReloadTrace.Stage.NOTIFY, System.nanoTime() - notifyStart);
+        timeline.record(trace);
+    }
+    
+    /**
+     * Keep the changes of a batch that was not applied for the next batch.
+     * They are not retried right away, since they would most likely fail again.
+     */
+    private void requeue(Set<String> changed, Set<String> schemaChanged) {
+        for (String className : changed) {
+            byte[] bytecode = compiledBytecode.get(className);
+            if (bytecode != null) {
+                classReloader.stageBytecode(className, bytecode);
+            }
+        }
+        unappliedReloads.addAll(changed);
+        unappliedSchemaChanges.addAll(schemaChanged);
+    }
+    
+    private static void drainInto(Set<String> source, Set<String> target) {
+        for (Iterator<String> it = source.iterator(); it.hasNext(); ) {
+            target.add(it.next());
+            it.remove();
+        }
+    }
+    
+    /**
+     * A prepared batch waiting for commit, with the changes it was built from
+     */
+    private static final class PendingBatch {
+        final ReloadTransaction transaction;
+        final Set<String> changed;
+        final Set<String> schemaChanged;
+        
+        PendingBatch(ReloadTransaction transaction, Set<String> changed, Set<String> schemaChanged) {
+            this.transaction = transaction;
+            this.changed = changed;
+            this.schemaChanged = schemaChanged;
         }
     }
     
     /**
-     * Notify registered listeners about reloaded classes
+     * Revert the most recently committed reload batch. Must be called on the client thread.
+     *
+     * @return false if there is nothing left to roll back
      */
-    private void notifyReloadListeners(Map<String, Class<?>> reloadedClasses) {
-        // TODO: Implement listener system for reload events
+    public boolean rollback() {
+        return classReloader.rollbackLastBatch();
+    }
+    
+    /**
+     * Notify registered listeners about reloaded classes, on the client thread
+     */
+    private void notifyReloadListeners(ReloadResult result) {
+        for (ReloadEvent event : result.getEvents()) {
+            eventBus.dispatch(event);
+        }
+    }
+    
+    /**
+     * Get the reloader that defines and redefines classes, e.g. for its generation statistics
+     */
+    public ClassReloader getClassReloader() {
+        return classReloader;
+    }
+    
+    /**
+     * Get the stage timings of the most recent reloads
+     */
+    public ReloadTimeline getTimeline() {
+        return timeline;
+    }
+    
+    /**
+     * Get the bus to subscribe to reload events of classes or packages
+     */
+    public ReloadEventBus getEventBus() {
+        return eventBus;
     }
     
     /**
      * Get paths to watch for changes
      */
     private List<Path> getWatchPaths() {
-        List<Path> paths = new ArrayList<>();
-        
-        // Add mod output directory
-        Path gameDir = FabricLoader.getInstance().getGameDir();
-        paths.add(gameDir.resolve("build/classes/java/main"));
-        paths.add(gameDir.resolve("out/production/classes"));
+        List<Path> paths = new ArrayList<>(classOutputPaths);
         
-        // Add configured additional paths
-        for (String pathStr : config.getAdditionalWatchPaths()) {
-            paths.add(Paths.get(pathStr));
+        // Source changes are only of interest if they are compiled
+        if (config.isAutoCompileEnabled()) {
+            paths.addAll(sourcePaths);
         }
         
         return paths;
     }
     
+    /**
+     * Class path for in-process compilation: the watched output directories
+     * first, so they win over stale copies, then the game class path
+     */
+    private List<Path> getCompileClassPath() {
+        List<Path> classPath = new ArrayList<>();
+        
+        for (Path path : watchPaths) {
+            if (Files.isDirectory(path) && !sourcePaths.contains(path)) {
+                classPath.add(path);
+            }
+        }
+        
+        classPath.addAll(IncrementalCompiler.runtimeClassPath());
+        return classPath;
+    }
+    
     /**
      * Convert a file path to a fully qualified class name
      */
     private String getClassNameFromPath(Path classFile) {
+        return getClassNameFromPath(classFile, watchPaths);
+    }
+    
+    /**
+     * Convert a file path to a fully qualified class name relative to the
+     * first root containing it, or to a {@code classes} directory in its path
+     */
+    static String getClassNameFromPath(Path classFile, List<Path> roots) {
+        for (Path root : roots) {
+            if (classFile.startsWith(root)) {
+                String relativePath = root.relativize(classFile).toString();
+                return relativePath
+                    .replace('/', '.')
+                    .replace('\\', '.')
+                    .replace(".class", "");
+            }
+        }
+        
         String pathStr = classFile.toString();
         
         // Find the start of the package structure
@@ -216,11 +664,24 @@ public class HotReloadManager {
     /**
      * Manually trigger a reload of a specific class
      */
+    @Override
     public void reloadClass(String className) {
         pendingReloads.add(className);
+        fileWatcher.wakeup();
     }
     
+    @Override
     public boolean isRunning() {
         return running;
     }
+    
+    @Override
+    public long getReloadedClassCount() {
+        return reloadedClassCount;
+    }
+    
+    @Override
+    public String getName() {
+        return "transactional";
+    }
 }
\ No newline at end of file
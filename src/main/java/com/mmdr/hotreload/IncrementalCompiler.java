@@ -0,0 +1,353 @@
+package com.mmdr.hotreload;
+
+
+import com.mmdr.util.Log;
+import javax.tools.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process Java compiler for changed source files.
+ *
+ * One {@link StandardJavaFileManager} is kept open for the lifetime of the
+ * compiler, so classpath archives are opened and indexed once instead of on
+ * every compilation. Class files are written to memory only and handed to the
+ * reload pipeline directly. Classes compiled earlier in the session shadow the
+ * older versions in the output directories on the classpath until the build
+ * writes new class files for them.
+ *
+ * Only the changed compilation units are compiled. If a compiled class changed
+ * its schema, the sources of its direct dependents are compiled in a second
+ * round against the new version. If any round fails, none of the classes of
+ * the compilation shadow the output directories afterwards.
+ *
+ * Not thread-safe; owned by the hot reload watcher thread.
+ *
+ * @author MMDR Team
+ */
+public class IncrementalCompiler implements AutoCloseable {
+    private static final List<String> OPTIONS = List.of("-g", "-proc:none", "-implicit:none");
+
+    private final List<Path> sourceRoots;
+    private final JavaCompiler compiler;
+    private final StandardJavaFileManager standardFileManager;
+    private final MemoryFileManager fileManager;
+
+    /** Classes compiled in this session, shadowing the output directories */
+    private final Map<String, byte[]> compiledClasses = new ConcurrentHashMap<>();
+
+    private IncrementalCompiler(JavaCompiler compiler, List<Path> sourceRoots, List<Path> classPath) throws IOException {
+        this.compiler = compiler;
+        this.sourceRoots = sourceRoots;
+        this.standardFileManager = compiler.getStandardFileManager(null, null, null);
+
+        List<File> classPathFiles = new ArrayList<>();
+        for (Path entry : classPath) {
+            classPathFiles.add(entry.toFile());
+        }
+        standardFileManager.setLocation(StandardLocation.CLASS_PATH, classPathFiles);
+
+        this.fileManager = new MemoryFileManager(standardFileManager);
+    }
+
+    /**
+     * Create a compiler, or return null if the running JVM does not ship {@code javac}
+     *
+     * @param sourceRoots Source directories of the mod
+     * @param classPath   Class path to compile against; output directories should come first
+     */
+    public static IncrementalCompiler create(List<Path> sourceRoots, List<Path> classPath) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        if (compiler == null) {
+            Log.LOGGER.warn("No Java compiler available (running on a JRE?), auto-compile disabled");
+            return null;
+        }
+
+        try {
+            return new IncrementalCompiler(compiler, sourceRoots, classPath);
+        } catch (IOException e) {
+            Log.LOGGER.error("Failed to set up in-process compiler", e);
+            return null;
+        }
+    }
+
+    /**
+     * Class path of the running game, for use with {@link #create}
+     */
+    public static List<Path> runtimeClassPath() {
+        List<Path> classPath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                classPath.add(Path.of(entry));
+            }
+        }
+        return classPath;
+    }
+
+    /**
+     * Compile changed source files and, if their schema changed, the sources of
+     * their direct dependents.
+     *
+     * @param changedSources  Changed {@code .java} files
+     * @param dependencyIndex Index used to find dependents; not modified
+     */
+    public CompilationResult compile(Collection<Path> changedSources, DependencyIndex dependencyIndex) {
+        CompilationResult result = new CompilationResult();
+        Set<Path> compiled = new HashSet<>();
+        // Shadowing classes replaced by this compilation, null for classes not shadowed before
+        Map<String, byte[]> replaced = new HashMap<>();
+
+        List<Path> round = new ArrayList<>();
+        for (Path source : changedSources) {
+            if (Files.isRegularFile(source)) {
+                round.add(source.toAbsolutePath().normalize());
+            }
+        }
+
+        for (int pass = 0; pass < 2 && !round.isEmpty(); pass++) {
+            Map<String, byte[]> output = compileRound(round, result);
+            compiled.addAll(round);
+
+            if (!result.isSuccess()) {
+                // Later compilations must not link against classes that will not be reloaded
+                restore(replaced);
+                result.classes.clear();
+                return result;
+            }
+
+            for (String className : output.keySet()) {
+                if (!replaced.containsKey(className)) {
+                    replaced.put(className, compiledClasses.get(className));
+                }
+            }
+            result.classes.putAll(output);
+            compiledClasses.putAll(output);
+
+            // Dependents are only affected by classes whose schema changed
+            Set<Path> dependentSources = new LinkedHashSet<>();
+            for (Map.Entry<String, byte[]> entry : output.entrySet()) {
+                if (!dependencyIndex.isSchemaChanged(entry.getKey(), entry.getValue())) {
+                    continue;
+                }
+                for (String dependent : dependencyIndex.getDependents(entry.getKey())) {
+                    Path source = findSource(dependent);
+                    if (source != null && !compiled.contains(source)) {
+                        dependentSources.add(source);
+                    }
+                }
+            }
+
+            round = new ArrayList<>(dependentSources);
+        }
+
+        return result;
+    }
+
+    private void restore(Map<String, byte[]> replaced) {
+        for (Map.Entry<String, byte[]> entry : replaced.entrySet()) {
+            if (entry.getValue() != null) {
+                compiledClasses.put(entry.getKey(), entry.getValue());
+            } else {
+                compiledClasses.remove(entry.getKey());
+            }
+        }
+    }
+
+    private Map<String, byte[]> compileRound(List<Path> sources, CompilationResult result) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Iterable<? extends JavaFileObject> units = standardFileManager.getJavaFileObjectsFromPaths(sources);
+
+        fileManager.output.clear();
+        boolean success = compiler.getTask(null, fileManager, diagnostics, OPTIONS, null, units).call();
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                String file = diagnostic.getSource() != null ? diagnostic.getSource().getName() : "<unknown>";
+                result.errors.add(file + ":" + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(Locale.ROOT));
+            }
+        }
+
+        result.success &= success;
+        result.compiledSources += sources.size();
+
+        Map<String, byte[]> output = new LinkedHashMap<>();
+        for (Map.Entry<String, MemoryClassFile> entry : fileManager.output.entrySet()) {
+            output.put(entry.getKey(), entry.getValue().getBytes());
+        }
+        return output;
+    }
+
+    /**
+     * Find the source file of a class from its top-level class name
+     */
+    private Path findSource(String className) {
+        int nested = className.indexOf('$');
+        String topLevel = nested > 0 ? className.substring(0, nested) : className;
+        String relativePath = topLevel.replace('.', File.separatorChar) + ".java";
+
+        for (Path root : sourceRoots) {
+            Path source = root.resolve(relativePath);
+            if (Files.isRegularFile(source)) {
+                return source.toAbsolutePath().normalize();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Stop shadowing a class with its in-memory version, e.g. because the build
+     * wrote a new class file for it
+     */
+    public void invalidate(String className) {
+        compiledClasses.remove(className);
+    }
+
+    public List<Path> getSourceRoots() {
+        return Collections.unmodifiableList(sourceRoots);
+    }
+
+    @Override
+    public void close() {
+        try {
+            standardFileManager.close();
+        } catch (IOException e) {
+            Log.LOGGER.debug("Failed to close compiler file manager", e);
+        }
+    }
+
+    /**
+     * Classes produced by one {@link #compile} call
+     */
+    public static final class CompilationResult {
+        private final Map<String, byte[]> classes = new LinkedHashMap<>();
+        private final List<String> errors = new ArrayList<>();
+        private boolean success = true;
+        private int compiledSources = 0;
+
+        public Map<String, byte[]> getClasses() {
+            return Collections.unmodifiableMap(classes);
+        }
+
+        public List<String> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public int getCompiledSources() {
+            return compiledSources;
+        }
+    }
+
+    /**
+     * File manager that keeps class output in memory and overlays classes
+     * compiled earlier on the class path
+     */
+    private final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        final Map<String, MemoryClassFile> output = new LinkedHashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            MemoryClassFile file = new MemoryClassFile(className, null);
+            output.put(className, file);
+            return file;
+        }
+
+        @Override
+        public Iterable<JavaFileObject> list(Location location, String packageName,
+                                             Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+            Iterable<JavaFileObject> listed = super.list(location, packageName, kinds, recurse);
+
+            if (location != StandardLocation.CLASS_PATH || !kinds.contains(JavaFileObject.Kind.CLASS)) {
+                return listed;
+            }
+
+            Map<String, JavaFileObject> overlay = new LinkedHashMap<>();
+            for (Map.Entry<String, byte[]> entry : compiledClasses.entrySet()) {
+                String name = entry.getKey();
+                int lastDot = name.lastIndexOf('.');
+                String classPackage = lastDot > 0 ? name.substring(0, lastDot) : "";
+                if (classPackage.equals(packageName)
+                        || (recurse && classPackage.startsWith(packageName.isEmpty() ? "" : packageName + "."))) {
+                    overlay.put(name, new MemoryClassFile(name, entry.getValue()));
+                }
+            }
+
+            if (overlay.isEmpty()) {
+                return listed;
+            }
+
+            List<JavaFileObject> merged = new ArrayList<>(overlay.values());
+            for (JavaFileObject file : listed) {
+                if (file.getKind() != JavaFileObject.Kind.CLASS
+                        || !overlay.containsKey(inferBinaryName(location, file))) {
+                    merged.add(file);
+                }
+            }
+            return merged;
+        }
+
+        @Override
+        public String inferBinaryName(Location location, JavaFileObject file) {
+            if (file instanceof MemoryClassFile) {
+                return ((MemoryClassFile) file).className;
+            }
+            return super.inferBinaryName(location, file);
+        }
+
+        @Override
+        public boolean isSameFile(FileObject a, FileObject b) {
+            if (a instanceof MemoryClassFile || b instanceof MemoryClassFile) {
+                return a == b;
+            }
+            return super.isSameFile(a, b);
+        }
+    }
+
+    /**
+     * Class file held in memory, either compiler output or an earlier compilation result
+     */
+    private static final class MemoryClassFile extends SimpleJavaFileObject {
+        final String className;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final byte[] bytes;
+
+        MemoryClassFile(String className, byte[] bytes) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return buffer;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(getBytes());
+        }
+
+        byte[] getBytes() {
+            return bytes != null ? bytes : buffer.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.mmdr.hotreload;
+
+
+import com.mmdr.util.Log;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Acquires an {@link Instrumentation} instance for the running JVM.
+ *
+ * Resolution order:
+ * 1. An agent already installed with {@code -javaagent} or by an earlier attach
+ * 2. Attaching {@link HotReloadAgent} to this JVM through the Attach API
+ * 3. Attaching from a helper JVM process, for JVMs that forbid self-attach
+ *
+ * The result is cached; if all strategies fail, {@link #get()} returns null and
+ * callers fall back to class loader based reloading.
+ *
+ * @author MMDR Team
+ */
+public final class InstrumentationProvider {
+    private static final String AGENT_CLASS = HotReloadAgent.class.getName();
+    private static final long ATTACH_TIMEOUT_SECONDS = 30;
+
+    private static volatile Instrumentation instrumentation;
+    private static volatile boolean attempted = false;
+
+    private InstrumentationProvider() {
+    }
+
+    /**
+     * Get the Instrumentation instance, attaching the agent on first use
+     *
+     * @return Instrumentation, or null if it cannot be acquired in this JVM
+     */
+    public static Instrumentation get() {
+        if (attempted) {
+            return instrumentation;
+        }
+
+        synchronized (InstrumentationProvider.class) {
+            if (!attempted) {
+                instrumentation = acquire();
+                attempted = true;
+            }
+        }
+
+        return instrumentation;
+    }
+
+    /**
+     * Whether classes can be redefined in place
+     */
+    public static boolean isAvailable() {
+        Instrumentation inst = get();
+        return inst != null && inst.isRedefineClassesSupported();
+    }
+
+    private static Instrumentation acquire() {
+        Instrumentation installed = findInstalled();
+        if (installed != null) {
+            Log.LOGGER.info("Using pre-installed instrumentation agent");
+            return installed;
+        }
+
+        Path agentJar;
+        try {
+            agentJar = createAgentJar();
+        } catch (IOException e) {
+            Log.LOGGER.warn("Failed to create hot reload agent jar, in-place redefinition disabled", e);
+            return null;
+        }
+
+        String pid = String.valueOf(ProcessHandle.current().pid());
+
+        try {
+            attachInProcess(pid, agentJar);
+        } catch (Exception e) {
+            Log.LOGGER.debug("Self-attach failed, trying helper process", e);
+
+            try {
+                attachFromHelperProcess(pid, agentJar);
+            } catch (Exception helperError) {
+                Log.LOGGER.warn("Could not attach instrumentation agent ({}), in-place redefinition disabled",
+                    helperError.getMessage());
+                return null;
+            }
+        }
+
+        Instrumentation attached = findInstalled();
+        if (attached == null) {
+            Log.LOGGER.warn("Instrumentation agent attached but not visible, in-place redefinition disabled");
+        } else {
+            Log.LOGGER.info("Instrumentation agent attached (redefine supported: {})",
+                attached.isRedefineClassesSupported());
+        }
+        return attached;
+    }
+
+    /**
+     * Look up the agent class through the system class loader, where agents are loaded
+     */
+    private static Instrumentation findInstalled() {
+        try {
+            Class<?> agent = Class.forName(AGENT_CLASS, true, ClassLoader.getSystemClassLoader());
+            return (Instrumentation) agent.getMethod("getInstrumentation").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static void attachInProcess(String pid, Path agentJar) throws Exception {
+        Class<?> vmClass = Class.forName("com.sun.tools.attach.VirtualMachine");
+        Object vm = vmClass.getMethod("attach", String.class).invoke(null, pid);
+
+        try {
+            vmClass.getMethod("loadAgent", String.class).invoke(vm, agentJar.toString());
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            vmClass.getMethod("detach").invoke(vm);
+        }
+    }
+
+    private static void attachFromHelperProcess(String pid, Path agentJar) throws Exception {
+        Path javaExecutable = Paths.get(System.getProperty("java.home"), "bin", "java");
+
+        Process process = new ProcessBuilder(
+            javaExecutable.toString(),
+            "-cp", agentJar.toString(),
+            AGENT_CLASS,
+            pid,
+            agentJar.toString()
+        ).redirectErrorStream(true).start();
+
+        if (!process.waitFor(ATTACH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IOException("Attach helper timed out");
+        }
+
+        if (process.exitValue() != 0) {
+            String output = new String(process.getInputStream().readAllBytes()).trim();
+            throw new IOException("Attach helper failed: " + output);
+        }
+    }
+
+    /**
+     * Write a temporary agent jar containing only {@link HotReloadAgent}
+     */
+    private static Path createAgentJar() throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Premain-Class", AGENT_CLASS);
+        attributes.putValue("Agent-Class", AGENT_CLASS);
+        attributes.putValue("Can-Redefine-Classes", "true");
+        attributes.putValue("Can-Retransform-Classes", "true");
+
+        String entryName = AGENT_CLASS.replace('.', '/') + ".class";
+        Path jar = Files.createTempFile("mmdr-agent", ".jar");
+        jar.toFile().deleteOnExit();
+
+        try (InputStream in = HotReloadAgent.class.getClassLoader().getResourceAsStream(entryName);
+             OutputStream out = Files.newOutputStream(jar);
+             JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+            if (in == null) {
+                throw new IOException("Agent class bytes not found: " + entryName);
+            }
+
+            jarOut.putNextEntry(new JarEntry(entryName));
+            in.transferTo(jarOut);
+            jarOut.closeEntry();
+        }
+
+        return jar;
+    }
+}
@@ -0,0 +1,130 @@
+package com.mmdr.hotreload;
+
+import com.mmdr.profiler.ProfilingPass;
+import com.mmdr.util.Log;
+import com.mmdr.util.MMDRConfig;
+import net.fabricmc.loader.api.FabricLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reload engine backed by the original stand-alone {@code hotreload} package.
+ *
+ * Every changed class file is defined on its own in a throwaway classloader
+ * as soon as its event arrives on the watcher thread. There are no batches,
+ * no in-place redefinition, no rollback and no reload events; reloaded
+ * classes are only reachable through {@link #getClassReloader()}. Kept for
+ * comparison with {@link HotReloadManager} and as a fallback. Class files
+ * still go through {@link ProfilingPass}, so method profiling covers them.
+ *
+ * @author MMDR Team
+ */
+public class LegacyReloadEngine implements ReloadEngine {
+    private final List<Path> classOutputPaths;
+    private final hotreload.HotReloadManager manager;
+    private final hotreload.BytecodeTransformer transformer;
+    private final AtomicLong manualReloads = new AtomicLong();
+
+    public LegacyReloadEngine(MMDRConfig config) {
+        this.classOutputPaths = ReloadPaths.forGameDir(FabricLoader.getInstance().getGameDir(), config)
+            .getClassOutputPaths();
+        this.transformer = profilingTransformer(config);
+
+        try {
+            this.manager = new hotreload.HotReloadManager(transformer);
+
+            for (Path path : classOutputPaths) {
+                if (Files.isDirectory(path)) {
+                    manager.addWatchDirectory(path);
+                } else {
+                    Log.LOGGER.warn("Watch path does not exist: {}", path);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to initialize legacy reload engine", e);
+        }
+    }
+
+    /**
+     * Legacy transformer that applies {@link ProfilingPass}, as {@link ClassReloader} does
+     */
+    private static hotreload.BytecodeTransformer profilingTransformer(MMDRConfig config) {
+        BytecodeTransformer passes = new BytecodeTransformer();
+        passes.addPass(new ProfilingPass(config));
+
+        return new hotreload.BytecodeTransformer() {
+            @Override
+            public byte[] transform(String internalClassName, byte[] original) {
+                return passes.transform(internalClassName.replace('/', '.'), original);
+            }
+        };
+    }
+
+    @Override
+    public void start() {
+        manager.start();
+        Log.LOGGER.info("Legacy hot reload engine started for {}", manager.getWatchedDirectories());
+    }
+
+    @Override
+    public void stop() {
+        manager.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return manager.isRunning();
+    }
+
+    @Override
+    public void reloadClass(String className) {
+        String resource = className.replace('.', '/') + ".class";
+
+        for (Path root : classOutputPaths) {
+            Path classFile = root.resolve(resource);
+            if (!Files.isRegularFile(classFile)) {
+                continue;
+            }
+
+            try {
+                byte[] bytecode = transformer.transform(className.replace('.', '/'), Files.readAllBytes(classFile));
+                manager.getClassReloader().reloadClass(className, bytecode);
+                manualReloads.incrementAndGet();
+                Log.LOGGER.info("✓ Reloaded: {}", className);
+            } catch (IOException | LinkageError e) {
+                Log.LOGGER.error("✗ Failed to reload: {}", className, e);
+            }
+            return;
+        }
+
+        Log.LOGGER.error("✗ Cannot find class file for: {}", className);
+    }
+
+    /**
+     * Classes are reloaded on the watcher thread, so there is nothing to apply
+     */
+    @Override
+    public void tick() {
+    }
+
+    @Override
+    public long getReloadedClassCount() {
+        return manager.getReloadedClasses() + manualReloads.get();
+    }
+
+    @Override
+    public String getName() {
+        return "legacy";
+    }
+
+    /**
+     * Get the reloader holding the latest version of each reloaded class
+     */
+    public hotreload.ClassReloader getClassReloader() {
+        return manager.getClassReloader();
+    }
+}
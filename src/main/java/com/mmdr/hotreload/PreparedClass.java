@@ -0,0 +1,39 @@
+package com.mmdr.hotreload;
+
+import org.objectweb.asm.ClassReader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class whose bytecode has been read and transformed and is ready to be defined.
+ *
+ * @author MMDR Team
+ */
+final class PreparedClass {
+    final String className;
+    final byte[] bytecode;
+    final String superName;
+    final List<String> interfaces;
+
+    PreparedClass(String className, byte[] bytecode) {
+        this.className = className;
+        this.bytecode = bytecode;
+
+        // Only the header is parsed, which is cheap
+        ClassReader reader = new ClassReader(bytecode);
+        this.superName = reader.getSuperName() != null ? reader.getSuperName().replace('/', '.') : null;
+        this.interfaces = new ArrayList<>();
+        for (String itf : reader.getInterfaces()) {
+            interfaces.add(itf.replace('/', '.'));
+        }
+    }
+
+    /**
+     * Name of the enclosing class for nested classes, or null
+     */
+    String outerName() {
+        int index = className.lastIndexOf('$');
+        return index > 0 ? className.substring(0, index) : null;
+    }
+}
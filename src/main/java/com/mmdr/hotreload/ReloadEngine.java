@@ -0,0 +1,62 @@
+package com.mmdr.hotreload;
+
+import com.mmdr.util.MMDRConfig;
+
+/**
+ * A hot reload implementation: watches the class output directories and
+ * replaces changed classes in the running game.
+ *
+ * The implementation is selected with {@code reloadEngine} in the config.
+ * {@link HotReloadManager} is the production engine; {@link LegacyReloadEngine}
+ * runs the original stand-alone {@code hotreload} package for comparison.
+ *
+ * @author MMDR Team
+ */
+public interface ReloadEngine extends AutoCloseable {
+    /**
+     * Start watching for changes
+     */
+    void start();
+
+    /**
+     * Stop watching and release resources
+     */
+    void stop();
+
+    boolean isRunning();
+
+    /**
+     * Manually queue a reload of a class from the watched directories
+     */
+    void reloadClass(String className);
+
+    /**
+     * Apply pending work that must run on the client thread. Called between ticks.
+     */
+    void tick();
+
+    /**
+     * Number of classes reloaded since the engine was created
+     */
+    long getReloadedClassCount();
+
+    /**
+     * Name as used for {@code reloadEngine} in the config
+     */
+    String getName();
+
+    @Override
+    default void close() {
+        stop();
+    }
+
+    /**
+     * Create the engine selected by the config
+     */
+    static ReloadEngine create(MMDRConfig config) {
+        if ("legacy".equals(config.getReloadEngine())) {
+            return new LegacyReloadEngine(config);
+        }
+        return new HotReloadManager(config);
+    }
+}
@@ -0,0 +1,116 @@
+package com.mmdr.hotreload;
+
+/**
+ * Describes one class replaced by a committed reload batch.
+ *
+ * Carries both the version that was in use before the reload and the one in
+ * use after it. For classes redefined in place both are the same
+ * {@link Class} object and only method bodies changed; for classes defined in
+ * a new classloader they differ, and instances of the previous class keep
+ * running the old code.
+ *
+ * @author MMDR Team
+ */
+public final class ReloadEvent {
+    /**
+     * How the class was replaced
+     */
+    public enum Kind {
+        /** Redefined in place; the schema is unchanged */
+        REDEFINED,
+        /** Defined in a new classloader; the schema may have changed */
+        REPLACED
+    }
+
+    private final String className;
+    private final Class<?> previousClass;
+    private final Class<?> reloadedClass;
+    private final Kind kind;
+    private final ClassSchema.Change change;
+
+    private ClassSchema previousSchema;
+    private ClassSchema schema;
+
+    ReloadEvent(String className, Class<?> previousClass, Class<?> reloadedClass) {
+        this(className, previousClass, reloadedClass, null);
+    }
+
+    ReloadEvent(String className, Class<?> previousClass, Class<?> reloadedClass, ClassSchema.Change change) {
+        this.className = className;
+        this.previousClass = previousClass;
+        this.reloadedClass = reloadedClass;
+        this.kind = previousClass == reloadedClass ? Kind.REDEFINED : Kind.REPLACED;
+        this.change = change;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Package of the reloaded class, empty for the default package
+     */
+    public String getPackageName() {
+        int lastDot = className.lastIndexOf('.');
+        return lastDot > 0 ? className.substring(0, lastDot) : "";
+    }
+
+    /**
+     * Version in use before the reload, or null if the class had never been loaded
+     */
+    public Class<?> getPreviousClass() {
+        return previousClass;
+    }
+
+    /**
+     * Version in use after the reload
+     */
+    public Class<?> getReloadedClass() {
+        return reloadedClass;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * How the new bytecode differed from the loaded class, or null if it was
+     * not classified because the class was not loaded or instrumentation is unavailable
+     */
+    public ClassSchema.Change getChange() {
+        return change;
+    }
+
+    /**
+     * Schema of the previous version, or null if there was none. Read lazily.
+     */
+    public ClassSchema getPreviousSchema() {
+        if (previousSchema == null && previousClass != null) {
+            previousSchema = kind == Kind.REDEFINED ? getSchema() : ClassSchema.of(previousClass);
+        }
+        return previousSchema;
+    }
+
+    /**
+     * Schema of the reloaded version. Read lazily.
+     */
+    public ClassSchema getSchema() {
+        if (schema == null) {
+            schema = ClassSchema.of(reloadedClass);
+        }
+        return schema;
+    }
+
+    /**
+     * Whether fields, methods or supertypes differ from the previous version
+     */
+    public boolean isSchemaChanged() {
+        return kind == Kind.REPLACED
+            && (getPreviousSchema() == null || !getPreviousSchema().isRedefinitionCompatible(getSchema()));
+    }
+
+    @Override
+    public String toString() {
+        return "ReloadEvent[" + className + ", " + kind + "]";
+    }
+}
@@ -0,0 +1,113 @@
+package com.mmdr.hotreload;
+
+
+import com.mmdr.util.Log;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers {@link ReloadEvent}s to listeners subscribed to a single class or to
+ * a package and its subpackages.
+ *
+ * Subscriptions are indexed by exact class name and by package name, so
+ * dispatching an event costs one lookup per package level of the reloaded
+ * class, independent of the number of subscribers. Events are dispatched on
+ * the thread that committed the reload, which is the client thread in game.
+ *
+ * Subscribing and unsubscribing are thread-safe.
+ *
+ * @author MMDR Team
+ */
+public class ReloadEventBus {
+    private final Map<String, List<ReloadListener>> classListeners = new ConcurrentHashMap<>();
+    private final Map<String, List<ReloadListener>> packageListeners = new ConcurrentHashMap<>();
+
+    /**
+     * Listen for reloads of one class
+     *
+     * @param className Fully qualified class name; nested classes are separate
+     */
+    public Subscription subscribeClass(String className, ReloadListener listener) {
+        return subscribe(classListeners, className, listener);
+    }
+
+    /**
+     * Listen for reloads of any class in a package or one of its subpackages
+     *
+     * @param packageName Package name, e.g. {@code com.example.render}; empty for all classes
+     */
+    public Subscription subscribePackage(String packageName, ReloadListener listener) {
+        return subscribe(packageListeners, packageName, listener);
+    }
+
+    private Subscription subscribe(Map<String, List<ReloadListener>> index, String key, ReloadListener listener) {
+        Objects.requireNonNull(listener, "listener");
+        index.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(listener);
+        return () -> {
+            List<ReloadListener> listeners = index.get(key);
+            if (listeners != null) {
+                listeners.remove(listener);
+            }
+        };
+    }
+
+    /**
+     * Deliver an event to the listeners of its class and of every enclosing package.
+     * A failing listener does not stop delivery to the others.
+     */
+    public void dispatch(ReloadEvent event) {
+        deliver(classListeners.get(event.getClassName()), event);
+
+        String packageName = event.getPackageName();
+        while (true) {
+            deliver(packageListeners.get(packageName), event);
+
+            if (packageName.isEmpty()) {
+                break;
+            }
+
+            int lastDot = packageName.lastIndexOf('.');
+            packageName = lastDot > 0 ? packageName.substring(0, lastDot) : "";
+        }
+    }
+
+    private void deliver(List<ReloadListener> listeners, ReloadEvent event) {
+        if (listeners == null) {
+            return;
+        }
+
+        for (ReloadListener listener : listeners) {
+            try {
+                listener.onReload(event);
+            } catch (Exception | LinkageError e) {
+                Log.LOGGER.error("Reload listener failed for {}", event.getClassName(), e);
+            }
+        }
+    }
+
+    /**
+     * Number of active subscriptions
+     */
+    public int getSubscriberCount() {
+        int count = 0;
+        for (List<ReloadListener> listeners : classListeners.values()) {
+            count += listeners.size();
+        }
+        for (List<ReloadListener> listeners : packageListeners.values()) {
+            count += listeners.size();
+        }
+        return count;
+    }
+
+    /**
+     * Handle returned by the subscribe methods
+     */
+    @FunctionalInterface
+    public interface Subscription {
+        /**
+         * Stop receiving events. Calling this more than once has no effect.
+         */
+        void unsubscribe();
+    }
+}
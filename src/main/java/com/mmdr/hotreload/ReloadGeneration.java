@@ -0,0 +1,74 @@
+package com.mmdr.hotreload;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Statistics of one classloader generation, i.e. the classes of one committed
+ * reload batch that were defined in a new classloader.
+ *
+ * Holds its loader only weakly, so it can report whether the generation has
+ * been reclaimed by the garbage collector.
+ *
+ * @author MMDR Team
+ */
+public final class ReloadGeneration {
+    private final int id;
+    private final List<String> classNames;
+    private final long bytecodeBytes;
+    private final long metaspaceBytes;
+    private final long createdAt;
+    private final WeakReference<ClassLoader> loader;
+
+    ReloadGeneration(GenerationClassLoader loader, List<String> classNames, ReferenceQueue<ClassLoader> queue) {
+        this.id = loader.getGeneration();
+        this.classNames = List.copyOf(classNames);
+        this.bytecodeBytes = loader.getBytecodeBytes();
+        this.metaspaceBytes = loader.getMetaspaceBytes();
+        this.createdAt = System.currentTimeMillis();
+        this.loader = new WeakReference<>(loader, queue);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<String> getClassNames() {
+        return Collections.unmodifiableList(classNames);
+    }
+
+    public int getClassCount() {
+        return classNames.size();
+    }
+
+    /**
+     * Total size of the class files defined in this generation
+     */
+    public long getBytecodeBytes() {
+        return bytecodeBytes;
+    }
+
+    /**
+     * Metaspace growth while the generation was defined, or -1 if not measurable
+     */
+    public long getMetaspaceBytes() {
+        return metaspaceBytes;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Whether the loader and all classes of this generation have been garbage collected
+     */
+    public boolean isReclaimed() {
+        return loader.refersTo(null);
+    }
+
+    WeakReference<ClassLoader> loaderReference() {
+        return loader;
+    }
+}
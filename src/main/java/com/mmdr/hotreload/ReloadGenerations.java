@@ -0,0 +1,100 @@
+package com.mmdr.hotreload;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Creates classloader generations and keeps statistics of the most recent ones,
+ * including whether they have been garbage collected.
+ *
+ * Generations are only referenced weakly here, so tracking them does not keep
+ * their classes in metaspace.
+ *
+ * @author MMDR Team
+ */
+final class ReloadGenerations {
+    private static final int MAX_TRACKED = 64;
+    private static final MemoryPoolMXBean METASPACE = findMetaspacePool();
+
+    private final Deque<ReloadGeneration> recent = new ArrayDeque<>();
+    private final ReferenceQueue<ClassLoader> reclaimedQueue = new ReferenceQueue<>();
+    // Keeps the weak references of generations no longer in the recent list enqueueable
+    private final Set<Reference<ClassLoader>> unreclaimed = new HashSet<>();
+    private int nextId = 1;
+    private int created;
+    private int reclaimed;
+
+    synchronized GenerationClassLoader newLoader(Map<String, byte[]> bytecode,
+                                                 Function<String, Class<?>> latestVersions, ClassLoader parent) {
+        return new GenerationClassLoader(nextId++, bytecode, latestVersions, parent);
+    }
+
+    /**
+     * Start tracking a generation whose classes were published
+     */
+    synchronized void record(GenerationClassLoader loader, List<String> classNames) {
+        ReloadGeneration generation = new ReloadGeneration(loader, classNames, reclaimedQueue);
+        recent.addLast(generation);
+        unreclaimed.add(generation.loaderReference());
+        created++;
+
+        while (recent.size() > MAX_TRACKED) {
+            recent.removeFirst();
+        }
+        drainReclaimed();
+    }
+
+    /**
+     * Most recent generations, oldest first
+     */
+    synchronized List<ReloadGeneration> getRecent() {
+        return new ArrayList<>(recent);
+    }
+
+    synchronized int getCreatedCount() {
+        return created;
+    }
+
+    /**
+     * Number of published generations that have been garbage collected
+     */
+    synchronized int getReclaimedCount() {
+        drainReclaimed();
+        return reclaimed;
+    }
+
+    private void drainReclaimed() {
+        Reference<? extends ClassLoader> reference;
+        while ((reference = reclaimedQueue.poll()) != null) {
+            unreclaimed.remove(reference);
+            reclaimed++;
+        }
+    }
+
+    /**
+     * Current metaspace usage in bytes, or -1 if the JVM does not report it
+     */
+    static long metaspaceUsed() {
+        return METASPACE != null ? METASPACE.getUsage().getUsed() : -1;
+    }
+
+    private static MemoryPoolMXBean findMetaspacePool() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP && "Metaspace".equals(pool.getName())) {
+                return pool;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.mmdr.hotreload;
+
+/**
+ * Receives {@link ReloadEvent}s from a {@link ReloadEventBus}, e.g. to rebuild
+ * caches, renderers or registries that depend on a reloaded class.
+ *
+ * @author MMDR Team
+ */
+@FunctionalInterface
+public interface ReloadListener {
+    /**
+     * Called on the client thread after the batch containing the class was committed
+     */
+    void onReload(ReloadEvent event);
+}
@@ -0,0 +1,78 @@
+package com.mmdr.hotreload;
+
+import com.mmdr.util.MMDRConfig;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The directories a {@link HotReloadManager} works with: class output
+ * directories to watch and read bytecode from, source directories for
+ * auto-compile, and where the persisted indexes are kept.
+ *
+ * {@link #forGameDir} derives them from the game directory like the client
+ * does. Passing them explicitly lets the reload pipeline run without a Fabric
+ * loader, e.g. in a plain JVM test runner.
+ *
+ * @author MMDR Team
+ */
+public final class ReloadPaths {
+    private final List<Path> classOutputPaths;
+    private final List<Path> sourcePaths;
+    private final Path cacheDirectory;
+
+    /**
+     * @param classOutputPaths Directories compiled classes are written to
+     * @param sourcePaths Source directories compiled in process when auto-compile is enabled
+     * @param cacheDirectory Directory for the persisted class hash and dependency indexes
+     */
+    public ReloadPaths(List<Path> classOutputPaths, List<Path> sourcePaths, Path cacheDirectory) {
+        this.classOutputPaths = List.copyOf(classOutputPaths);
+        this.sourcePaths = List.copyOf(sourcePaths);
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Standard output directories of a development run in {@code gameDir}, plus
+     * the configured additional watch paths and source paths
+     */
+    public static ReloadPaths forGameDir(Path gameDir, MMDRConfig config) {
+        List<Path> classOutputPaths = new ArrayList<>();
+        classOutputPaths.add(gameDir.resolve("build/classes/java/main"));
+        classOutputPaths.add(gameDir.resolve("out/production/classes"));
+
+        for (String pathStr : config.getAdditionalWatchPaths()) {
+            classOutputPaths.add(Paths.get(pathStr));
+        }
+
+        List<Path> sourcePaths = new ArrayList<>();
+        for (String pathStr : config.getSourcePaths()) {
+            sourcePaths.add(Paths.get(pathStr));
+        }
+        if (sourcePaths.isEmpty()) {
+            sourcePaths.add(gameDir.resolve("src/main/java"));
+        }
+
+        return new ReloadPaths(classOutputPaths, sourcePaths, gameDir.resolve("mmdr_cache"));
+    }
+
+    public List<Path> getClassOutputPaths() {
+        return classOutputPaths;
+    }
+
+    public List<Path> getSourcePaths() {
+        return sourcePaths;
+    }
+
+    public Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    @Override
+    public String toString() {
+        return "ReloadPaths{classOutput=" + classOutputPaths + ", source=" + sourcePaths
+            + ", cache=" + cacheDirectory + "}";
+    }
+}
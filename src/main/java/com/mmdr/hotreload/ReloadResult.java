@@ -0,0 +1,85 @@
+package com.mmdr.hotreload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of reloading a batch of classes.
+ *
+ * Batches are applied as a whole: if any class fails, the batch is rolled
+ * back, {@link #getReloaded()} is empty and {@link #getFailures()} names the
+ * classes that caused it.
+ *
+ * @author MMDR Team
+ */
+public class ReloadResult {
+    private final Map<String, Class<?>> reloaded = new LinkedHashMap<>();
+    private final List<ReloadEvent> events = new ArrayList<>();
+    private final Map<String, Throwable> failures = new LinkedHashMap<>();
+    private final List<StaticStateMigrator.MigrationReport> migrations = new ArrayList<>();
+    private boolean rolledBack = false;
+
+    void addReloaded(String className, Class<?> previous, Class<?> clazz) {
+        addReloaded(className, previous, clazz, null);
+    }
+
+    void addReloaded(String className, Class<?> previous, Class<?> clazz, ClassSchema.Change change) {
+        reloaded.put(className, clazz);
+        events.add(new ReloadEvent(className, previous, clazz, change));
+    }
+
+    void addFailure(String className, Throwable error) {
+        failures.put(className, error);
+    }
+
+    void addMigration(StaticStateMigrator.MigrationReport report) {
+        migrations.add(report);
+    }
+
+    void setRolledBack(boolean rolledBack) {
+        this.rolledBack = rolledBack;
+    }
+
+    /**
+     * Classes reloaded successfully, in the order they were defined
+     */
+    public Map<String, Class<?>> getReloaded() {
+        return Collections.unmodifiableMap(reloaded);
+    }
+
+    /**
+     * One event per reloaded class, in the order they were defined
+     */
+    public List<ReloadEvent> getEvents() {
+        return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * Classes that failed to reload, with the cause
+     */
+    public Map<String, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Static state migrations performed for classes defined in a new classloader
+     */
+    public List<StaticStateMigrator.MigrationReport> getMigrations() {
+        return Collections.unmodifiableList(migrations);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Whether the batch was not applied because of a failure. No class of the
+     * batch was changed in that case.
+     */
+    public boolean isRolledBack() {
+        return rolledBack;
+    }
+}
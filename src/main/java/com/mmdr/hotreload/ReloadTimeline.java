@@ -0,0 +1,146 @@
+package com.mmdr.hotreload;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounded history of the most recent {@link ReloadTrace}s with per-stage
+ * percentiles, to find out where reload latency is spent.
+ *
+ * Traces are kept in a ring buffer, so recording never allocates beyond the
+ * trace itself and old traces are dropped once the buffer is full.
+ *
+ * @author MMDR Team
+ */
+public final class ReloadTimeline {
+    private final ReloadTrace[] traces;
+    private int next;
+    private int size;
+
+    /**
+     * @param capacity Number of most recent reloads to keep
+     */
+    public ReloadTimeline(int capacity) {
+        this.traces = new ReloadTrace[Math.max(1, capacity)];
+    }
+
+    public synchronized void record(ReloadTrace trace) {
+        traces[next] = trace;
+        next = (next + 1) % traces.length;
+        size = Math.min(size + 1, traces.length);
+    }
+
+    /**
+     * Recorded traces, oldest first
+     */
+    public synchronized List<ReloadTrace> snapshot() {
+        List<ReloadTrace> snapshot = new ArrayList<>(size);
+        int start = (next - size + traces.length) % traces.length;
+        for (int i = 0; i < size; i++) {
+            snapshot.add(traces[(start + i) % traces.length]);
+        }
+        return snapshot;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return traces.length;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(traces, null);
+        next = 0;
+        size = 0;
+    }
+
+    /**
+     * Percentiles of every stage, and of the total, over the recorded traces
+     */
+    public List<StageStats> getStageStats() {
+        List<ReloadTrace> snapshot = snapshot();
+        List<StageStats> stats = new ArrayList<>();
+        long[] values = new long[snapshot.size()];
+
+        for (ReloadTrace.Stage stage : ReloadTrace.Stage.values()) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = snapshot.get(i).getNanos(stage);
+            }
+            stats.add(StageStats.of(stage.getLabel(), values));
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = snapshot.get(i).getTotalNanos();
+        }
+        stats.add(StageStats.of("total", values));
+
+        return stats;
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * Latency distribution of one stage
+     */
+    public static final class StageStats {
+        private final String stage;
+        private final long p50Nanos;
+        private final long p95Nanos;
+        private final long maxNanos;
+        private final long latestNanos;
+
+        private StageStats(String stage, long p50Nanos, long p95Nanos, long maxNanos, long latestNanos) {
+            this.stage = stage;
+            this.p50Nanos = p50Nanos;
+            this.p95Nanos = p95Nanos;
+            this.maxNanos = maxNanos;
+            this.latestNanos = latestNanos;
+        }
+
+        /**
+         * @param values Stage times of the recorded traces, oldest first
+         */
+        static StageStats of(String stage, long[] values) {
+            long[] sorted = values.clone();
+            Arrays.sort(sorted);
+            return new StageStats(stage, percentile(sorted, 50), percentile(sorted, 95),
+                sorted.length > 0 ? sorted[sorted.length - 1] : 0,
+                values.length > 0 ? values[values.length - 1] : 0);
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP95Nanos() {
+            return p95Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Time of the most recent reload
+         */
+        public long getLatestNanos() {
+            return latestNanos;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.mmdr.hotreload;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time spent in each stage of one reload, from the file change to the
+ * listeners being notified.
+ *
+ * Stages measured on the prepare threads are summed over all classes of the
+ * batch, so with several threads they can add up to more than the wall time.
+ * Recording is thread-safe.
+ *
+ * @author MMDR Team
+ */
+public final class ReloadTrace {
+    /**
+     * Stages of a reload, in the order they happen
+     */
+    public enum Stage {
+        /** From the file being written to the watcher handing it over, including event coalescing */
+        DETECT("detect"),
+        /** In-process compilation of changed sources */
+        COMPILE("compile"),
+        /** Hashing and dependency indexing of changed classes */
+        INDEX("index"),
+        /** Reading class files, summed over classes */
+        READ("read"),
+        /** Transform passes, summed over classes */
+        TRANSFORM("transform"),
+        /** Bytecode verification, summed over classes */
+        VERIFY("verify"),
+        /** Waiting for the client tick that commits the batch */
+        QUEUE("queue"),
+        /** Defining classes in a new classloader generation */
+        DEFINE("define"),
+        /** The batched {@code redefineClasses} call, including capture of the previous bytecode */
+        REDEFINE("redefine"),
+        /** Static state migration and static initializers */
+        MIGRATE("migrate"),
+        /** Reload event listeners */
+        NOTIFY("notify");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final AtomicLongArray nanos = new AtomicLongArray(STAGES.length);
+    private final long timestamp = System.currentTimeMillis();
+    private volatile int classCount;
+    private volatile boolean rolledBack;
+
+    /**
+     * Add time to a stage
+     */
+    public void add(Stage stage, long stageNanos) {
+        if (stageNanos > 0) {
+            nanos.addAndGet(stage.ordinal(), stageNanos);
+        }
+    }
+
+    public long getNanos(Stage stage) {
+        return nanos.get(stage.ordinal());
+    }
+
+    /**
+     * Sum of all stages
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (int i = 0; i < STAGES.length; i++) {
+            total += nanos.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Wall clock time the trace was started at
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    void setClassCount(int classCount) {
+        this.classCount = classCount;
+    }
+
+    public boolean isRolledBack() {
+        return rolledBack;
+    }
+
+    void setRolledBack(boolean rolledBack) {
+        this.rolledBack = rolledBack;
+    }
+}
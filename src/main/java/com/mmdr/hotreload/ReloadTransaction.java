@@ -0,0 +1,69 @@
+package com.mmdr.hotreload;
+
+import java.util.*;
+
+/**
+ * A reload batch whose bytecode has been read, transformed and verified, but
+ * not yet applied.
+ *
+ * Created by {@link ClassReloader#prepare} off the client thread and applied
+ * as a whole by {@link ClassReloader#commit}. A transaction with preparation
+ * failures is never applied.
+ *
+ * @author MMDR Team
+ */
+public final class ReloadTransaction {
+    final List<PreparedClass> classes;
+    private final Map<String, Throwable> failures;
+    private final long prepareNanos;
+    private final long preparedAt = System.nanoTime();
+    private final ReloadTrace trace;
+
+    ReloadTransaction(List<PreparedClass> classes, Map<String, Throwable> failures, long prepareNanos, ReloadTrace trace) {
+        this.classes = classes;
+        this.failures = failures;
+        this.prepareNanos = prepareNanos;
+        this.trace = trace;
+        trace.setClassCount(classes.size() + failures.size());
+    }
+
+    /**
+     * Classes of the batch, in definition order
+     */
+    public List<String> getClassNames() {
+        List<String> names = new ArrayList<>(classes.size());
+        for (PreparedClass preparedClass : classes) {
+            names.add(preparedClass.className);
+        }
+        return names;
+    }
+
+    /**
+     * Classes that could not be read, transformed or verified, with the cause
+     */
+    public Map<String, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    /**
+     * {@link System#nanoTime()} when preparation finished
+     */
+    long getPreparedAt() {
+        return preparedAt;
+    }
+
+    /**
+     * Stage timings of this batch, completed when it is committed
+     */
+    public ReloadTrace getTrace() {
+        return trace;
+    }
+}
@@ -0,0 +1,306 @@
+package com.mmdr.hotreload;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Carries static field values from the previous version of a class over to
+ * a version defined in a new classloader.
+ *
+ * Before definition, {@link #prepareBytecode} rewrites the new class so that
+ * its static fields are writable and its static initializer can be skipped.
+ * After definition, {@link #migrate} copies every compatible static field
+ * through cached {@link VarHandle}s. If every static field of the new class
+ * can be carried over, the static initializer is not run at all, so
+ * registries and caches built there are not rebuilt.
+ *
+ * Compile-time constants are never carried over: their value comes from the
+ * new class file, and dependents compiled against it already inline it.
+ *
+ * @author MMDR Team
+ */
+public class StaticStateMigrator {
+    private static final String ORIGINAL_CLINIT = "$mmdr$clinit";
+    private static final String SELF = Type.getInternalName(StaticStateMigrator.class);
+
+    /** Classes whose next static initialization should be skipped */
+    private static final Set<String> skipInitializer = ConcurrentHashMap.newKeySet();
+
+    private static final ClassValue<Map<String, StaticField>> STATIC_FIELDS = new ClassValue<>() {
+        @Override
+        protected Map<String, StaticField> computeValue(Class<?> type) {
+            return lookupStaticFields(type);
+        }
+    };
+
+    /**
+     * Called from the rewritten static initializer of a migrated class
+     *
+     * @return true if the original initializer must not run
+     */
+    public static boolean shouldSkipInitializer(String className) {
+        return skipInitializer.remove(className);
+    }
+
+    /**
+     * Rewrite a class so its static state can be migrated: static fields lose
+     * {@code final}, except constants, and the static initializer is moved
+     * into a separate method that only runs if {@link #shouldSkipInitializer}
+     * returns false.
+     */
+    public byte[] prepareBytecode(String className, byte[] bytecode) {
+        ClassReader reader = new ClassReader(bytecode);
+
+        if ((reader.getAccess() & Opcodes.ACC_INTERFACE) != 0) {
+            return bytecode;
+        }
+
+        ClassWriter writer = new ClassWriter(reader, 0);
+
+        reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            private boolean hasInitializer = false;
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                // Constants keep final, which is how migrate tells them apart
+                if ((access & Opcodes.ACC_STATIC) != 0 && value == null) {
+                    access &= ~Opcodes.ACC_FINAL;
+                }
+                return super.visitField(access, name, descriptor, signature, value);
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                if ("<clinit>".equals(name)) {
+                    hasInitializer = true;
+                    return super.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC,
+                        ORIGINAL_CLINIT, descriptor, signature, exceptions);
+                }
+                return super.visitMethod(access, name, descriptor, signature, exceptions);
+            }
+
+            @Override
+            public void visitEnd() {
+                if (hasInitializer) {
+                    writeGuardedInitializer(cv, reader.getClassName(), className);
+                }
+                super.visitEnd();
+            }
+        }, 0);
+
+        return writer.toByteArray();
+    }
+
+    private static void writeGuardedInitializer(ClassVisitor cv, String internalName, String className) {
+        MethodVisitor mv = cv.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+        Label skip = new Label();
+
+        mv.visitCode();
+        mv.visitLdcInsn(className);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, SELF, "shouldSkipInitializer", "(Ljava/lang/String;)Z", false);
+        mv.visitJumpInsn(Opcodes.IFNE, skip);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, internalName, ORIGINAL_CLINIT, "()V", false);
+        mv.visitLabel(skip);
+        mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(1, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * Copy compatible static fields from {@code oldClass} to {@code newClass}.
+     *
+     * {@code newClass} must have been rewritten by {@link #prepareBytecode} and not
+     * yet initialized. A field is compatible if the old class has a static field
+     * of the same name whose current value can be stored in the new field, and
+     * it is not a constant.
+     */
+    public MigrationReport migrate(Class<?> oldClass, Class<?> newClass) {
+        MigrationReport report = new MigrationReport(newClass.getName());
+        Map<String, StaticField> oldFields = STATIC_FIELDS.get(oldClass);
+        Map<String, StaticField> newFields = STATIC_FIELDS.get(newClass);
+        Map<StaticField, Object> values = new LinkedHashMap<>();
+        boolean allCarried = true;
+
+        for (StaticField newField : newFields.values()) {
+            StaticField oldField = oldFields.get(newField.name);
+            String dropReason = null;
+
+            if (oldField == null) {
+                dropReason = "new field";
+            } else if (oldField.handle() == null) {
+                dropReason = "previous value not accessible";
+            } else if (newField.constant) {
+                dropReason = "constant";
+            } else if (!newField.writable) {
+                dropReason = "not accessible";
+            } else {
+                Object value = oldField.handle().get();
+                if (isAssignable(newField.type, oldField.type, value)) {
+                    values.put(newField, value);
+                } else {
+                    dropReason = "incompatible type " + oldField.type.getName();
+                }
+            }
+
+            if (dropReason != null) {
+                report.drop(newField.name, dropReason);
+                allCarried = false;
+            }
+        }
+
+        for (String oldName : oldFields.keySet()) {
+            if (!newFields.containsKey(oldName)) {
+                report.drop(oldName, "removed");
+            }
+        }
+
+        // Only skip the initializer if no field would be left at its default value
+        if (allCarried && !values.isEmpty()) {
+            skipInitializer.add(newClass.getName());
+            report.initializerSkipped = true;
+        }
+
+        try {
+            // Resolving the first static VarHandle initializes the class
+            for (Map.Entry<StaticField, Object> entry : values.entrySet()) {
+                entry.getKey().handle().set(entry.getValue());
+                report.carry(entry.getKey().name);
+            }
+        } finally {
+            skipInitializer.remove(newClass.getName());
+        }
+
+        return report;
+    }
+
+    private static boolean isAssignable(Class<?> newType, Class<?> oldType, Object value) {
+        if (newType.isPrimitive() || oldType.isPrimitive()) {
+            return newType == oldType;
+        }
+        return value == null ? newType.getName().equals(oldType.getName()) : newType.isInstance(value);
+    }
+
+    private static Map<String, StaticField> lookupStaticFields(Class<?> type) {
+        Map<String, StaticField> fields = new LinkedHashMap<>();
+        MethodHandles.Lookup lookup;
+
+        try {
+            lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            lookup = null;
+        }
+
+        for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                fields.put(field.getName(), new StaticField(lookup, type, field));
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * Cached accessor for one static field.
+     *
+     * The {@link VarHandle} is resolved on first use, because resolving a static
+     * field handle initializes the declaring class.
+     */
+    private static final class StaticField {
+        final String name;
+        final Class<?> type;
+        final boolean constant;
+        final boolean writable;
+        private final MethodHandles.Lookup lookup;
+        private final Class<?> owner;
+        private volatile VarHandle handle;
+        private volatile boolean resolved = false;
+
+        StaticField(MethodHandles.Lookup lookup, Class<?> owner, Field field) {
+            this.name = field.getName();
+            this.type = field.getType();
+            this.lookup = lookup;
+            this.owner = owner;
+            // Only constants are still final after prepareBytecode; old fields only need to be read
+            this.constant = Modifier.isFinal(field.getModifiers());
+            this.writable = lookup != null;
+        }
+
+        VarHandle handle() {
+            if (!resolved) {
+                if (lookup != null) {
+                    try {
+                        handle = lookup.findStaticVarHandle(owner, name, type);
+                    } catch (ReflectiveOperationException e) {
+                        // Reported as not accessible
+                    }
+                }
+                resolved = true;
+            }
+            return handle;
+        }
+    }
+
+    /**
+     * Which static fields were carried over to a new class version and which were dropped
+     */
+    public static final class MigrationReport {
+        private final String className;
+        private final List<String> carried = new ArrayList<>();
+        private final Map<String, String> dropped = new LinkedHashMap<>();
+        private boolean initializerSkipped = false;
+
+        MigrationReport(String className) {
+            this.className = className;
+        }
+
+        void carry(String field) {
+            carried.add(field);
+        }
+
+        void drop(String field, String reason) {
+            dropped.put(field, reason);
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public List<String> getCarried() {
+            return Collections.unmodifiableList(carried);
+        }
+
+        /**
+         * Dropped fields with the reason
+         */
+        public Map<String, String> getDropped() {
+            return Collections.unmodifiableMap(dropped);
+        }
+
+        /**
+         * Whether the static initializer of the new version was skipped
+         */
+        public boolean isInitializerSkipped() {
+            return initializerSkipped;
+        }
+
+        @Override
+        public String toString() {
+            return className + ": carried " + carried + ", dropped " + dropped
+                + (initializerSkipped ? ", static initializer skipped" : "");
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.mmdr.hotreload;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+import java.util.*;
+
+/**
+ * Gives the lambda methods of a new class version the names they have in the
+ * current version.
+ *
+ * javac numbers {@code lambda$method$N} methods in the order it compiles
+ * them, so adding a lambda renames all lambdas after it, and changing a body
+ * can move a lambda between methods. The renamed methods make the class look
+ * like it lost and gained members, which rules out redefining it in place.
+ *
+ * Each lambda is identified by where it is created instead of by its name:
+ * the enclosing method (or enclosing lambda, for nested ones), the functional
+ * interface method, the descriptor of the implementation, and its position
+ * among lambdas sharing all of those. Lambdas found in both versions get
+ * their current name; new ones get a name no other method uses. The result
+ * only depends on the two class files, so repeated reloads of the same source
+ * produce the same bytecode.
+ *
+ * Classes with serializable lambdas are left alone, since
+ * {@code $deserializeLambda$} refers to implementation methods by name.
+ *
+ * @author MMDR Team
+ */
+final class SyntheticMemberNormalizer {
+    private static final String METAFACTORY = "java/lang/invoke/LambdaMetafactory";
+    private static final String DESERIALIZE_LAMBDA = "$deserializeLambda$";
+
+    private SyntheticMemberNormalizer() {
+    }
+
+    /**
+     * Rename the lambda methods of {@code current} to match {@code previous}
+     *
+     * @param previous Bytecode of the version in use
+     * @param current Bytecode of the new version
+     * @return {@code current} itself if nothing needs renaming, otherwise renamed bytecode
+     */
+    static byte[] normalize(byte[] previous, byte[] current) {
+        LambdaSites before = LambdaSites.scan(previous);
+        LambdaSites after = LambdaSites.scan(current);
+
+        if (before == null || after == null || !before.className.equals(after.className)) {
+            return current;
+        }
+
+        Map<String, String> renames = planRenames(before, after);
+        if (renames.isEmpty()) {
+            return current;
+        }
+
+        Map<String, String> mapping = new HashMap<>();
+        renames.forEach((name, newName) ->
+            mapping.put(after.className + '.' + name + after.lambdaMethods.get(name), newName));
+
+        ClassWriter writer = new ClassWriter(0);
+        new ClassReader(current).accept(new ClassRemapper(writer, new SimpleRemapper(mapping)), 0);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Decide the new name of each lambda method of {@code after} whose name changes
+     */
+    private static Map<String, String> planRenames(LambdaSites before, LambdaSites after) {
+        Map<String, String> previousNames = before.namesByIdentity();
+        Map<String, String> currentNames = after.namesByIdentity();
+
+        // Lambdas that also exist in the previous version keep their previous name
+        Map<String, String> finalNames = new LinkedHashMap<>();
+        Set<String> taken = new HashSet<>(after.methodNames);
+        taken.removeAll(after.lambdaMethods.keySet());
+
+        for (Map.Entry<String, String> entry : currentNames.entrySet()) {
+            String previousName = previousNames.get(entry.getKey());
+            if (previousName != null) {
+                finalNames.put(entry.getValue(), previousName);
+                taken.add(previousName);
+            }
+        }
+
+        // New lambdas keep their name unless it is taken, otherwise get the next free number
+        int next = Math.max(before.highestLambdaNumber(), after.highestLambdaNumber()) + 1;
+        for (String name : after.lambdaMethods.keySet()) {
+            if (finalNames.containsKey(name)) {
+                continue;
+            }
+            String newName = name;
+            while (taken.contains(newName)) {
+                newName = name.substring(0, name.lastIndexOf('$') + 1) + next++;
+            }
+            finalNames.put(name, newName);
+            taken.add(newName);
+        }
+
+        Map<String, String> renames = new LinkedHashMap<>();
+        finalNames.forEach((name, newName) -> {
+            if (!name.equals(newName)) {
+                renames.put(name, newName);
+            }
+        });
+        return renames;
+    }
+
+    /**
+     * The lambdas a class creates, in the order they appear in the class file
+     */
+    private static final class LambdaSites {
+        final String className;
+        final Map<String, String> lambdaMethods = new LinkedHashMap<>();
+        final Set<String> methodNames = new HashSet<>();
+        final List<Site> sites = new ArrayList<>();
+        boolean serializable;
+
+        private LambdaSites(String className) {
+            this.className = className;
+        }
+
+        /**
+         * Read the lambda creation sites of a class, or null if its lambdas cannot be normalized
+         */
+        static LambdaSites scan(byte[] bytecode) {
+            ClassReader reader = new ClassReader(bytecode);
+            LambdaSites result = new LambdaSites(reader.getClassName());
+
+            reader.accept(new ClassVisitor(Opcodes.ASM9) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                                 String[] exceptions) {
+                    result.methodNames.add(name);
+                    if (DESERIALIZE_LAMBDA.equals(name)) {
+                        result.serializable = true;
+                    }
+                    if ((access & Opcodes.ACC_SYNTHETIC) != 0 && ClassSchema.isLambdaMethod(name)) {
+                        result.lambdaMethods.put(name, descriptor);
+                    }
+
+                    return new MethodVisitor(Opcodes.ASM9) {
+                        @Override
+                        public void visitInvokeDynamicInsn(String indyName, String indyDescriptor, Handle bootstrap,
+                                                           Object... arguments) {
+                            if (METAFACTORY.equals(bootstrap.getOwner())
+                                    && arguments.length >= 2
+                                    && arguments[1] instanceof Handle implementation
+                                    && result.className.equals(implementation.getOwner())
+                                    && ClassSchema.isLambdaMethod(implementation.getName())) {
+                                String samMethod = indyName + arguments[0];
+                                result.sites.add(new Site(name, descriptor, samMethod,
+                                    implementation.getName(), implementation.getDesc()));
+                            }
+                        }
+                    };
+                }
+            }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+            return result.serializable || result.hasAmbiguousSites() ? null : result;
+        }
+
+        /**
+         * Whether a lambda method is created at more than one site or at none,
+         * so it has no single identity
+         */
+        private boolean hasAmbiguousSites() {
+            Set<String> created = new HashSet<>();
+            for (Site site : sites) {
+                if (!created.add(site.implementation) || !lambdaMethods.containsKey(site.implementation)) {
+                    return true;
+                }
+            }
+            return created.size() != lambdaMethods.size();
+        }
+
+        /**
+         * Lambda method names keyed by their identity
+         */
+        Map<String, String> namesByIdentity() {
+            Map<String, Site> siteOf = new HashMap<>();
+            for (Site site : sites) {
+                siteOf.put(site.implementation, site);
+            }
+
+            Map<Site, String> keys = new HashMap<>();
+            Map<String, Integer> ordinals = new HashMap<>();
+            Map<String, String> names = new LinkedHashMap<>();
+
+            for (Site site : sites) {
+                String key = key(site, siteOf, keys, new HashSet<>());
+                if (key == null) {
+                    return Map.of();
+                }
+                int ordinal = ordinals.merge(key, 1, Integer::sum);
+                names.put(key + '#' + ordinal, site.implementation);
+            }
+            return names;
+        }
+
+        /**
+         * Identity of a site without its ordinal. Lambdas nested in lambdas are
+         * keyed by the key of the enclosing lambda, since its name may change too.
+         */
+        private static String key(Site site, Map<String, Site> siteOf, Map<Site, String> keys, Set<Site> visiting) {
+            String known = keys.get(site);
+            if (known != null) {
+                return known;
+            }
+            if (!visiting.add(site)) {
+                return null;
+            }
+
+            Site enclosing = siteOf.get(site.enclosingName);
+            String enclosingKey = enclosing != null
+                ? key(enclosing, siteOf, keys, visiting)
+                : site.enclosingName + site.enclosingDescriptor;
+            if (enclosingKey == null) {
+                return null;
+            }
+
+            String key = enclosingKey + " -> " + site.samMethod + ' ' + site.implementationDescriptor;
+            keys.put(site, key);
+            return key;
+        }
+
+        /**
+         * Highest number any lambda method name ends with
+         */
+        int highestLambdaNumber() {
+            int highest = -1;
+            for (String name : lambdaMethods.keySet()) {
+                try {
+                    highest = Math.max(highest, Integer.parseInt(name.substring(name.lastIndexOf('$') + 1)));
+                } catch (NumberFormatException e) {
+                    // Not numbered by javac
+                }
+            }
+            return highest;
+        }
+    }
+
+    /**
+     * One {@code invokedynamic} creating a lambda backed by a method of the class itself
+     */
+    private static final class Site {
+        final String enclosingName;
+        final String enclosingDescriptor;
+        final String samMethod;
+        final String implementation;
+        final String implementationDescriptor;
+
+        Site(String enclosingName, String enclosingDescriptor, String samMethod,
+             String implementation, String implementationDescriptor) {
+            this.enclosingName = enclosingName;
+            this.enclosingDescriptor = enclosingDescriptor;
+            this.samMethod = samMethod;
+            this.implementation = implementation;
+            this.implementationDescriptor = implementationDescriptor;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.mmdr.hotreload;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+/**
+ * A single bytecode transformation applied by {@link BytecodeTransformer}.
+ *
+ * Passes run in registration order. A pass is only asked for a visitor if
+ * {@link #appliesTo} returns true, so passes should decide from the class
+ * header alone whenever possible.
+ *
+ * @author MMDR Team
+ */
+public interface TransformPass {
+
+    /**
+     * Whether this pass modifies the given class
+     *
+     * @param className Fully qualified class name
+     * @param reader Reader over the original bytecode; only the header has been parsed
+     */
+    boolean appliesTo(String className, ClassReader reader);
+
+    /**
+     * Create the visitor that performs this pass, delegating to {@code next}
+     */
+    ClassVisitor createVisitor(ClassVisitor next, String className);
+
+    /**
+     * {@link org.objectweb.asm.ClassWriter} flags this pass needs. Only request
+     * {@code COMPUTE_FRAMES} if the pass changes control flow in a way that
+     * cannot be described by adjusting existing frames.
+     */
+    default int writerFlags() {
+        return 0;
+    }
+
+    /**
+     * {@link ClassReader} parsing options this pass needs, e.g. {@code EXPAND_FRAMES}
+     */
+    default int readerFlags() {
+        return 0;
+    }
+
+    /**
+     * Name used in logs
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,249 @@
+package com.mmdr.profiler;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runtime side of method-level profiling.
+ *
+ * Classes instrumented by {@link ProfilingPass} call {@link #enter()} and
+ * {@link #exit(int, long)} around every method. Each thread records into its
+ * own striped {@code long[]}, indexed by method id, holding the call count,
+ * total time and a log2 latency histogram. Recording does not allocate or
+ * synchronize once a thread's array has grown to cover the method id.
+ *
+ * Snapshots read other threads' counters without locking, so values are
+ * approximate while methods are running.
+ *
+ * @author MMDR Team
+ */
+public final class MethodProfiler {
+    /** Histogram buckets: [0] is below 1 µs, bucket i covers [2^(i+9), 2^(i+10)) ns */
+    public static final int BUCKETS = 16;
+    private static final int MIN_BUCKET_SHIFT = 10;
+
+    private static final int COUNT = 0;
+    private static final int TOTAL_NANOS = 1;
+    private static final int HISTOGRAM = 2;
+    private static final int STRIDE = HISTOGRAM + BUCKETS;
+
+    private static final Map<String, Integer> methodIds = new ConcurrentHashMap<>();
+    private static final List<String> methodNames = new CopyOnWriteArrayList<>();
+    private static final List<ThreadCounters> allCounters = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<ThreadCounters> localCounters = ThreadLocal.withInitial(() -> {
+        ThreadCounters counters = new ThreadCounters();
+        allCounters.add(counters);
+        return counters;
+    });
+
+    private static volatile boolean recording = true;
+
+    private MethodProfiler() {
+    }
+
+    /**
+     * Get or assign the id of a method. Ids are stable for the lifetime of the JVM,
+     * so a reloaded method keeps accumulating into the same counters.
+     *
+     * @param methodKey Method identifier, e.g. {@code com.example.Foo#tick()V}
+     */
+    public static int register(String methodKey) {
+        Integer id = methodIds.get(methodKey);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (methodNames) {
+            return methodIds.computeIfAbsent(methodKey, key -> {
+                methodNames.add(key);
+                return methodNames.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * Called on method entry by instrumented code
+     *
+     * @return Start timestamp to pass to {@link #exit(int, long)}
+     */
+    public static long enter() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Called on method exit by instrumented code
+     */
+    public static void exit(int methodId, long startNanos) {
+        if (!recording) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - startNanos;
+        ThreadCounters counters = localCounters.get();
+        long[] data = counters.data;
+        int base = methodId * STRIDE;
+
+        if (base + STRIDE > data.length) {
+            data = counters.grow(base + STRIDE);
+        }
+
+        data[base + COUNT]++;
+        data[base + TOTAL_NANOS] += elapsed;
+        data[base + HISTOGRAM + bucketOf(elapsed)]++;
+    }
+
+    static int bucketOf(long nanos) {
+        int bucket = 63 - Long.numberOfLeadingZeros(nanos | 1) - MIN_BUCKET_SHIFT + 1;
+        return Math.max(0, Math.min(BUCKETS - 1, bucket));
+    }
+
+    /**
+     * Pause or resume recording without removing instrumentation
+     */
+    public static void setRecording(boolean recording) {
+        MethodProfiler.recording = recording;
+    }
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Number of methods that have been instrumented
+     */
+    public static int getMethodCount() {
+        return methodNames.size();
+    }
+
+    /**
+     * Clear all recorded counters
+     */
+    public static void reset() {
+        for (ThreadCounters counters : allCounters) {
+            Arrays.fill(counters.data, 0L);
+        }
+    }
+
+    /**
+     * Aggregate the counters of all threads
+     *
+     * @return Stats for every method called at least once, slowest total time first
+     */
+    public static List<MethodStats> snapshot() {
+        int methodCount = methodNames.size();
+        long[] totals = new long[methodCount * STRIDE];
+
+        for (ThreadCounters counters : allCounters) {
+            long[] data = counters.data;
+            int length = Math.min(data.length, totals.length);
+            for (int i = 0; i < length; i++) {
+                totals[i] += data[i];
+            }
+        }
+
+        List<MethodStats> stats = new ArrayList<>();
+        for (int id = 0; id < methodCount; id++) {
+            int base = id * STRIDE;
+            if (totals[base + COUNT] > 0) {
+                long[] histogram = Arrays.copyOfRange(totals, base + HISTOGRAM, base + STRIDE);
+                stats.add(new MethodStats(methodNames.get(id), totals[base + COUNT], totals[base + TOTAL_NANOS], histogram));
+            }
+        }
+
+        stats.sort(Comparator.comparingLong(MethodStats::getTotalNanos).reversed());
+        return stats;
+    }
+
+    /**
+     * Write a text report of the current snapshot
+     */
+    public static void dump(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.printf("%-80s %12s %12s %12s %12s%n", "method", "calls", "total ms", "avg us", "p95 us");
+            for (MethodStats stat : snapshot()) {
+                out.printf("%-80s %12d %12.3f %12.3f %12.3f%n",
+                    stat.getMethod(),
+                    stat.getCalls(),
+                    stat.getTotalNanos() / 1_000_000.0,
+                    stat.getAverageNanos() / 1_000.0,
+                    stat.getPercentileNanos(0.95) / 1_000.0);
+            }
+        }
+    }
+
+    /**
+     * Per-thread counter storage
+     */
+    private static final class ThreadCounters {
+        volatile long[] data = new long[64 * STRIDE];
+
+        long[] grow(int minLength) {
+            long[] grown = Arrays.copyOf(data, Math.max(minLength, data.length * 2));
+            data = grown;
+            return grown;
+        }
+    }
+
+    /**
+     * Aggregated statistics for one method
+     */
+    public static final class MethodStats {
+        private final String method;
+        private final long calls;
+        private final long totalNanos;
+        private final long[] histogram;
+
+        MethodStats(String method, long calls, long totalNanos, long[] histogram) {
+            this.method = method;
+            this.calls = calls;
+            this.totalNanos = totalNanos;
+            this.histogram = histogram;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public double getAverageNanos() {
+            return calls == 0 ? 0 : (double) totalNanos / calls;
+        }
+
+        /**
+         * Approximate percentile from the histogram (upper bound of the bucket)
+         */
+        public long getPercentileNanos(double percentile) {
+            long target = (long) Math.ceil(calls * percentile);
+            long seen = 0;
+
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= target) {
+                    return 1L << (i + MIN_BUCKET_SHIFT);
+                }
+            }
+
+            return 1L << (histogram.length - 1 + MIN_BUCKET_SHIFT);
+        }
+
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.mmdr.profiler;
+
+import com.mmdr.hotreload.TransformPass;
+import com.mmdr.util.MMDRConfig;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
+
+/**
+ * Opt-in transform pass that injects entry/exit timing into methods of the
+ * configured packages, recording into {@link MethodProfiler}.
+ *
+ * Only control flow that leaves a method through a return, or through an
+ * explicit {@code throw} in a method without exception handlers, is timed;
+ * exits caused by an exception propagating from a callee are not recorded.
+ * This keeps the pass free of extra exception handlers, so existing stack map
+ * frames only need local variable remapping.
+ *
+ * @author MMDR Team
+ */
+public class ProfilingPass implements TransformPass {
+    private static final String PROFILER = Type.getInternalName(MethodProfiler.class);
+    private static final int CONSTANT_CLASS = 7;
+
+    private final MMDRConfig config;
+
+    public ProfilingPass(MMDRConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public boolean appliesTo(String className, ClassReader reader) {
+        return config.isMethodProfilingEnabled() && (reader.getAccess() & Opcodes.ACC_INTERFACE) == 0
+            && config.isProfiledClass(className) && !isInstrumented(reader);
+    }
+
+    /**
+     * Whether a class already calls {@link MethodProfiler}, e.g. because it is
+     * retransformed after being redefined with instrumented bytecode
+     */
+    static boolean isInstrumented(ClassReader reader) {
+        char[] buffer = new char[reader.getMaxStringLength()];
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            // The second slot of a long or double constant has no offset
+            int offset = reader.getItem(i);
+            if (offset > 0 && reader.readByte(offset - 1) == CONSTANT_CLASS
+                && PROFILER.equals(reader.readUTF8(offset, buffer))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ClassVisitor createVisitor(ClassVisitor next, String className) {
+        return new ClassVisitor(Opcodes.ASM9, next) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+
+                boolean skip = (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE | Opcodes.ACC_BRIDGE)) != 0
+                    || "<clinit>".equals(name);
+                if (skip || mv == null) {
+                    return mv;
+                }
+
+                int methodId = MethodProfiler.register(className + "#" + name + descriptor);
+                return new TimingAdapter(mv, access, name, descriptor, methodId);
+            }
+        };
+    }
+
+    @Override
+    public int writerFlags() {
+        return ClassWriter.COMPUTE_MAXS;
+    }
+
+    @Override
+    public int readerFlags() {
+        // Required by LocalVariablesSorter to remap frames for the new local
+        return ClassReader.EXPAND_FRAMES;
+    }
+
+    /**
+     * Stores the entry timestamp in a fresh local and reports it on every exit
+     */
+    private static final class TimingAdapter extends AdviceAdapter {
+        private final int methodId;
+        private int startLocal;
+        private boolean hasTryCatch = false;
+
+        TimingAdapter(MethodVisitor mv, int access, String name, String descriptor, int methodId) {
+            super(Opcodes.ASM9, mv, access, name, descriptor);
+            this.methodId = methodId;
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            // ClassReader visits the exception table before any instruction
+            hasTryCatch = true;
+            super.visitTryCatchBlock(start, end, handler, type);
+        }
+
+        @Override
+        protected void onMethodEnter() {
+            startLocal = newLocal(Type.LONG_TYPE);
+            visitMethodInsn(INVOKESTATIC, PROFILER, "enter", "()J", false);
+            storeLocal(startLocal, Type.LONG_TYPE);
+        }
+
+        @Override
+        protected void onMethodExit(int opcode) {
+            // A throw inside a method with handlers may be caught locally
+            if (opcode == ATHROW && hasTryCatch) {
+                return;
+            }
+
+            push(methodId);
+            loadLocal(startLocal, Type.LONG_TYPE);
+            visitMethodInsn(INVOKESTATIC, PROFILER, "exit", "(IJ)V", false);
+        }
+    }
+}
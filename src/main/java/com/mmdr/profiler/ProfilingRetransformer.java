@@ -0,0 +1,148 @@
+package com.mmdr.profiler;
+
+import com.mmdr.hotreload.BytecodeTransformer;
+import com.mmdr.hotreload.InstrumentationProvider;
+import com.mmdr.util.Log;
+import com.mmdr.util.MMDRConfig;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies {@link ProfilingPass} to classes that are already loaded, by
+ * retransforming them through the instrumentation agent.
+ *
+ * Without it the pass only reaches classes as they are reloaded. A class is
+ * retransformed from the bytecode it was last defined or redefined with, so
+ * retransforming it again without the pass removes the instrumentation.
+ * Classes first loaded after {@link #instrument} are only covered once they
+ * are reloaded or {@link #instrument} is called again.
+ *
+ * Must be called on the thread that reloads classes, so that a redefinition
+ * does not run while the transformer is registered.
+ *
+ * @author MMDR Team
+ */
+public final class ProfilingRetransformer {
+    private static final Set<Class<?>> instrumented = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private ProfilingRetransformer() {
+    }
+
+    /**
+     * Whether loaded classes can be retransformed in this JVM
+     */
+    public static boolean isSupported() {
+        Instrumentation instrumentation = InstrumentationProvider.get();
+        return instrumentation != null && instrumentation.isRetransformClassesSupported();
+    }
+
+    /**
+     * Instrument the loaded classes of the profiled packages
+     *
+     * @return Number of classes newly instrumented, or -1 if classes cannot be retransformed
+     */
+    public static synchronized int instrument(MMDRConfig config) {
+        if (!isSupported()) {
+            return -1;
+        }
+
+        Instrumentation instrumentation = InstrumentationProvider.get();
+        Set<Class<?>> targets = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
+            if (!instrumented.contains(clazz) && !clazz.isInterface() && !clazz.isArray()
+                && instrumentation.isModifiableClass(clazz) && config.isProfiledClass(clazz.getName())) {
+                targets.add(clazz);
+            }
+        }
+
+        if (targets.isEmpty()) {
+            return 0;
+        }
+
+        BytecodeTransformer transformer = new BytecodeTransformer();
+        transformer.addPass(new ProfilingPass(config));
+        ClassFileTransformer profiler = new ClassFileTransformer() {
+            @Override
+            public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                                    ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+                if (classBeingRedefined == null || !targets.contains(classBeingRedefined)) {
+                    return null;
+                }
+
+                try {
+                    byte[] transformed = transformer.transform(classBeingRedefined.getName(), classfileBuffer);
+                    return transformed == classfileBuffer ? null : transformed;
+                } catch (RuntimeException e) {
+                    Log.LOGGER.warn("Failed to instrument {} for profiling", classBeingRedefined.getName(), e);
+                    return null;
+                }
+            }
+        };
+
+        instrumentation.addTransformer(profiler, true);
+        try {
+            List<Class<?>> retransformed = retransform(instrumentation, targets);
+            instrumented.addAll(retransformed);
+            Log.LOGGER.info("Instrumented {} loaded class(es) for profiling", retransformed.size());
+            return retransformed.size();
+        } finally {
+            instrumentation.removeTransformer(profiler);
+        }
+    }
+
+    /**
+     * Retransform the instrumented classes without the profiling pass
+     *
+     * @return Number of classes restored
+     */
+    public static synchronized int restore() {
+        if (instrumented.isEmpty() || !isSupported()) {
+            return 0;
+        }
+
+        List<Class<?>> restored = retransform(InstrumentationProvider.get(), instrumented);
+        instrumented.clear();
+        Log.LOGGER.info("Removed profiling from {} loaded class(es)", restored.size());
+        return restored.size();
+    }
+
+    /**
+     * Number of loaded classes currently instrumented through retransformation
+     */
+    public static synchronized int getInstrumentedCount() {
+        return instrumented.size();
+    }
+
+    /**
+     * Retransform all classes at once, or one by one if that fails, so that
+     * a single class that cannot be retransformed does not hold back the rest
+     *
+     * @return Classes that were retransformed
+     */
+    private static List<Class<?>> retransform(Instrumentation instrumentation, Set<Class<?>> classes) {
+        try {
+            instrumentation.retransformClasses(classes.toArray(new Class<?>[0]));
+            return new ArrayList<>(classes);
+        } catch (Exception | LinkageError e) {
+            Log.LOGGER.debug("Could not retransform {} class(es) at once, retrying one by one", classes.size(), e);
+        }
+
+        List<Class<?>> retransformed = new ArrayList<>();
+        for (Class<?> clazz : classes) {
+            try {
+                instrumentation.retransformClasses(clazz);
+                retransformed.add(clazz);
+            } catch (Exception | LinkageError e) {
+                Log.LOGGER.warn("Could not retransform {}", clazz.getName(), e);
+            }
+        }
+        return retransformed;
+    }
+}
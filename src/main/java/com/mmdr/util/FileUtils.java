@@ -1,6 +1,5 @@
 package com.mmdr.util;
 
-import com.mmdr.MMDR;
 
 import java.io.IOException;
 import java.nio.file.*;
@@ -21,7 +20,7 @@ public class FileUtils {
     public static void ensureDirectory(Path directory) throws IOException {
         if (!Files.exists(directory)) {
             Files.createDirectories(directory);
-            MMDR.LOGGER.debug("Created directory: {}", directory);
+            Log.LOGGER.debug("Created directory: {}", directory);
         }
     }
     
@@ -47,7 +46,7 @@ public class FileUtils {
             }
         });
         
-        MMDR.LOGGER.debug("Deleted directory: {}", directory);
+        Log.LOGGER.debug("Deleted directory: {}", directory);
     }
     
     /**
@@ -70,7 +69,7 @@ public class FileUtils {
             }
         });
         
-        MMDR.LOGGER.debug("Copied directory from {} to {}", source, target);
+        Log.LOGGER.debug("Copied directory from {} to {}", source, target);
     }
     
     /**
@@ -142,7 +141,7 @@ public class FileUtils {
         try {
             return Files.readAllLines(file);
         } catch (IOException e) {
-            MMDR.LOGGER.error("Failed to read file: {}", file, e);
+            Log.LOGGER.error("Failed to read file: {}", file, e);
             return new ArrayList<>();
         }
     }
@@ -155,7 +154,7 @@ public class FileUtils {
             Files.write(file, lines);
             return true;
         } catch (IOException e) {
-            MMDR.LOGGER.error("Failed to write file: {}", file, e);
+            Log.LOGGER.error("Failed to write file: {}", file, e);
             return false;
         }
     }
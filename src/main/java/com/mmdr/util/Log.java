@@ -0,0 +1,20 @@
+package com.mmdr.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logger for code that runs on both physical sides.
+ *
+ * Hot reload and its utilities log through this class instead of
+ * {@code MMDR.LOGGER}, which would load the client entry point on a
+ * dedicated server.
+ *
+ * @author MMDR Team
+ */
+public final class Log {
+    public static final Logger LOGGER = LoggerFactory.getLogger("mmdr");
+
+    private Log() {
+    }
+}
@@ -26,16 +26,26 @@ public class MMDRConfig {
     
     // Hot Reload Settings
     private boolean hotReloadEnabled = true;
+    private String reloadEngine = "transactional"; // transactional, legacy
     private boolean autoCompileEnabled = false;
+    private boolean instrumentationReloadEnabled = true;
+    private boolean staticStateMigrationEnabled = true;
     private int fileWatchInterval = 1000; // milliseconds
     private List<String> additionalWatchPaths = new ArrayList<>();
+    private List<String> sourcePaths = new ArrayList<>();
+    private List<String> includedPackages = new ArrayList<>();
     private List<String> excludedPackages = new ArrayList<>();
+    private transient volatile PackageFilter packageFilter;
     
     // Console Settings
     private boolean consoleEnabled = true;
     private int consoleMaxHistory = 100;
     private boolean consoleAutoComplete = true;
     private List<String> consoleAutoImports = new ArrayList<>();
+    private int consoleScriptCacheSize = 128;
+    private int consoleEvaluationTimeout = 10000; // milliseconds, 0 = no limit
+    private boolean consoleStaticCompilation = false;
+    private int consoleMaxOutputLines = 10000;
     
     // Inspector Settings
     private boolean inspectorEnabled = true;
@@ -54,7 +64,12 @@ public class MMDRConfig {
     
     // Performance Settings
     private int maxReloadThreads = 2;
+    private int reloadHistorySize = 5;
+    private int reloadTimelineSize = 50;
     private boolean debugLogging = false;
+    private boolean methodProfilingEnabled = false;
+    private List<String> profiledPackages = new ArrayList<>();
+    private transient volatile PackageFilter profiledPackageFilter;
     private int maxMemoryMB = 512;
     
     // UI Settings
@@ -72,14 +87,14 @@ public class MMDRConfig {
             try {
                 String json = Files.readString(configPath);
                 MMDRConfig config = GSON.fromJson(json, MMDRConfig.class);
-                MMDR.LOGGER.info("Configuration loaded from {}", configPath);
+                Log.LOGGER.info("Configuration loaded from {}", configPath);
                 return config;
             } catch (IOException e) {
-                MMDR.LOGGER.error("Failed to load configuration, using defaults", e);
+                Log.LOGGER.error("Failed to load configuration, using defaults", e);
                 return createDefault();
             }
         } else {
-            MMDR.LOGGER.info("No configuration file found, creating default");
+            Log.LOGGER.info("No configuration file found, creating default");
             MMDRConfig config = createDefault();
             config.save();
             return config;
@@ -117,9 +132,9 @@ public class MMDRConfig {
         try {
             String json = GSON.toJson(this);
             Files.writeString(configPath, json);
-            MMDR.LOGGER.info("Configuration saved to {}", configPath);
+            Log.LOGGER.info("Configuration saved to {}", configPath);
         } catch (IOException e) {
-            MMDR.LOGGER.error("Failed to save configuration", e);
+            Log.LOGGER.error("Failed to save configuration", e);
         }
     }
     
@@ -136,7 +151,7 @@ public class MMDRConfig {
     public void reload() {
         MMDRConfig newConfig = load();
         copyFrom(newConfig);
-        MMDR.LOGGER.info("Configuration reloaded");
+        Log.LOGGER.info("Configuration reloaded");
     }
     
     /**
@@ -144,15 +159,25 @@ public class MMDRConfig {
      */
     private void copyFrom(MMDRConfig other) {
         this.hotReloadEnabled = other.hotReloadEnabled;
+        this.reloadEngine = other.reloadEngine;
         this.autoCompileEnabled = other.autoCompileEnabled;
+        this.instrumentationReloadEnabled = other.instrumentationReloadEnabled;
+        this.staticStateMigrationEnabled = other.staticStateMigrationEnabled;
         this.fileWatchInterval = other.fileWatchInterval;
         this.additionalWatchPaths = new ArrayList<>(other.additionalWatchPaths);
+        this.sourcePaths = new ArrayList<>(other.sourcePaths);
+        this.includedPackages = new ArrayList<>(other.includedPackages);
         this.excludedPackages = new ArrayList<>(other.excludedPackages);
+        this.packageFilter = null;
         
         this.consoleEnabled = other.consoleEnabled;
         this.consoleMaxHistory = other.consoleMaxHistory;
         this.consoleAutoComplete = other.consoleAutoComplete;
         this.consoleAutoImports = new ArrayList<>(other.consoleAutoImports);
+        this.consoleScriptCacheSize = other.consoleScriptCacheSize;
+        this.consoleEvaluationTimeout = other.consoleEvaluationTimeout;
+        this.consoleStaticCompilation = other.consoleStaticCompilation;
+        this.consoleMaxOutputLines = other.consoleMaxOutputLines;
         
         this.inspectorEnabled = other.inspectorEnabled;
         this.inspectorShowNBT = other.inspectorShowNBT;
@@ -168,7 +193,12 @@ public class MMDRConfig {
         this.defaultTestFramework = other.defaultTestFramework;
         
         this.maxReloadThreads = other.maxReloadThreads;
+        this.reloadHistorySize = other.reloadHistorySize;
+        this.reloadTimelineSize = other.reloadTimelineSize;
         this.debugLogging = other.debugLogging;
+        this.methodProfilingEnabled = other.methodProfilingEnabled;
+        this.profiledPackages = new ArrayList<>(other.profiledPackages);
+        this.profiledPackageFilter = null;
         this.maxMemoryMB = other.maxMemoryMB;
         
         this.overlayScale = other.overlayScale;
@@ -189,26 +219,50 @@ public class MMDRConfig {
     public boolean validate() {
         boolean valid = true;
         
+        if (!"transactional".equals(reloadEngine) && !"legacy".equals(reloadEngine)) {
+            Log.LOGGER.warn("Unknown reloadEngine '{}', using transactional", reloadEngine);
+            reloadEngine = "transactional";
+            valid = false;
+        }
+        
         if (fileWatchInterval < 100) {
-            MMDR.LOGGER.warn("fileWatchInterval too low, setting to 100ms");
+            Log.LOGGER.warn("fileWatchInterval too low, setting to 100ms");
             fileWatchInterval = 100;
             valid = false;
         }
         
         if (consoleMaxHistory < 10) {
-            MMDR.LOGGER.warn("consoleMaxHistory too low, setting to 10");
+            Log.LOGGER.warn("consoleMaxHistory too low, setting to 10");
             consoleMaxHistory = 10;
             valid = false;
         }
         
+        if (consoleMaxOutputLines < 100) {
+            Log.LOGGER.warn("consoleMaxOutputLines too low, setting to 100");
+            consoleMaxOutputLines = 100;
+            valid = false;
+        }
+        
         if (maxReloadThreads < 1) {
-            MMDR.LOGGER.warn("maxReloadThreads too low, setting to 1");
+            Log.LOGGER.warn("maxReloadThreads too low, setting to 1");
             maxReloadThreads = 1;
             valid = false;
         }
         
+        if (reloadHistorySize < 1) {
+            Log.LOGGER.warn("reloadHistorySize too low, setting to 1");
+            reloadHistorySize = 1;
+            valid = false;
+        }
+        
+        if (reloadTimelineSize < 1) {
+            Log.LOGGER.warn("reloadTimelineSize too low, setting to 1");
+            reloadTimelineSize = 1;
+            valid = false;
+        }
+        
         if (overlayScale < 50 || overlayScale > 200) {
-            MMDR.LOGGER.warn("overlayScale out of range, setting to 100");
+            Log.LOGGER.warn("overlayScale out of range, setting to 100");
             overlayScale = 100;
             valid = false;
         }
@@ -226,6 +280,17 @@ public class MMDRConfig {
         this.hotReloadEnabled = hotReloadEnabled;
     }
     
+    /**
+     * Reload engine implementation: {@code transactional} or {@code legacy}
+     */
+    public String getReloadEngine() {
+        return reloadEngine;
+    }
+    
+    public void setReloadEngine(String reloadEngine) {
+        this.reloadEngine = reloadEngine;
+    }
+    
     public boolean isAutoCompileEnabled() {
         return autoCompileEnabled;
     }
@@ -234,6 +299,22 @@ public class MMDRConfig {
         this.autoCompileEnabled = autoCompileEnabled;
     }
     
+    public boolean isInstrumentationReloadEnabled() {
+        return instrumentationReloadEnabled;
+    }
+    
+    public void setInstrumentationReloadEnabled(boolean instrumentationReloadEnabled) {
+        this.instrumentationReloadEnabled = instrumentationReloadEnabled;
+    }
+    
+    public boolean isStaticStateMigrationEnabled() {
+        return staticStateMigrationEnabled;
+    }
+    
+    public void setStaticStateMigrationEnabled(boolean staticStateMigrationEnabled) {
+        this.staticStateMigrationEnabled = staticStateMigrationEnabled;
+    }
+    
     public int getFileWatchInterval() {
         return fileWatchInterval;
     }
@@ -256,6 +337,24 @@ public class MMDRConfig {
         additionalWatchPaths.remove(path);
     }
     
+    /**
+     * Source directories compiled when auto-compile is enabled.
+     * Empty means {@code src/main/java} in the game directory.
+     */
+    public List<String> getSourcePaths() {
+        return new ArrayList<>(sourcePaths);
+    }
+    
+    public void addSourcePath(String path) {
+        if (!sourcePaths.contains(path)) {
+            sourcePaths.add(path);
+        }
+    }
+    
+    public void removeSourcePath(String path) {
+        sourcePaths.remove(path);
+    }
+    
     public List<String> getExcludedPackages() {
         return new ArrayList<>(excludedPackages);
     }
@@ -263,17 +362,48 @@ public class MMDRConfig {
     public void addExcludedPackage(String packageName) {
         if (!excludedPackages.contains(packageName)) {
             excludedPackages.add(packageName);
+            packageFilter = null;
         }
     }
     
-    public boolean isPackageExcluded(String className) {
-        for (String excluded : excludedPackages) {
-            String pattern = excluded.replace("*", ".*");
-            if (className.matches(pattern)) {
-                return true;
-            }
+    public void removeExcludedPackage(String packageName) {
+        if (excludedPackages.remove(packageName)) {
+            packageFilter = null;
+        }
+    }
+    
+    public List<String> getIncludedPackages() {
+        return new ArrayList<>(includedPackages);
+    }
+    
+    public void addIncludedPackage(String packageName) {
+        if (!includedPackages.contains(packageName)) {
+            includedPackages.add(packageName);
+            packageFilter = null;
         }
-        return false;
+    }
+    
+    public void removeIncludedPackage(String packageName) {
+        if (includedPackages.remove(packageName)) {
+            packageFilter = null;
+        }
+    }
+    
+    /**
+     * Get the included and excluded packages compiled into a filter. The same
+     * instance is returned until the rules change.
+     */
+    public PackageFilter getPackageFilter() {
+        PackageFilter filter = packageFilter;
+        if (filter == null) {
+            filter = PackageFilter.compile(includedPackages, excludedPackages);
+            packageFilter = filter;
+        }
+        return filter;
+    }
+    
+    public boolean isPackageExcluded(String className) {
+        return !getPackageFilter().includes(className);
     }
     
     // ===== Console Getters/Setters =====
@@ -312,6 +442,50 @@ public class MMDRConfig {
         }
     }
     
+    /**
+     * Number of compiled console snippets kept for re-running without compilation
+     */
+    public int getConsoleScriptCacheSize() {
+        return consoleScriptCacheSize;
+    }
+    
+    public void setConsoleScriptCacheSize(int consoleScriptCacheSize) {
+        this.consoleScriptCacheSize = consoleScriptCacheSize;
+    }
+    
+    /**
+     * Milliseconds a console snippet may run before it is cancelled, 0 for no limit
+     */
+    public int getConsoleEvaluationTimeout() {
+        return consoleEvaluationTimeout;
+    }
+    
+    public void setConsoleEvaluationTimeout(int consoleEvaluationTimeout) {
+        this.consoleEvaluationTimeout = consoleEvaluationTimeout;
+    }
+    
+    /**
+     * Whether console snippets are compiled with {@code @CompileStatic} by default
+     */
+    public boolean isConsoleStaticCompilation() {
+        return consoleStaticCompilation;
+    }
+    
+    public void setConsoleStaticCompilation(boolean consoleStaticCompilation) {
+        this.consoleStaticCompilation = consoleStaticCompilation;
+    }
+    
+    /**
+     * Number of wrapped console output lines kept for scrollback
+     */
+    public int getConsoleMaxOutputLines() {
+        return consoleMaxOutputLines;
+    }
+    
+    public void setConsoleMaxOutputLines(int consoleMaxOutputLines) {
+        this.consoleMaxOutputLines = consoleMaxOutputLines;
+    }
+    
     // ===== Inspector Getters/Setters =====
     
     public boolean isInspectorEnabled() {
@@ -414,6 +588,28 @@ public class MMDRConfig {
         this.maxReloadThreads = maxReloadThreads;
     }
     
+    /**
+     * Number of committed reload batches kept for rollback
+     */
+    public int getReloadHistorySize() {
+        return reloadHistorySize;
+    }
+    
+    public void setReloadHistorySize(int reloadHistorySize) {
+        this.reloadHistorySize = reloadHistorySize;
+    }
+    
+    /**
+     * Number of most recent reloads whose stage timings are kept for {@code /reload stats}
+     */
+    public int getReloadTimelineSize() {
+        return reloadTimelineSize;
+    }
+    
+    public void setReloadTimelineSize(int reloadTimelineSize) {
+        this.reloadTimelineSize = reloadTimelineSize;
+    }
+    
     public boolean isDebugLogging() {
         return debugLogging;
     }
@@ -422,6 +618,44 @@ public class MMDRConfig {
         this.debugLogging = debugLogging;
     }
     
+    public boolean isMethodProfilingEnabled() {
+        return methodProfilingEnabled;
+    }
+    
+    public void setMethodProfilingEnabled(boolean methodProfilingEnabled) {
+        this.methodProfilingEnabled = methodProfilingEnabled;
+    }
+    
+    public List<String> getProfiledPackages() {
+        return new ArrayList<>(profiledPackages);
+    }
+    
+    public void addProfiledPackage(String packageName) {
+        if (!profiledPackages.contains(packageName)) {
+            profiledPackages.add(packageName);
+            profiledPackageFilter = null;
+        }
+    }
+    
+    public void removeProfiledPackage(String packageName) {
+        if (profiledPackages.remove(packageName)) {
+            profiledPackageFilter = null;
+        }
+    }
+    
+    /**
+     * Whether a class is in one of the profiled packages or their
+     * subpackages. MMDR's own classes are never profiled.
+     */
+    public boolean isProfiledClass(String className) {
+        PackageFilter filter = profiledPackageFilter;
+        if (filter == null) {
+            filter = PackageFilter.compile(profiledPackages, List.of("com.mmdr"));
+            profiledPackageFilter = filter;
+        }
+        return !profiledPackages.isEmpty() && filter.includes(className);
+    }
+    
     public int getMaxMemoryMB() {
         return maxMemoryMB;
     }
@@ -0,0 +1,218 @@
+package com.mmdr.util;
+
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Package include and exclude rules compiled into a trie of package segments.
+ *
+ * A rule names a package and applies to it and all of its subpackages;
+ * {@code net.minecraft.*} and {@code net.minecraft} are the same rule. The
+ * most specific rule matching a class decides, so
+ * {@code net.minecraft.*} can be excluded while {@code net.minecraft.mymod.*}
+ * is included. Classes no rule matches are included unless there are include
+ * rules. Wildcards other than a trailing {@code *} are not supported.
+ *
+ * Lookups walk the trie without allocating and cost one step per package
+ * segment, independent of the number of rules. Instances are immutable;
+ * {@link MMDRConfig#getPackageFilter()} compiles a new one when the rules change.
+ *
+ * @author MMDR Team
+ */
+public final class PackageFilter {
+    private static final byte NONE = 0;
+    private static final byte INCLUDE = 1;
+    private static final byte EXCLUDE = 2;
+
+    /** Filter without rules that includes everything */
+    public static final PackageFilter ALLOW_ALL = compile(List.of(), List.of());
+
+    private final Node root = new Node("");
+    private final boolean includeByDefault;
+    private int ruleCount;
+
+    private PackageFilter(boolean includeByDefault) {
+        this.includeByDefault = includeByDefault;
+    }
+
+    /**
+     * Compile include and exclude rules. An exclude rule wins over an include
+     * rule for the same package.
+     */
+    public static PackageFilter compile(List<String> includes, List<String> excludes) {
+        PackageFilter filter = new PackageFilter(includes.isEmpty());
+
+        for (String pattern : includes) {
+            filter.addRule(pattern, INCLUDE);
+        }
+        for (String pattern : excludes) {
+            filter.addRule(pattern, EXCLUDE);
+        }
+
+        return filter;
+    }
+
+    private void addRule(String pattern, byte mark) {
+        String packageName = pattern.trim();
+        if (packageName.endsWith("*")) {
+            packageName = packageName.substring(0, packageName.length() - 1);
+        }
+        if (packageName.endsWith(".")) {
+            packageName = packageName.substring(0, packageName.length() - 1);
+        }
+
+        if (packageName.indexOf('*') >= 0) {
+            Log.LOGGER.warn("Ignoring package rule '{}': only a trailing * is supported", pattern);
+            return;
+        }
+
+        Node node = root;
+        int start = 0;
+        while (start < packageName.length()) {
+            int end = packageName.indexOf('.', start);
+            if (end < 0) {
+                end = packageName.length();
+            }
+            if (mark == INCLUDE) {
+                node.includeBelow = true;
+            }
+            node = node.child(packageName.substring(start, end));
+            start = end + 1;
+        }
+
+        if (node.mark != EXCLUDE) {
+            node.mark = mark;
+        }
+        ruleCount++;
+    }
+
+    /**
+     * Whether a class is included
+     *
+     * @param className Fully qualified class name
+     */
+    public boolean includes(String className) {
+        return decide(className, className.lastIndexOf('.'), '.');
+    }
+
+    /**
+     * Whether a file is included, judged by the package its directory corresponds to
+     *
+     * @param relativeFile File path relative to a class output or source root
+     */
+    public boolean includesFile(Path relativeFile) {
+        String path = relativeFile.toString();
+        char separator = relativeFile.getFileSystem().getSeparator().charAt(0);
+        return decide(path, path.lastIndexOf(separator), separator);
+    }
+
+    /**
+     * Whether a directory can contain included files, so that excluded subtrees
+     * are skipped without listing them
+     *
+     * @param relativeDir Directory path relative to a class output or source root
+     */
+    public boolean visitsDirectory(Path relativeDir) {
+        String path = relativeDir.toString();
+        char separator = relativeDir.getFileSystem().getSeparator().charAt(0);
+
+        Node node = root;
+        byte mark = root.mark;
+        int start = 0;
+
+        while (start < path.length()) {
+            int end = segmentEnd(path, start, path.length(), separator);
+            node = node.find(path, start, end);
+            if (node == null) {
+                // No rules below this point
+                return isIncluded(mark);
+            }
+            if (node.mark != NONE) {
+                mark = node.mark;
+            }
+            start = end + 1;
+        }
+
+        return isIncluded(mark) || node.includeBelow;
+    }
+
+    /**
+     * Decide by the most specific rule on the package path {@code [0, packageEnd)}
+     */
+    private boolean decide(String name, int packageEnd, char separator) {
+        Node node = root;
+        byte mark = root.mark;
+        int start = 0;
+
+        while (start < packageEnd) {
+            int end = segmentEnd(name, start, packageEnd, separator);
+            node = node.find(name, start, end);
+            if (node == null) {
+                break;
+            }
+            if (node.mark != NONE) {
+                mark = node.mark;
+            }
+            start = end + 1;
+        }
+
+        return isIncluded(mark);
+    }
+
+    private static int segmentEnd(String name, int start, int limit, char separator) {
+        int end = name.indexOf(separator, start);
+        return end < 0 || end > limit ? limit : end;
+    }
+
+    private boolean isIncluded(byte mark) {
+        return mark == NONE ? includeByDefault : mark == INCLUDE;
+    }
+
+    /**
+     * Number of rules compiled into the trie
+     */
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * One package segment. Children are few per node, so they are scanned
+     * linearly by region comparison instead of hashing a substring.
+     */
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        final String segment;
+        Node[] children = NO_CHILDREN;
+        byte mark = NONE;
+        boolean includeBelow;
+
+        Node(String segment) {
+            this.segment = segment;
+        }
+
+        Node find(String name, int start, int end) {
+            int length = end - start;
+            for (Node child : children) {
+                if (child.segment.length() == length && name.regionMatches(start, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        Node child(String segment) {
+            Node existing = find(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+
+            Node child = new Node(segment);
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+            return child;
+        }
+    }
+}
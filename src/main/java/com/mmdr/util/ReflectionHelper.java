@@ -1,6 +1,5 @@
 package com.mmdr.util;
 
-import com.mmdr.MMDR;
 
 import java.lang.reflect.*;
 import java.lang.annotation.Annotation;
@@ -257,7 +256,7 @@ public class ReflectionHelper {
                 targetField.setAccessible(true);
                 targetField.set(target, value);
             } catch (Exception e) {
-                MMDR.LOGGER.debug("Failed to copy field: " + field.getName(), e);
+                Log.LOGGER.debug("Failed to copy field: " + field.getName(), e);
             }
         }
     }
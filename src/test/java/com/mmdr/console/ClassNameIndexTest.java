@@ -0,0 +1,39 @@
+package com.mmdr.console;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassNameIndexTest {
+
+    private final ClassNameIndex index = ClassNameIndex.of(List.of(
+        "java.util.ArrayList", "java.util.ArrayDeque", "java.util.List", "net.minecraft.client.MinecraftClient",
+        "net.minecraft.world.World", "com.example.ArrayList"));
+
+    @Test
+    void findsClassesBySimpleNamePrefix() {
+        assertEquals(List.of("java.util.ArrayDeque", "com.example.ArrayList", "java.util.ArrayList"),
+            index.findBySimpleName("Array", 10));
+        assertEquals(List.of("java.util.ArrayDeque"), index.findBySimpleName("Array", 1));
+        assertEquals(List.of(), index.findBySimpleName("Zzz", 10));
+    }
+
+    @Test
+    void findsClassesByQualifiedNamePrefix() {
+        assertEquals(List.of("net.minecraft.client.MinecraftClient", "net.minecraft.world.World"),
+            index.findByQualifiedName("net.minecraft.", 10));
+        assertTrue(index.contains("java.util.List"));
+        assertFalse(index.contains("java.util"));
+    }
+
+    @Test
+    void indexesJdkClasses() {
+        ClassNameIndex jdk = ClassNameIndex.build(List.of());
+
+        assertTrue(jdk.contains("java.util.ArrayList"));
+        assertFalse(jdk.contains("java.util.Map$Entry"));
+        assertTrue(jdk.findBySimpleName("ConcurrentHashMa", 5).contains("java.util.concurrent.ConcurrentHashMap"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.mmdr.console;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionEngineTest {
+
+    private final Map<String, Object> variables = new LinkedHashMap<>();
+    private final List<String> imports = new ArrayList<>(List.of("java.util.*"));
+    private final CompletionEngine engine = new CompletionEngine(() -> variables, () -> imports, List::<Path>of);
+
+    @Test
+    void completesMembersAlongTheDeclaredTypesOfAChain() {
+        variables.put("list", new ArrayList<>(List.of("a")));
+
+        CompletionEngine.Completion completion = engine.complete("println(list.iterator().has");
+        assertEquals("println(list.iterator().".length(), completion.getStart());
+        assertEquals(List.of("hasNext()"), completion.getCandidates());
+
+        assertTrue(engine.complete("list.").getCandidates().contains("empty"));
+        assertTrue(engine.complete("list.toString().").getCandidates().contains("length()"));
+        assertEquals(List.of(), engine.complete("list.noSuchProperty.").getCandidates());
+    }
+
+    @Test
+    void classValuesAndClassNamesOnlyCompleteStaticMembers() {
+        variables.put("util", Math.class);
+
+        assertEquals(List.of("sqrt("), engine.complete("util.sqr").getCandidates());
+        assertEquals(List.of("nCopies("), engine.complete("Collections.nCop").getCandidates());
+        assertEquals(List.of("MAX_VALUE"), engine.complete("java.lang.Integer.MAX_V").getCandidates());
+        assertEquals(List.of(), engine.complete("Integer.intV").getCandidates());
+    }
+
+    @Test
+    void completesVariablesAndSplitsExpressions() {
+        variables.put("mc", "client");
+        variables.put("mmdr", Object.class);
+
+        assertEquals(List.of("mc", "mmdr"), engine.complete("1 + m").getCandidates());
+        assertEquals(4, CompletionEngine.expressionStart("x = a.b(c, d(e)).f"));
+        assertEquals(List.of("a", "b(c, d(e))", "f"), CompletionEngine.splitSegments("a.b(c, d(e)).f"));
+    }
+
+    @Test
+    void commonPrefixOfCandidates() {
+        assertEquals("has", new CompletionEngine.Completion(0, List.of("hashCode()", "hasNext()")).getCommonPrefix());
+        assertEquals("", new CompletionEngine.Completion(0, List.of()).getCommonPrefix());
+    }
+}
@@ -0,0 +1,105 @@
+package com.mmdr.console;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsoleOutputTest {
+
+    private final List<String> wrappedLines = new ArrayList<>();
+
+    private Function<String, List<String>> wrapAt(int width) {
+        return line -> {
+            wrappedLines.add(line);
+            List<String> rows = new ArrayList<>();
+            for (int i = 0; i < line.length(); i += width) {
+                rows.add(line.substring(i, Math.min(line.length(), i + width)));
+            }
+            return rows.isEmpty() ? List.of("") : rows;
+        };
+    }
+
+    private static List<String> rows(ConsoleOutput<String> output) {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < output.size(); i++) {
+            rows.add(output.getRow(i));
+        }
+        return rows;
+    }
+
+    @Test
+    void wrapsLinesWhenTheyArriveAndAgainOnResize() {
+        ConsoleOutput<String> output = new ConsoleOutput<>(10);
+        output.add("abcdef");
+        output.rewrap(wrapAt(4), String::length);
+        output.add("");
+
+        assertEquals(List.of("abcd", "ef", ""), rows(output));
+        assertEquals(2, output.getWidth(1));
+
+        output.rewrap(wrapAt(3), String::length);
+        assertEquals(List.of("abc", "def", ""), rows(output));
+    }
+
+    @Test
+    void keepsOnlyTheNewestRowsAndWrapsOnlyWhatFits() {
+        ConsoleOutput<String> output = new ConsoleOutput<>(100);
+        output.rewrap(wrapAt(80), String::length);
+
+        List<String> dump = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            dump.add("line " + i);
+        }
+        output.addAll(dump);
+
+        assertEquals(100, output.size());
+        assertEquals("line 99900", output.getRow(0));
+        assertEquals("line 99999", output.getRow(99));
+        assertEquals(100, wrappedLines.size());
+    }
+
+    @Test
+    void scrollingBackIsClampedAndKeepsTheViewWhenLinesArrive() {
+        ConsoleOutput<String> output = new ConsoleOutput<>(100);
+        output.rewrap(wrapAt(80), String::length);
+        for (int i = 0; i < 30; i++) {
+            output.add("line " + i);
+        }
+
+        assertEquals(20, output.firstVisible(10));
+        output.scroll(5, 10);
+        assertEquals(15, output.firstVisible(10));
+        output.scroll(100, 10);
+        assertEquals(0, output.firstVisible(10));
+
+        output.scroll(-15, 10);
+        output.add("new line");
+        assertEquals(15, output.firstVisible(10));
+        assertEquals("line 15", output.getRow(output.firstVisible(10)));
+
+        output.scroll(-100, 10);
+        assertEquals(0, output.getScroll());
+    }
+
+    @Test
+    void clearDropsAllLinesIncludingOnRewrap() {
+        ConsoleOutput<String> output = new ConsoleOutput<>(10);
+        output.rewrap(wrapAt(80), String::length);
+        for (int i = 0; i < 15; i++) {
+            output.add("line " + i);
+        }
+        output.scroll(3, 5);
+
+        output.clear();
+        assertEquals(0, output.size());
+        assertEquals(0, output.getScroll());
+
+        output.add("after");
+        output.rewrap(wrapAt(80), String::length);
+        assertEquals(List.of("after"), rows(output));
+    }
+}
@@ -0,0 +1,97 @@
+package com.mmdr.console;
+
+import groovy.lang.Binding;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluationWorkerTest {
+
+    private final BlockingQueue<String> outcomes = new LinkedBlockingQueue<>();
+    private EvaluationWorker worker;
+
+    @AfterEach
+    void tearDown() {
+        if (worker != null) {
+            worker.shutdown();
+        }
+    }
+
+    private void submit(Runnable task) {
+        worker.submit(() -> {
+            task.run();
+            return "done";
+        }, result -> outcomes.add("result " + result), error -> outcomes.add("error " + error),
+            reason -> outcomes.add("cancel " + reason));
+    }
+
+    private void submitScript(ScriptCache cache, String source) {
+        worker.submit(() -> InvokerHelper.createScript(cache.get(source), new Binding()).run(),
+            result -> outcomes.add("result " + result), error -> outcomes.add("error " + error),
+            reason -> outcomes.add("cancel " + reason));
+    }
+
+    private String nextOutcome() throws InterruptedException {
+        String outcome = outcomes.poll(5, TimeUnit.SECONDS);
+        assertNotNull(outcome, "Expected the evaluation to finish");
+        return outcome;
+    }
+
+    @Test
+    void endlessSnippetIsCancelledAndTheNextOneRuns() throws Exception {
+        worker = new EvaluationWorker(0);
+        ScriptCache cache = new ScriptCache(getClass().getClassLoader(), 8);
+
+        submitScript(cache, "while (true) { }");
+        submitScript(cache, "6 * 7");
+        while (!worker.isBusy()) {
+            Thread.sleep(1);
+        }
+
+        assertTrue(worker.cancel());
+        assertEquals("cancel cancelled", nextOutcome());
+        assertEquals("result 42", nextOutcome());
+        assertFalse(worker.cancel());
+    }
+
+    @Test
+    void evaluationsPastTheTimeoutAreCancelledOnTick() throws Exception {
+        worker = new EvaluationWorker(50);
+        submit(() -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        String outcome = null;
+        for (int i = 0; i < 100 && outcome == null; i++) {
+            worker.tick();
+            outcome = outcomes.poll(20, TimeUnit.MILLISECONDS);
+        }
+        assertEquals("cancel timed out after 50 ms", outcome);
+    }
+
+    @Test
+    void onClientRunsOnTheTickingThread() throws Exception {
+        worker = new EvaluationWorker(0);
+        Thread tickThread = Thread.currentThread();
+        worker.submit(() -> worker.onClient(() -> Thread.currentThread() == tickThread),
+            result -> outcomes.add("result " + result), error -> outcomes.add("error " + error),
+            reason -> outcomes.add("cancel " + reason));
+
+        String outcome = null;
+        for (int i = 0; i < 100 && outcome == null; i++) {
+            worker.tick();
+            outcome = outcomes.poll(20, TimeUnit.MILLISECONDS);
+        }
+        assertEquals("result true", outcome);
+    }
+}
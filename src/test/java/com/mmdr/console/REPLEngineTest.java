@@ -0,0 +1,62 @@
+package com.mmdr.console;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class REPLEngineTest {
+
+    @Test
+    void scopedSnippetsChangeTheVariablesOnlyOnCommit() throws Exception {
+        REPLEngine engine = new REPLEngine(8);
+        engine.setVariable("kept", 1);
+        engine.setVariable("removed", 2);
+
+        REPLEngine.Scope scope = engine.newScope();
+        assertEquals(3, engine.evaluate("added = kept + removed", scope));
+        engine.evaluate("binding.variables.remove('removed')", scope);
+
+        assertFalse(engine.getVariables().containsKey("added"));
+        assertEquals(2, engine.getVariable("removed"));
+
+        engine.commit(scope);
+        assertEquals(3, engine.getVariable("added"));
+        assertFalse(engine.getVariables().containsKey("removed"));
+    }
+
+    @Test
+    void commitKeepsVariablesTheSnippetDidNotTouch() throws Exception {
+        REPLEngine engine = new REPLEngine(8);
+        engine.setVariable("x", 1);
+
+        REPLEngine.Scope scope = engine.newScope();
+        engine.evaluate("y = x * 10", scope);
+        engine.setVariable("x", 5);
+        engine.commit(scope);
+
+        assertEquals(5, engine.getVariable("x"));
+        assertEquals(10, engine.getVariable("y"));
+    }
+
+    @Test
+    void variablesCanBeCopiedWhileASnippetAssignsThem() throws Exception {
+        REPLEngine engine = new REPLEngine(8);
+        Thread snippet = new Thread(() -> {
+            try {
+                engine.evaluate("for (int i = 0; i < 200000; i++) { binding.setVariable('v' + (i % 100), i) }");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        snippet.start();
+
+        while (snippet.isAlive()) {
+            for (Map.Entry<String, Object> entry : engine.getVariables().entrySet()) {
+                assertNotNull(entry.getKey());
+            }
+        }
+        assertEquals(100 + 2, engine.getVariables().size());
+    }
+}
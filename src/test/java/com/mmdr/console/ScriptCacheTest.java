@@ -0,0 +1,69 @@
+package com.mmdr.console;
+
+import groovy.lang.Binding;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptCacheTest {
+
+    private static Object run(ScriptCache cache, String source, Binding binding) {
+        return InvokerHelper.createScript(cache.get(source), binding).run();
+    }
+
+    @Test
+    void reusesTheCompiledClassForTheSameSource() {
+        ScriptCache cache = new ScriptCache(getClass().getClassLoader(), 8);
+        Binding binding = new Binding();
+        binding.setVariable("x", 2);
+
+        assertEquals(4, run(cache, "x * 2", binding));
+        binding.setVariable("x", 5);
+        assertEquals(10, run(cache, "x * 2  \r\n", binding));
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedSnippet() {
+        ScriptCache cache = new ScriptCache(getClass().getClassLoader(), 2);
+        Class<?> first = cache.get("1");
+        cache.get("2");
+        cache.get("1");
+        cache.get("3");
+
+        assertEquals(2, cache.size());
+        assertSame(first, cache.get("1"));
+        assertEquals(3, cache.getMisses());
+
+        cache.get("2");
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    void snippetsWithClosuresRunFromTheCache() {
+        ScriptCache cache = new ScriptCache(getClass().getClassLoader(), 8);
+        String source = "import java.util.stream.Collectors\n[1, 2, 3].collect { it * 10 }.sum()";
+
+        assertEquals(60, run(cache, source, new Binding()));
+        assertEquals(60, run(cache, source, new Binding()));
+    }
+
+    @Test
+    void normalizesLineEndingsAndSurroundingWhitespace() {
+        assertEquals("a  \nb", ScriptCache.normalize("  a  \r\nb\t\n"));
+        assertEquals("'x  '", ScriptCache.normalize("'x  '"));
+    }
+
+    @Test
+    void keepsTrailingWhitespaceInMultiLineStrings() {
+        ScriptCache cache = new ScriptCache(getClass().getClassLoader(), 8);
+
+        assertEquals("a  \nb", run(cache, "'''a  \r\nb'''", new Binding()));
+        assertEquals("a\nb", run(cache, "'''a\nb'''", new Binding()));
+        assertEquals(2, cache.getMisses());
+    }
+}
@@ -0,0 +1,55 @@
+package com.mmdr.console;
+
+import groovy.lang.Binding;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticCompilationTest {
+
+    private static class Hidden extends ArrayList<String> {
+    }
+
+    @Test
+    void typedSnippetsRunWithStaticDispatch() {
+        ScriptCache cache = new ScriptCache(getClass().getClassLoader(), 8, true);
+        Binding binding = new Binding();
+        binding.setVariable("items", new ArrayList<>(List.of("a", "bb", "ccc")));
+
+        String source = "java.util.ArrayList items = (java.util.ArrayList) binding.getVariable('items')\n"
+            + "int total = 0\n"
+            + "for (Object item : items) { total += ((String) item).length() }\n"
+            + "total";
+
+        assertEquals(6, InvokerHelper.createScript(cache.get(source), binding).run());
+    }
+
+    @Test
+    void unresolvableCallsFailToCompile() {
+        ScriptCache cache = new ScriptCache(getClass().getClassLoader(), 8, true);
+
+        assertThrows(CompilationFailedException.class, () -> cache.get("int x = 1\nx.noSuchMethod()"));
+        assertNotNull(new ScriptCache(getClass().getClassLoader(), 8).get("int x = 1\nx.noSuchMethod()"));
+    }
+
+    @Test
+    void variablesAreTypedByTheirNearestAccessibleClass() {
+        assertEquals("java.util.ArrayList", REPLEngine.staticTypeName(new ArrayList<>()));
+        assertEquals("java.util.ArrayList", REPLEngine.staticTypeName(new Hidden()));
+        assertEquals("java.util.ArrayList", REPLEngine.staticTypeName(new ArrayList<>() { }));
+        assertEquals("java.lang.String[]", REPLEngine.staticTypeName(new String[0]));
+        assertEquals("Object", REPLEngine.staticTypeName(null));
+    }
+
+    @Test
+    void findsVariableReferencesAsWholeWords() {
+        assertTrue(REPLEngine.refersTo("mc.world.entities", "mc"));
+        assertTrue(REPLEngine.refersTo("println(mc)", "mc"));
+        assertFalse(REPLEngine.refersTo("mcx.world + xmc", "mc"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BytecodeSourceTest {
+
+    private static Path writeClass(Path root, String className, byte[] bytecode) throws Exception {
+        Path file = root.resolve(className.replace('.', '/') + ".class");
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytecode);
+        return file;
+    }
+
+    @Test
+    void readsFromTheFirstRootThatHasTheClass() throws Exception {
+        Path first = Files.createTempDirectory("mmdr-bs-first");
+        Path second = Files.createTempDirectory("mmdr-bs-second");
+        writeClass(second, "com.example.Foo", new byte[] {2});
+        BytecodeSource source = new BytecodeSource(List.of(first, second));
+
+        assertArrayEquals(new byte[] {2}, source.read("com.example.Foo"));
+
+        writeClass(first, "com.example.Foo", new byte[] {1});
+        assertArrayEquals(new byte[] {1}, source.read("com.example.Foo"));
+        assertEquals(2, source.getFileReads());
+        assertNull(source.read("com.example.Missing"));
+    }
+
+    @Test
+    void stagedAndOfferedBytecodeIsUsedOnce() throws Exception {
+        Path root = Files.createTempDirectory("mmdr-bs-offer");
+        writeClass(root, "com.example.Foo", new byte[] {1});
+        BytecodeSource source = new BytecodeSource(List.of(root));
+
+        byte[] offered = {3};
+        source.offer("com.example.Foo", offered, ContentHash.hash(offered));
+        assertSame(offered, source.read("com.example.Foo"));
+        assertEquals(1, source.getCacheHits());
+
+        source.stage("com.example.Foo", new byte[] {4});
+        assertArrayEquals(new byte[] {4}, source.read("com.example.Foo"));
+        assertArrayEquals(new byte[] {1}, source.read("com.example.Foo"));
+    }
+
+    @Test
+    void identicalBytecodeIsCachedOnce() {
+        BytecodeSource source = new BytecodeSource(List.of());
+        byte[] first = {5, 6};
+        byte[] second = {5, 6};
+
+        source.offer("com.example.A", first, ContentHash.hash(first));
+        source.offer("com.example.B", second, ContentHash.hash(second));
+
+        assertEquals(1, source.getCachedCount());
+    }
+
+    @Test
+    void leastRecentlyUsedBytecodeIsEvicted() throws Exception {
+        BytecodeSource source = new BytecodeSource(List.of(), 4);
+        byte[] a = {1, 1};
+        byte[] b = {2, 2};
+        byte[] c = {3, 3};
+
+        source.offer("com.example.A", a, ContentHash.hash(a));
+        source.offer("com.example.B", b, ContentHash.hash(b));
+        source.offer("com.example.C", c, ContentHash.hash(c));
+
+        assertEquals(2, source.getCachedCount());
+        assertSame(c, source.read("com.example.C"));
+        assertNull(source.read("com.example.A"));
+    }
+
+    @Test
+    void readsLargeClassFilesWhole() throws Exception {
+        Path root = Files.createTempDirectory("mmdr-bs-large");
+        byte[] bytecode = new byte[256 * 1024 + 3];
+        for (int i = 0; i < bytecode.length; i++) {
+            bytecode[i] = (byte) i;
+        }
+        writeClass(root, "com.example.Large", bytecode);
+
+        assertArrayEquals(bytecode, new BytecodeSource(List.of(root)).read("com.example.Large"));
+    }
+}
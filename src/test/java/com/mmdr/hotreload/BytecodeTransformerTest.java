@@ -0,0 +1,74 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BytecodeTransformerTest {
+
+    /** Simple dummy class used as transformation input. */
+    public static class Dummy {
+        public String hello() { return "hi"; }
+    }
+
+    @Test
+    void returnsOriginalArrayWhenNoPassApplies() throws Exception {
+        byte[] bytecode = dummyBytecode();
+        BytecodeTransformer transformer = new BytecodeTransformer();
+
+        assertSame(bytecode, transformer.transform(Dummy.class.getName(), bytecode));
+
+        transformer.addPass(new AddFieldPass(false));
+        assertSame(bytecode, transformer.transform(Dummy.class.getName(), bytecode));
+    }
+
+    @Test
+    void appliesPassesThatDeclareTheyTouchTheClass() throws Exception {
+        byte[] bytecode = dummyBytecode();
+        BytecodeTransformer transformer = new BytecodeTransformer();
+        transformer.addPass(new AddFieldPass(true));
+
+        byte[] transformed = transformer.transform(Dummy.class.getName(), bytecode);
+
+        assertNotSame(bytecode, transformed);
+        assertTrue(ClassSchema.of(transformed).getFields().stream().anyMatch(f -> f.contains("$mmdrMarker")));
+        assertEquals(ClassSchema.of(bytecode).getMethods(), ClassSchema.of(transformed).getMethods());
+    }
+
+    private static byte[] dummyBytecode() throws Exception {
+        String resourceName = BytecodeTransformerTest.class.getSimpleName() + "$Dummy.class";
+        try (InputStream in = BytecodeTransformerTest.class.getResourceAsStream(resourceName)) {
+            assertNotNull(in, "Could not locate Dummy.class resource");
+            return in.readAllBytes();
+        }
+    }
+
+    private static final class AddFieldPass implements TransformPass {
+        private final boolean applies;
+
+        AddFieldPass(boolean applies) {
+            this.applies = applies;
+        }
+
+        @Override
+        public boolean appliesTo(String className, ClassReader reader) {
+            return applies;
+        }
+
+        @Override
+        public ClassVisitor createVisitor(ClassVisitor next, String className) {
+            return new ClassVisitor(Opcodes.ASM9, next) {
+                @Override
+                public void visitEnd() {
+                    super.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "$mmdrMarker", "I", null, null);
+                    super.visitEnd();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassHashIndexTest {
+
+    @Test
+    void reportsChangeOnlyWhenHashDiffers() {
+        ClassHashIndex index = new ClassHashIndex();
+        byte[] bytecode = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 1, 2, 3};
+        long hash = ContentHash.hash(bytecode);
+
+        assertTrue(index.update("com.example.Foo", hash, 1L), "Unknown class should count as changed");
+        assertFalse(index.update("com.example.Foo", hash, 2L), "Identical bytecode should not count as changed");
+
+        bytecode[6] = 4;
+        assertTrue(index.update("com.example.Foo", ContentHash.hash(bytecode), 3L));
+    }
+
+    @Test
+    void survivesGrowthAndRemoval() {
+        ClassHashIndex index = new ClassHashIndex(4);
+        for (int i = 0; i < 1000; i++) {
+            index.update("com.example.C" + i, i, i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            index.remove("com.example.C" + i);
+        }
+
+        assertEquals(500, index.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 1, index.matches("com.example.C" + i, i), "C" + i);
+        }
+    }
+
+    @Test
+    void roundTripsThroughFile() throws Exception {
+        Path file = Files.createTempDirectory("mmdr-hash-index").resolve("class-hashes.bin");
+        ClassHashIndex index = new ClassHashIndex();
+        index.update("com.example.Foo", 42L, ClassHashIndex.stampOf(10, 1000));
+        index.save(file);
+
+        ClassHashIndex loaded = ClassHashIndex.load(file);
+        assertTrue(loaded.matches("com.example.Foo", 42L));
+        assertTrue(loaded.hasStamp("com.example.Foo", ClassHashIndex.stampOf(10, 1000)));
+        assertFalse(loaded.hasStamp("com.example.Foo", ClassHashIndex.stampOf(11, 1000)));
+    }
+
+    @Test
+    void contentHashMatchesReferenceVectors() {
+        assertEquals(0xEF46DB3751D8E999L, ContentHash.hash(new byte[0]));
+        assertEquals(0x44BC2CF5AD770999L, ContentHash.hash("abc".getBytes()));
+    }
+}
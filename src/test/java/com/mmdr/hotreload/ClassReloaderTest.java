@@ -0,0 +1,306 @@
+package com.mmdr.hotreload;
+
+import com.mmdr.util.MMDRConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassReloaderTest {
+
+    private ClassReloader reloader;
+
+    @AfterEach
+    void tearDown() {
+        if (reloader != null) {
+            reloader.shutdown();
+        }
+    }
+
+    private ClassReloader newReloader(int threads) {
+        MMDRConfig config = new MMDRConfig();
+        config.setInstrumentationReloadEnabled(false);
+        config.setMaxReloadThreads(threads);
+        reloader = new ClassReloader(config, new BytecodeSource(List.of()));
+        return reloader;
+    }
+
+    /**
+     * {@code public class <name> extends <superName> implements <interfaces> { public static int version() { return version; } }}
+     */
+    static byte[] classFile(String name, int version, String superName, String... interfaces) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        String[] internalInterfaces = new String[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            internalInterfaces[i] = interfaces[i].replace('.', '/');
+        }
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name.replace('.', '/'), null, superName.replace('.', '/'),
+            internalInterfaces);
+
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName.replace('.', '/'), "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "version", "()I", null, null);
+        method.visitCode();
+        method.visitLdcInsn(version);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Add a static field {@code state} to a class, and optionally a second one
+     * with an initializer that throws. Migrating {@code state} initializes the
+     * class, and the new field keeps migration from skipping the initializer.
+     */
+    static byte[] withStaticState(byte[] bytecode, boolean failingInitializer) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        ClassVisitor adder = new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public void visitEnd() {
+                visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "state", "I", null, null).visitEnd();
+                if (failingInitializer) {
+                    visitField(Opcodes.ACC_STATIC, "added", "I", null, null).visitEnd();
+
+                    MethodVisitor clinit = visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+                    clinit.visitCode();
+                    clinit.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalStateException");
+                    clinit.visitInsn(Opcodes.DUP);
+                    clinit.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "()V", false);
+                    clinit.visitInsn(Opcodes.ATHROW);
+                    clinit.visitMaxs(0, 0);
+                    clinit.visitEnd();
+                }
+                super.visitEnd();
+            }
+        };
+        new ClassReader(bytecode).accept(adder, 0);
+        return writer.toByteArray();
+    }
+
+    private static int version(Class<?> clazz) throws Exception {
+        return (int) clazz.getMethod("version").invoke(null);
+    }
+
+    private ReloadResult reload(String... classes) {
+        return reloader.reloadClasses(new LinkedHashSet<>(List.of(classes)));
+    }
+
+    static byte[] interfaceFile(String name) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT,
+            name.replace('.', '/'), null, "java/lang/Object", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    @Test
+    void ordersSupertypesBeforeTheClassesThatExtendThem() {
+        newReloader(2);
+        reloader.stageBytecode("prep.Child", classFile("prep.Child", 1, "prep.Parent", "prep.Marker"));
+        reloader.stageBytecode("prep.Parent", classFile("prep.Parent", 1, "java.lang.Object"));
+        reloader.stageBytecode("prep.Marker", interfaceFile("prep.Marker"));
+
+        ReloadTransaction transaction = reloader.prepare(new LinkedHashSet<>(List.of("prep.Child", "prep.Parent", "prep.Marker")));
+
+        assertFalse(transaction.hasFailures());
+        List<String> order = transaction.getClassNames();
+        assertEquals(3, order.size());
+        assertTrue(order.indexOf("prep.Parent") < order.indexOf("prep.Child"));
+        assertTrue(order.indexOf("prep.Marker") < order.indexOf("prep.Child"));
+    }
+
+    @Test
+    void collectsTheFailureOfEachClassThatCannotBePrepared() {
+        newReloader(2);
+        reloader.stageBytecode("prep.Good", classFile("prep.Good", 1, "java.lang.Object"));
+        reloader.stageBytecode("prep.Corrupt", new byte[] {(byte) 0xCA, (byte) 0xFE, 0, 0});
+
+        ReloadTransaction transaction = reloader.prepare(new LinkedHashSet<>(List.of("prep.Good", "prep.Missing", "prep.Corrupt")));
+
+        assertEquals(List.of("prep.Good"), transaction.getClassNames());
+        assertEquals(Set.of("prep.Missing", "prep.Corrupt"), transaction.getFailures().keySet());
+        assertInstanceOf(ClassNotFoundException.class, transaction.getFailures().get("prep.Missing"));
+
+        ReloadResult result = reloader.commit(transaction);
+        assertTrue(result.isRolledBack());
+        assertTrue(result.getReloaded().isEmpty());
+    }
+
+    @Test
+    void preparesClassesConcurrently() {
+        newReloader(2);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        // Each class waits for the other one, which only completes if both are prepared at once
+        reloader.getTransformer().addPass(new TransformPass() {
+            @Override
+            public boolean appliesTo(String className, ClassReader reader) {
+                threads.add(Thread.currentThread().getName());
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Classes were not prepared concurrently", e);
+                }
+                return false;
+            }
+
+            @Override
+            public ClassVisitor createVisitor(ClassVisitor next, String className) {
+                return next;
+            }
+        });
+        reloader.stageBytecode("prep.A", classFile("prep.A", 1, "java.lang.Object"));
+        reloader.stageBytecode("prep.B", classFile("prep.B", 1, "java.lang.Object"));
+
+        ReloadTransaction transaction = reloader.prepare(new LinkedHashSet<>(List.of("prep.A", "prep.B")));
+
+        assertFalse(transaction.hasFailures(), () -> transaction.getFailures().toString());
+        assertEquals(2, threads.size());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("MMDR-HotReload-Prepare-")));
+    }
+
+    @Test
+    void commitPublishesTheBatchInOneGeneration() throws Exception {
+        newReloader(2);
+        reloader.stageBytecode("commit.Base", classFile("commit.Base", 1, "java.lang.Object"));
+        reloader.stageBytecode("commit.Impl", classFile("commit.Impl", 1, "commit.Base"));
+
+        ReloadResult result = reload("commit.Impl", "commit.Base");
+
+        assertFalse(result.isRolledBack());
+        assertEquals(Set.of("commit.Base", "commit.Impl"), result.getReloaded().keySet());
+        Class<?> impl = result.getReloaded().get("commit.Impl");
+        assertSame(result.getReloaded().get("commit.Base"), impl.getSuperclass());
+        assertSame(reloader.getClassLoader("commit.Base"), reloader.getClassLoader("commit.Impl"));
+        assertEquals(1, version(impl));
+        assertEquals(1, reloader.getGenerationCount());
+        assertEquals(1, reloader.getRollbackDepth());
+    }
+
+    @Test
+    void failingInitializerRevertsTheWholeBatch() throws Exception {
+        newReloader(2);
+        reloader.stageBytecode("abort.Kept", classFile("abort.Kept", 1, "java.lang.Object"));
+        reloader.stageBytecode("abort.Broken", withStaticState(classFile("abort.Broken", 1, "java.lang.Object"), false));
+        reload("abort.Kept", "abort.Broken");
+        ClassLoader committedLoader = reloader.getClassLoader("abort.Kept");
+
+        reloader.stageBytecode("abort.Kept", classFile("abort.Kept", 2, "java.lang.Object"));
+        reloader.stageBytecode("abort.Broken", withStaticState(classFile("abort.Broken", 2, "java.lang.Object"), true));
+        ReloadResult result = reload("abort.Kept", "abort.Broken");
+
+        assertTrue(result.isRolledBack());
+        assertTrue(result.getFailures().containsKey("abort.Broken"));
+        assertSame(committedLoader, reloader.getClassLoader("abort.Kept"));
+        assertSame(committedLoader, reloader.getClassLoader("abort.Broken"));
+        assertEquals(1, reloader.getRollbackDepth());
+    }
+
+    @Test
+    void rollbackRestoresThePreviousBatch() throws Exception {
+        newReloader(2);
+        reloader.stageBytecode("rollback.Counter", classFile("rollback.Counter", 1, "java.lang.Object"));
+        Class<?> first = reload("rollback.Counter").getReloaded().get("rollback.Counter");
+        reloader.stageBytecode("rollback.Counter", classFile("rollback.Counter", 2, "java.lang.Object"));
+        Class<?> second = reload("rollback.Counter").getReloaded().get("rollback.Counter");
+
+        assertEquals(2, version(second));
+        assertSame(second.getClassLoader(), reloader.getClassLoader("rollback.Counter"));
+
+        assertTrue(reloader.rollbackLastBatch());
+        assertSame(first.getClassLoader(), reloader.getClassLoader("rollback.Counter"));
+
+        assertTrue(reloader.rollbackLastBatch());
+        assertNull(reloader.getClassLoader("rollback.Counter"));
+        assertFalse(reloader.rollbackLastBatch());
+    }
+
+    @Test
+    void bodyOnlyChangesAreRedefinedInPlaceAndRolledBack() throws Exception {
+        if (!InstrumentationProvider.isAvailable()) {
+            return;
+        }
+
+        MMDRConfig config = new MMDRConfig();
+        config.setInstrumentationReloadEnabled(true);
+        reloader = new ClassReloader(config, new BytecodeSource(List.of()));
+
+        byte[] original = classFile("inplace.Target", 1, "java.lang.Object");
+        Class<?> target = new ClassLoader(getClass().getClassLoader()) {
+            Class<?> define() {
+                return defineClass("inplace.Target", original, 0, original.length);
+            }
+        }.define();
+
+        reloader.stageBytecode("inplace.Target", classFile("inplace.Target", 2, "java.lang.Object"));
+        ReloadResult result = reload("inplace.Target");
+
+        assertFalse(result.isRolledBack());
+        assertSame(target, result.getReloaded().get("inplace.Target"));
+        assertEquals(ClassSchema.Change.BODY_ONLY, result.getEvents().get(0).getChange());
+        assertEquals(2, version(target));
+
+        assertTrue(reloader.rollbackLastBatch());
+        assertEquals(1, version(target));
+    }
+
+    @Test
+    void changesAreOnlyCountedForCommittedBatches() throws Exception {
+        if (!InstrumentationProvider.isAvailable()) {
+            return;
+        }
+
+        MMDRConfig config = new MMDRConfig();
+        config.setInstrumentationReloadEnabled(true);
+        reloader = new ClassReloader(config, new BytecodeSource(List.of()));
+
+        byte[] kept = classFile("counted.Kept", 1, "java.lang.Object");
+        byte[] broken = classFile("counted.Broken", 1, "java.lang.Object");
+        new ClassLoader(getClass().getClassLoader()) {
+            void define() {
+                defineClass("counted.Kept", kept, 0, kept.length);
+                defineClass("counted.Broken", broken, 0, broken.length);
+            }
+        }.define();
+
+        // Requeued batches are retried as a whole
+        for (int attempt = 0; attempt < 2; attempt++) {
+            reloader.stageBytecode("counted.Kept", classFile("counted.Kept", 2, "java.lang.Object"));
+            reloader.stageBytecode("counted.Broken", classFile("counted.Broken", 2, "counted.Missing"));
+            ReloadResult aborted = reload("counted.Kept", "counted.Broken");
+            assertTrue(aborted.isRolledBack());
+            assertTrue(aborted.getFailures().containsKey("counted.Broken"));
+        }
+        for (ClassSchema.Change change : ClassSchema.Change.values()) {
+            assertEquals(0, reloader.getChangeCount(change), change.name());
+        }
+
+        reloader.stageBytecode("counted.Kept", classFile("counted.Kept", 2, "java.lang.Object"));
+        reloader.stageBytecode("counted.Broken", classFile("counted.Broken", 2, "java.lang.Object"));
+        ReloadResult committed = reload("counted.Kept", "counted.Broken");
+        assertFalse(committed.isRolledBack(), String.valueOf(committed.getFailures()));
+        assertEquals(2, reloader.getChangeCount(ClassSchema.Change.BODY_ONLY));
+    }
+}
@@ -0,0 +1,80 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassSchemaTest {
+
+    interface Shape {
+        int SIDES = 4;
+
+        double area();
+
+        default String describe(String... details) {
+            return "shape " + String.join(", ", details);
+        }
+
+        static Shape unit() {
+            return () -> 1.0;
+        }
+    }
+
+    static class Square extends ArrayList<String> implements Shape, Supplier<String> {
+        private static final long serialVersionUID = 1L;
+        protected transient double side;
+        volatile int version;
+
+        Square(double side) {
+            this.side = side;
+        }
+
+        @Override
+        public double area() {
+            return side * side;
+        }
+
+        @Override
+        public String get() {
+            Runnable bump = () -> version++;
+            bump.run();
+            return describe("side " + side);
+        }
+
+        private static synchronized List<String> names() {
+            return List.of();
+        }
+    }
+
+    private static byte[] bytecodeOf(Class<?> clazz) throws Exception {
+        String resource = clazz.getName().substring(clazz.getPackageName().length() + 1) + ".class";
+        try (InputStream in = clazz.getResourceAsStream(resource)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void loadedClassAndItsBytecodeHaveTheSameSchema() throws Exception {
+        ClassSchema loaded = ClassSchema.of(Square.class);
+        ClassSchema read = ClassSchema.of(bytecodeOf(Square.class));
+
+        assertEquals(ClassSchema.Change.BODY_ONLY, loaded.classify(read));
+        assertTrue(loaded.isRedefinitionCompatible(read));
+        assertEquals(loaded.fingerprint(), read.fingerprint());
+    }
+
+    @Test
+    void loadedInterfaceAndItsBytecodeHaveTheSameSchema() throws Exception {
+        ClassSchema loaded = ClassSchema.of(Shape.class);
+        ClassSchema read = ClassSchema.of(bytecodeOf(Shape.class));
+
+        assertEquals(ClassSchema.Change.BODY_ONLY, loaded.classify(read));
+        assertTrue(loaded.isRedefinitionCompatible(read));
+        assertEquals(loaded.fingerprint(), read.fingerprint());
+    }
+}
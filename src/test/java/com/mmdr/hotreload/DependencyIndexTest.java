@@ -0,0 +1,105 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyIndexTest {
+    private static final String TARGET = Target.class.getName();
+    private static final String HELPER = Target.Helper.class.getName();
+    private static final String CALLER = Caller.class.getName();
+    private static final String UNRELATED = Unrelated.class.getName();
+
+    public static class Target {
+        public static int value() {
+            return new Helper().get();
+        }
+
+        public static class Helper {
+            public int get() {
+                return 1;
+            }
+        }
+    }
+
+    public static class Caller {
+        public int call() {
+            return Target.value();
+        }
+    }
+
+    public static class Unrelated {
+        public int call() {
+            return 2;
+        }
+    }
+
+    @Test
+    void readsDependenciesFromConstantPool() throws Exception {
+        DependencyIndex index = buildIndex();
+
+        assertTrue(index.getDependencies(CALLER).contains(TARGET));
+        assertTrue(index.getDependents(TARGET).contains(CALLER));
+        assertFalse(index.getDependents(TARGET).contains(UNRELATED));
+    }
+
+    @Test
+    void expandsNestedClassesAndDependentsOfSchemaChanges() throws Exception {
+        DependencyIndex index = buildIndex();
+
+        assertEquals(Set.of(TARGET, HELPER), index.expandReloadSet(Set.of(TARGET), Set.of()));
+
+        List<String> ordered = new ArrayList<>(index.expandReloadSet(Set.of(TARGET), Set.of(TARGET)));
+        assertEquals(Set.of(TARGET, HELPER, CALLER), Set.copyOf(ordered));
+        assertTrue(ordered.indexOf(HELPER) < ordered.indexOf(TARGET), "Dependencies must come first");
+        assertTrue(ordered.indexOf(TARGET) < ordered.indexOf(CALLER), "Dependencies must come first");
+    }
+
+    @Test
+    void reportsSchemaChangesOnlyForNewShapes() throws Exception {
+        DependencyIndex index = buildIndex();
+
+        assertFalse(index.update(TARGET, bytecodeOf(Target.class)));
+        assertTrue(index.update(TARGET, bytecodeOf(Unrelated.class)));
+
+        index.remove(CALLER);
+        assertFalse(index.contains(CALLER));
+        assertFalse(index.getDependents(TARGET).contains(CALLER));
+    }
+
+    @Test
+    void roundTripsThroughFile() throws Exception {
+        DependencyIndex index = buildIndex();
+        Path file = Files.createTempDirectory("mmdr-deps").resolve("deps.bin");
+
+        index.save(file);
+        DependencyIndex loaded = DependencyIndex.load(file);
+
+        assertEquals(index.getClasses(), loaded.getClasses());
+        assertEquals(index.getDependents(TARGET), loaded.getDependents(TARGET));
+        assertFalse(loaded.update(CALLER, bytecodeOf(Caller.class)));
+    }
+
+    private static DependencyIndex buildIndex() throws Exception {
+        DependencyIndex index = new DependencyIndex();
+        for (Class<?> clazz : List.of(Target.class, Target.Helper.class, Caller.class, Unrelated.class)) {
+            assertTrue(index.update(clazz.getName(), bytecodeOf(clazz)));
+        }
+        return index;
+    }
+
+    private static byte[] bytecodeOf(Class<?> clazz) throws Exception {
+        String resourceName = clazz.getName().substring(clazz.getPackageName().length() + 1) + ".class";
+        try (InputStream in = clazz.getResourceAsStream(resourceName)) {
+            assertNotNull(in, "Could not locate " + resourceName);
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.mmdr.hotreload;
+
+import com.mmdr.util.PackageFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileWatcherTest {
+
+    private FileWatcher watcher;
+
+    @AfterEach
+    void tearDown() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    @Test
+    void detectsChangesInNestedPackageDirectories() throws Exception {
+        Path root = Files.createTempDirectory("mmdr-fw-nested");
+        Path pkg = Files.createDirectories(root.resolve("com/example"));
+
+        watcher = new FileWatcher(List.of(root), 100);
+
+        Path classFile = pkg.resolve("Foo.class");
+        Files.write(classFile, new byte[] {1});
+
+        List<Path> changes = pollUntilNotEmpty();
+        assertTrue(changes.contains(classFile), "Expected change in nested package directory");
+    }
+
+    @Test
+    void picksUpPackageDirectoriesCreatedWhileWatching() throws Exception {
+        Path root = Files.createTempDirectory("mmdr-fw-created");
+        watcher = new FileWatcher(List.of(root), 100);
+
+        Path pkg = Files.createDirectories(root.resolve("com/example/sub"));
+        Path classFile = pkg.resolve("Bar.class");
+        Files.write(classFile, new byte[] {1});
+
+        List<Path> changes = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline && !changes.contains(classFile)) {
+            changes.addAll(watcher.pollChanges(250));
+        }
+
+        assertTrue(changes.contains(classFile), "Expected change in newly created package directory");
+    }
+
+    @Test
+    void coalescesRepeatedWritesIntoOneBatch() throws Exception {
+        Path root = Files.createTempDirectory("mmdr-fw-coalesce");
+        watcher = new FileWatcher(List.of(root), 300);
+
+        Path classFile = root.resolve("Baz.class");
+        for (int i = 0; i < 10; i++) {
+            Files.write(classFile, new byte[] {(byte) i});
+        }
+
+        List<Path> changes = pollUntilNotEmpty();
+        assertEquals(1, changes.stream().filter(classFile::equals).count(),
+                "Expected repeated writes to be reported once");
+    }
+
+    @Test
+    void takeReportsSingleChangeWellBeforeTheCoalesceWindow() throws Exception {
+        Path root = Files.createTempDirectory("mmdr-fw-take");
+        watcher = new FileWatcher(List.of(root), 2000);
+
+        Path classFile = root.resolve("Qux.class");
+        long start = System.nanoTime();
+        Files.write(classFile, new byte[] {1});
+
+        List<Path> changes = watcher.take();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(changes.contains(classFile), "Expected the written file");
+        assertTrue(elapsedMs < 2000, "Expected the adaptive quiet period, took " + elapsedMs + " ms");
+        assertTrue(watcher.getQuietPeriodMs() <= 2000);
+    }
+
+    @Test
+    void wakeupReturnsEmptyChangeset() throws Exception {
+        Path root = Files.createTempDirectory("mmdr-fw-wakeup");
+        watcher = new FileWatcher(List.of(root), 100);
+
+        Thread waker = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            watcher.wakeup();
+        });
+        waker.start();
+
+        assertTrue(watcher.take().isEmpty());
+        assertFalse(Thread.currentThread().isInterrupted());
+        waker.join();
+
+        // A wakeup without a waiting thread is kept for the next call
+        watcher.wakeup();
+        assertTrue(watcher.take().isEmpty());
+    }
+
+    @Test
+    void skipsExcludedPackagesBeforeRegistering() throws Exception {
+        Path root = Files.createTempDirectory("mmdr-fw-filter");
+        Path excluded = Files.createDirectories(root.resolve("net/minecraft/client"));
+        Path included = Files.createDirectories(root.resolve("net/minecraft/mymod"));
+        AtomicReference<PackageFilter> filter = new AtomicReference<>(
+            PackageFilter.compile(List.of("net.minecraft.mymod.*"), List.of("net.minecraft.*")));
+
+        watcher = new FileWatcher(List.of(root), 100, filter::get);
+        assertEquals(1, watcher.getPrunedDirectoryCount());
+
+        Path ignored = excluded.resolve("Ignored.class");
+        Path besideIncluded = root.resolve("net/minecraft/Ignored.class");
+        Path classFile = included.resolve("Foo.class");
+        Files.write(ignored, new byte[] {1});
+        Files.write(besideIncluded, new byte[] {1});
+        Files.write(classFile, new byte[] {1});
+
+        List<Path> changes = pollUntilNotEmpty();
+        assertEquals(List.of(classFile), changes);
+
+        // A new filter is applied before the next changeset
+        filter.set(PackageFilter.ALLOW_ALL);
+        watcher.pollChanges(10);
+        assertEquals(0, watcher.getPrunedDirectoryCount());
+
+        Files.write(ignored, new byte[] {2});
+        assertTrue(pollUntilNotEmpty().contains(ignored));
+    }
+
+    private List<Path> pollUntilNotEmpty() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<Path> changes = new ArrayList<>();
+        while (System.nanoTime() < deadline && changes.isEmpty()) {
+            changes = watcher.pollChanges(250);
+        }
+        return changes;
+    }
+}
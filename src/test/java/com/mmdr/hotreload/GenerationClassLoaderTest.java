@@ -0,0 +1,62 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationClassLoaderTest {
+
+    public static class Peer {
+    }
+
+    public static class User {
+        public static Class<?> peer() {
+            return Peer.class;
+        }
+    }
+
+    private static byte[] bytecodeOf(Class<?> clazz) throws IOException {
+        String resource = clazz.getName().replace('.', '/') + ".class";
+        try (InputStream in = clazz.getClassLoader().getResourceAsStream(resource)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void classesOfOneGenerationLinkToEachOther() throws Exception {
+        Map<String, byte[]> bytecode = new ConcurrentHashMap<>();
+        bytecode.put(Peer.class.getName(), bytecodeOf(Peer.class));
+        bytecode.put(User.class.getName(), bytecodeOf(User.class));
+
+        GenerationClassLoader loader = new GenerationClassLoader(1, bytecode, name -> null, getClass().getClassLoader());
+        Class<?> user = loader.loadClass(User.class.getName());
+        Class<?> peer = (Class<?>) user.getMethod("peer").invoke(null);
+
+        assertSame(loader, user.getClassLoader());
+        assertSame(loader, peer.getClassLoader());
+        assertSame(peer, loader.loadClass(Peer.class.getName()));
+        assertTrue(bytecode.isEmpty());
+        assertTrue(loader.getBytecodeBytes() > 0);
+    }
+
+    @Test
+    void resolvesOtherClassesToTheirLatestVersion() throws Exception {
+        GenerationClassLoader previous = new GenerationClassLoader(1,
+            new ConcurrentHashMap<>(Map.of(Peer.class.getName(), bytecodeOf(Peer.class))),
+            name -> null, getClass().getClassLoader());
+        Class<?> latestPeer = previous.loadClass(Peer.class.getName());
+
+        GenerationClassLoader loader = new GenerationClassLoader(2,
+            new ConcurrentHashMap<>(Map.of(User.class.getName(), bytecodeOf(User.class))),
+            name -> name.equals(Peer.class.getName()) ? latestPeer : null, getClass().getClassLoader());
+        Class<?> user = loader.loadClass(User.class.getName());
+
+        assertSame(latestPeer, user.getMethod("peer").invoke(null));
+        assertSame(String.class, loader.loadClass(String.class.getName()));
+    }
+}
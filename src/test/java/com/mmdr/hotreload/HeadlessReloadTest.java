@@ -0,0 +1,83 @@
+package com.mmdr.hotreload;
+
+import com.mmdr.util.MMDRConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeadlessReloadTest {
+
+    private static final String CLASS_NAME = "headless.Greeter";
+
+    private HotReloadManager engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.stop();
+        }
+    }
+
+    /**
+     * {@code public class Greeter { public static int version() { return version; } }}
+     */
+    private static byte[] greeter(int version) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, CLASS_NAME.replace('.', '/'), null, "java/lang/Object", null);
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "version", "()I", null, null);
+        method.visitCode();
+        method.visitLdcInsn(version);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    @Test
+    void reloadsChangedClassesWithoutAGameDirectory() throws Exception {
+        Path output = Files.createTempDirectory("mmdr-headless-out");
+        Path cache = Files.createTempDirectory("mmdr-headless-cache");
+        Path classFile = Files.createDirectories(output.resolve("headless")).resolve("Greeter.class");
+        Files.write(classFile, greeter(1));
+
+        MMDRConfig config = new MMDRConfig();
+        config.setInstrumentationReloadEnabled(false);
+        engine = new HotReloadManager(config, new ReloadPaths(List.of(output), List.of(), cache), Runnable::run);
+
+        BlockingQueue<ReloadEvent> events = new LinkedBlockingQueue<>();
+        engine.getEventBus().subscribeClass(CLASS_NAME, events::add);
+        engine.start();
+
+        // Keep changing the class until the watcher has indexed the first version and reports a change
+        ReloadEvent event = null;
+        for (int version = 2; event == null && version < 50; version++) {
+            Files.write(classFile, greeter(version));
+            event = events.poll(200, TimeUnit.MILLISECONDS);
+        }
+
+        assertNotNull(event, "Expected the changed class to be reloaded");
+        int reloadedVersion = (int) event.getReloadedClass().getMethod("version").invoke(null);
+        assertTrue(reloadedVersion >= 2, "Expected a changed version, got " + reloadedVersion);
+
+        // The trace is recorded on the watcher thread after listeners have been notified
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (engine.getTimeline().size() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(engine.getTimeline().size() >= 1, "Expected the reload to be recorded in the timeline");
+    }
+}
@@ -0,0 +1,115 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalCompilerTest {
+
+    @Test
+    void compilesDependentsOnlyWhenSchemaChanges() throws Exception {
+        Path sources = Files.createTempDirectory("mmdr-src");
+        Path output = Files.createTempDirectory("mmdr-out");
+        Path target = write(sources, "demo/Target.java", "package demo; public class Target { public static int value() { return 1; } }");
+        write(sources, "demo/Caller.java", "package demo; public class Caller { int call() { return Target.value(); } }");
+
+        IncrementalCompiler compiler = IncrementalCompiler.create(List.of(sources), List.of(output));
+        assertNotNull(compiler);
+        DependencyIndex index = compileToDisk(compiler, new DependencyIndex(), output,
+            List.of(target, sources.resolve("demo/Caller.java")));
+
+        write(sources, "demo/Target.java", "package demo; public class Target { public static int value() { return 2; } }");
+        IncrementalCompiler.CompilationResult bodyOnly = compiler.compile(List.of(target), index);
+        assertTrue(bodyOnly.isSuccess(), bodyOnly.getErrors().toString());
+        assertEquals(Set.of("demo.Target"), bodyOnly.getClasses().keySet());
+
+        write(sources, "demo/Target.java", "package demo; public class Target { public static int value() { return 3; } public static int extra() { return 4; } }");
+        IncrementalCompiler.CompilationResult schemaChange = compiler.compile(List.of(target), index);
+        assertTrue(schemaChange.isSuccess(), schemaChange.getErrors().toString());
+        assertEquals(Set.of("demo.Target", "demo.Caller"), schemaChange.getClasses().keySet());
+
+        compiler.close();
+    }
+
+    @Test
+    void resolvesAgainstClassesCompiledInMemory() throws Exception {
+        Path sources = Files.createTempDirectory("mmdr-src");
+        Path output = Files.createTempDirectory("mmdr-out");
+        Path target = write(sources, "demo/Target.java", "package demo; public class Target { }");
+        Path caller = write(sources, "demo/Caller.java", "package demo; public class Caller { }");
+
+        IncrementalCompiler compiler = IncrementalCompiler.create(List.of(sources), List.of(output));
+        DependencyIndex index = compileToDisk(compiler, new DependencyIndex(), output, List.of(target, caller));
+
+        // The new method only exists in memory, not in the output directory
+        write(sources, "demo/Target.java", "package demo; public class Target { public static int extra() { return 4; } }");
+        assertTrue(compiler.compile(List.of(target), index).isSuccess());
+
+        write(sources, "demo/Caller.java", "package demo; public class Caller { int call() { return Target.extra(); } }");
+        IncrementalCompiler.CompilationResult result = compiler.compile(List.of(caller), index);
+        assertTrue(result.isSuccess(), result.getErrors().toString());
+
+        write(sources, "demo/Caller.java", "package demo; public class Caller { int call() { return Target.missing(); } }");
+        IncrementalCompiler.CompilationResult failed = compiler.compile(List.of(caller), index);
+        assertFalse(failed.isSuccess());
+        assertTrue(failed.getClasses().isEmpty());
+        assertFalse(failed.getErrors().isEmpty());
+
+        compiler.close();
+    }
+
+    @Test
+    void failedDependentsLeaveNoClassesInMemory() throws Exception {
+        Path sources = Files.createTempDirectory("mmdr-src");
+        Path output = Files.createTempDirectory("mmdr-out");
+        Path target = write(sources, "demo/Target.java", "package demo; public class Target { public static int value() { return 1; } }");
+        Path caller = write(sources, "demo/Caller.java", "package demo; public class Caller { int call() { return Target.value(); } }");
+
+        IncrementalCompiler compiler = IncrementalCompiler.create(List.of(sources), List.of(output));
+        DependencyIndex index = compileToDisk(compiler, new DependencyIndex(), output, List.of(target, caller));
+
+        // Target compiles, but its dependent does not
+        write(sources, "demo/Target.java", "package demo; public class Target { public static int renamed() { return 1; } }");
+        IncrementalCompiler.CompilationResult failed = compiler.compile(List.of(target), index);
+        assertFalse(failed.isSuccess());
+        assertTrue(failed.getClasses().isEmpty());
+
+        // The renamed method was never applied, so the fixed dependent alone must not link against it
+        write(sources, "demo/Caller.java", "package demo; public class Caller { int call() { return Target.renamed(); } }");
+        assertFalse(compiler.compile(List.of(caller), index).isSuccess());
+
+        IncrementalCompiler.CompilationResult both = compiler.compile(List.of(target, caller), index);
+        assertTrue(both.isSuccess(), both.getErrors().toString());
+        assertEquals(Set.of("demo.Target", "demo.Caller"), both.getClasses().keySet());
+
+        compiler.close();
+    }
+
+    private static DependencyIndex compileToDisk(IncrementalCompiler compiler, DependencyIndex index,
+                                                 Path output, List<Path> sources) throws Exception {
+        IncrementalCompiler.CompilationResult result = compiler.compile(sources, index);
+        assertTrue(result.isSuccess(), result.getErrors().toString());
+
+        for (var entry : result.getClasses().entrySet()) {
+            Path file = output.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(file.getParent());
+            Files.write(file, entry.getValue());
+            index.update(entry.getKey(), entry.getValue());
+            compiler.invalidate(entry.getKey());
+        }
+
+        return index;
+    }
+
+    private static Path write(Path root, String relativePath, String source) throws Exception {
+        Path file = root.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source);
+        return file;
+    }
+}
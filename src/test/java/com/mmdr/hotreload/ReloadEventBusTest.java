@@ -0,0 +1,66 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReloadEventBusTest {
+
+    public static class Target {
+    }
+
+    private static ReloadEvent redefined(Class<?> clazz) {
+        return new ReloadEvent(clazz.getName(), clazz, clazz);
+    }
+
+    @Test
+    void deliversToClassAndEnclosingPackageSubscribers() {
+        ReloadEventBus bus = new ReloadEventBus();
+        List<String> received = new ArrayList<>();
+
+        bus.subscribeClass(Target.class.getName(), e -> received.add("class"));
+        bus.subscribePackage("com.mmdr", e -> received.add("parent package"));
+        bus.subscribePackage("com.mmdr.hotreload", e -> received.add("package"));
+        bus.subscribePackage("com.mmdr.console", e -> received.add("other package"));
+        bus.subscribePackage("", e -> received.add("all"));
+        bus.subscribeClass(ReloadEventBusTest.class.getName(), e -> received.add("other class"));
+
+        bus.dispatch(redefined(Target.class));
+
+        assertEquals(List.of("class", "package", "parent package", "all"), received);
+    }
+
+    @Test
+    void stopsDeliveringAfterUnsubscribe() {
+        ReloadEventBus bus = new ReloadEventBus();
+        List<ReloadEvent> received = new ArrayList<>();
+
+        ReloadEventBus.Subscription subscription = bus.subscribePackage("com.mmdr.hotreload", received::add);
+        bus.dispatch(redefined(Target.class));
+        subscription.unsubscribe();
+        bus.dispatch(redefined(Target.class));
+
+        assertEquals(1, received.size());
+        assertEquals(ReloadEvent.Kind.REDEFINED, received.get(0).getKind());
+        assertFalse(received.get(0).isSchemaChanged());
+        assertEquals(0, bus.getSubscriberCount());
+    }
+
+    @Test
+    void failingListenerDoesNotStopDelivery() {
+        ReloadEventBus bus = new ReloadEventBus();
+        List<String> received = new ArrayList<>();
+
+        bus.subscribeClass(Target.class.getName(), e -> {
+            throw new IllegalStateException("listener failure");
+        });
+        bus.subscribeClass(Target.class.getName(), e -> received.add(e.getClassName()));
+
+        bus.dispatch(redefined(Target.class));
+
+        assertEquals(List.of(Target.class.getName()), received);
+    }
+}
@@ -0,0 +1,62 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReloadTimelineTest {
+
+    private static ReloadTrace trace(long readNanos, long defineNanos) {
+        ReloadTrace trace = new ReloadTrace();
+        trace.add(ReloadTrace.Stage.READ, readNanos);
+        trace.add(ReloadTrace.Stage.DEFINE, defineNanos);
+        return trace;
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentTraces() {
+        ReloadTimeline timeline = new ReloadTimeline(3);
+
+        for (int i = 1; i <= 5; i++) {
+            timeline.record(trace(i, 0));
+        }
+
+        List<ReloadTrace> traces = timeline.snapshot();
+        assertEquals(3, traces.size());
+        assertEquals(3, traces.get(0).getNanos(ReloadTrace.Stage.READ));
+        assertEquals(5, traces.get(2).getNanos(ReloadTrace.Stage.READ));
+    }
+
+    @Test
+    void reportsPercentilesPerStageAndTotal() {
+        ReloadTimeline timeline = new ReloadTimeline(100);
+
+        for (int i = 1; i <= 100; i++) {
+            timeline.record(trace(i, 1000));
+        }
+
+        List<ReloadTimeline.StageStats> stats = timeline.getStageStats();
+        ReloadTimeline.StageStats read = stats.get(ReloadTrace.Stage.READ.ordinal());
+        ReloadTimeline.StageStats total = stats.get(stats.size() - 1);
+
+        assertEquals("read", read.getStage());
+        assertEquals(50, read.getP50Nanos());
+        assertEquals(95, read.getP95Nanos());
+        assertEquals(100, read.getMaxNanos());
+        assertEquals(100, read.getLatestNanos());
+        assertEquals("total", total.getStage());
+        assertEquals(1100, total.getLatestNanos());
+    }
+
+    @Test
+    void emptyTimelineReportsZero() {
+        ReloadTimeline timeline = new ReloadTimeline(10);
+
+        for (ReloadTimeline.StageStats stat : timeline.getStageStats()) {
+            assertEquals(0, stat.getP95Nanos());
+        }
+        assertTrue(timeline.snapshot().isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticStateMigratorTest {
+
+    /** Class whose static state is migrated. */
+    public static class State {
+        public static int counter;
+        public static final List<String> REGISTRY = new ArrayList<>();
+        public static int initializerRuns;
+
+        static {
+            counter = 1;
+            REGISTRY.add("initial");
+            initializerRuns++;
+        }
+    }
+
+    @Test
+    void carriesStaticFieldsAndSkipsInitializer() throws Exception {
+        State.counter = 42;
+        State.REGISTRY.add("runtime");
+
+        StaticStateMigrator migrator = new StaticStateMigrator();
+        byte[] prepared = migrator.prepareBytecode(State.class.getName(), stateBytecode());
+        Class<?> reloaded = defineIsolated(State.class.getName(), prepared);
+
+        StaticStateMigrator.MigrationReport report = migrator.migrate(State.class, reloaded);
+
+        assertTrue(report.getDropped().isEmpty(), report.toString());
+        assertTrue(report.isInitializerSkipped());
+        assertEquals(42, reloaded.getField("counter").getInt(null));
+        assertSame(State.REGISTRY, reloaded.getField("REGISTRY").get(null));
+        assertEquals(State.initializerRuns, reloaded.getField("initializerRuns").getInt(null));
+    }
+
+    @Test
+    void movesStaticInitializerIntoSeparateMethod() throws Exception {
+        byte[] bytecode = stateBytecode();
+        byte[] prepared = new StaticStateMigrator().prepareBytecode(State.class.getName(), bytecode);
+
+        assertTrue(ClassSchema.of(prepared).getMethods().stream().anyMatch(m -> m.contains("$mmdr$clinit")));
+    }
+
+    @Test
+    void constantsTakeTheValueOfTheNewVersion() throws Exception {
+        StaticStateMigrator migrator = new StaticStateMigrator();
+        String className = "migrate.Limits";
+        Class<?> previous = defineIsolated(className, migrator.prepareBytecode(className, limits(10)));
+        previous.getField("counter").setInt(null, 5);
+
+        Class<?> reloaded = defineIsolated(className, migrator.prepareBytecode(className, limits(20)));
+        StaticStateMigrator.MigrationReport report = migrator.migrate(previous, reloaded);
+
+        assertEquals("constant", report.getDropped().get("LIMIT"), report.toString());
+        assertFalse(report.isInitializerSkipped());
+        assertEquals(20, reloaded.getField("LIMIT").getInt(null));
+        assertEquals(5, reloaded.getField("counter").getInt(null));
+    }
+
+    /**
+     * {@code public class Limits { public static final int LIMIT = limit; public static int counter = 1; }}
+     */
+    private static byte[] limits(int limit) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "migrate/Limits", null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "LIMIT", "I", null, limit).visitEnd();
+        writer.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "counter", "I", null, null).visitEnd();
+
+        MethodVisitor clinit = writer.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+        clinit.visitCode();
+        clinit.visitInsn(Opcodes.ICONST_1);
+        clinit.visitFieldInsn(Opcodes.PUTSTATIC, "migrate/Limits", "counter", "I");
+        clinit.visitInsn(Opcodes.RETURN);
+        clinit.visitMaxs(0, 0);
+        clinit.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static Class<?> defineIsolated(String className, byte[] bytecode) throws Exception {
+        ClassLoader loader = new ClassLoader(StaticStateMigratorTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (name.equals(className)) {
+                    synchronized (getClassLoadingLock(name)) {
+                        Class<?> loaded = findLoadedClass(name);
+                        return loaded != null ? loaded : defineClass(name, bytecode, 0, bytecode.length);
+                    }
+                }
+                return super.loadClass(name, resolve);
+            }
+        };
+        return Class.forName(className, false, loader);
+    }
+
+    private static byte[] stateBytecode() throws Exception {
+        String resourceName = StaticStateMigratorTest.class.getSimpleName() + "$State.class";
+        try (InputStream in = StaticStateMigratorTest.class.getResourceAsStream(resourceName)) {
+            assertNotNull(in, "Could not locate State.class resource");
+            return in.readAllBytes();
+        }
+    }
+}
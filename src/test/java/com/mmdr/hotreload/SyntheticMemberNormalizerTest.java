@@ -0,0 +1,92 @@
+package com.mmdr.hotreload;
+
+import org.junit.jupiter.api.Test;
+
+import javax.tools.ToolProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticMemberNormalizerTest {
+
+    private static final String HEADER = "package demo; import java.util.function.IntSupplier; public class Lambdas { ";
+
+    private static byte[] compile(String body) throws Exception {
+        Path dir = Files.createTempDirectory("mmdr-lambdas");
+        Path source = Files.createDirectories(dir.resolve("demo")).resolve("Lambdas.java");
+        Files.writeString(source, HEADER + body + " }");
+
+        int status = ToolProvider.getSystemJavaCompiler().run(null, null, null,
+            "-d", dir.toString(), source.toString());
+        assertEquals(0, status);
+        return Files.readAllBytes(dir.resolve("demo/Lambdas.class"));
+    }
+
+    private static int call(byte[] bytecode, String method) throws Exception {
+        Class<?> clazz = new ClassLoader(null) {
+            Class<?> define() {
+                return defineClass("demo.Lambdas", bytecode, 0, bytecode.length);
+            }
+        }.define();
+        return (int) clazz.getMethod(method).invoke(null);
+    }
+
+    @Test
+    void renumberedLambdasKeepTheirNames() throws Exception {
+        byte[] previous = compile(
+            "public static int a() { IntSupplier s = () -> 1; return s.getAsInt(); }"
+                + "public static int b() { IntSupplier s = () -> 2; return s.getAsInt(); }");
+        // Swapping the methods makes javac number the lambdas the other way round
+        byte[] current = compile(
+            "public static int b() { IntSupplier s = () -> 20; return s.getAsInt(); }"
+                + "public static int a() { IntSupplier s = () -> 10; return s.getAsInt(); }");
+
+        ClassSchema previousSchema = ClassSchema.of(previous);
+        assertTrue(previousSchema.differsOnlyInLambdaMethods(ClassSchema.of(current)));
+        assertNotEquals(ClassSchema.Change.BODY_ONLY, previousSchema.classify(ClassSchema.of(current)));
+
+        byte[] normalized = SyntheticMemberNormalizer.normalize(previous, current);
+
+        assertEquals(ClassSchema.Change.BODY_ONLY, previousSchema.classify(ClassSchema.of(normalized)));
+        assertEquals(10, call(normalized, "a"));
+        assertEquals(20, call(normalized, "b"));
+    }
+
+    @Test
+    void returnsTheSameArrayWhenNamesAlreadyMatch() throws Exception {
+        byte[] previous = compile("public static int a() { IntSupplier s = () -> 1; return s.getAsInt(); }");
+        byte[] current = compile("public static int a() { IntSupplier s = () -> 2; return s.getAsInt(); }");
+
+        assertSame(current, SyntheticMemberNormalizer.normalize(previous, current));
+    }
+
+    @Test
+    void addedLambdasGetUnusedNames() throws Exception {
+        byte[] previous = compile(
+            "public static int a() { IntSupplier s = () -> 1; return s.getAsInt(); }"
+                + "public static int b() { IntSupplier s = () -> 2; return s.getAsInt(); }");
+        byte[] current = compile(
+            "public static int a() { IntSupplier s = () -> 1; IntSupplier t = () -> 3; return s.getAsInt() + t.getAsInt(); }"
+                + "public static int b() { IntSupplier s = () -> 2; return s.getAsInt(); }");
+
+        byte[] normalized = SyntheticMemberNormalizer.normalize(previous, current);
+        ClassSchema previousSchema = ClassSchema.of(previous);
+
+        assertEquals(ClassSchema.Change.MEMBER_ADDED, previousSchema.classify(ClassSchema.of(normalized)));
+        assertEquals(4, call(normalized, "a"));
+        assertEquals(2, call(normalized, "b"));
+    }
+
+    @Test
+    void fingerprintIgnoresLambdaMethods() throws Exception {
+        byte[] previous = compile("public static int a() { IntSupplier s = () -> 1; return s.getAsInt(); }");
+        byte[] current = compile(
+            "public static int a() { IntSupplier s = () -> 1; IntSupplier t = () -> 2; return s.getAsInt() + t.getAsInt(); }");
+        byte[] changed = compile("public static int a() { return 1; } public static int b() { return 2; }");
+
+        assertEquals(ClassSchema.of(previous).fingerprint(), ClassSchema.of(current).fingerprint());
+        assertNotEquals(ClassSchema.of(previous).fingerprint(), ClassSchema.of(changed).fingerprint());
+        assertEquals(ClassSchema.Change.SCHEMA_CHANGED, ClassSchema.of(current).classify(ClassSchema.of(changed)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.mmdr.profiler;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodProfilerTest {
+
+    private static MethodProfiler.MethodStats statsOf(String method) {
+        return MethodProfiler.snapshot().stream()
+            .filter(stat -> stat.getMethod().equals(method))
+            .findFirst()
+            .orElse(null);
+    }
+
+    @Test
+    void methodIdsAreStablePerKey() {
+        int id = MethodProfiler.register("test.Ids#a()V");
+
+        assertEquals(id, MethodProfiler.register("test.Ids#a()V"));
+        assertNotEquals(id, MethodProfiler.register("test.Ids#b()V"));
+    }
+
+    @Test
+    void bucketsDoubleFromOneMicrosecond() {
+        assertEquals(0, MethodProfiler.bucketOf(0));
+        assertEquals(0, MethodProfiler.bucketOf(1023));
+        assertEquals(1, MethodProfiler.bucketOf(1024));
+        assertEquals(2, MethodProfiler.bucketOf(2048));
+        assertEquals(MethodProfiler.BUCKETS - 1, MethodProfiler.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void aggregatesCallsFromAllThreadsIntoHistograms() throws Exception {
+        int id = MethodProfiler.register("test.Counters#tick()V");
+        MethodProfiler.setRecording(true);
+
+        Runnable calls = () -> {
+            for (int i = 0; i < 100; i++) {
+                MethodProfiler.exit(id, System.nanoTime());
+            }
+        };
+        Thread other = new Thread(calls);
+        other.start();
+        calls.run();
+        other.join();
+
+        MethodProfiler.MethodStats stats = statsOf("test.Counters#tick()V");
+        assertEquals(200, stats.getCalls());
+        assertEquals(200, Arrays.stream(stats.getHistogram()).sum());
+        assertTrue(stats.getPercentileNanos(0.95) >= 1024);
+
+        MethodProfiler.setRecording(false);
+        MethodProfiler.exit(id, System.nanoTime());
+        MethodProfiler.setRecording(true);
+        assertEquals(200, statsOf("test.Counters#tick()V").getCalls());
+
+        MethodProfiler.reset();
+        assertNull(statsOf("test.Counters#tick()V"));
+    }
+
+    @Test
+    void dumpWritesOneLinePerCalledMethod() throws Exception {
+        int id = MethodProfiler.register("test.Dump#render()V");
+        MethodProfiler.setRecording(true);
+        MethodProfiler.exit(id, System.nanoTime() - 5_000);
+
+        Path file = Files.createTempDirectory("mmdr-profile").resolve("nested/profile.txt");
+        MethodProfiler.dump(file);
+
+        List<String> lines = Files.readAllLines(file);
+        assertTrue(lines.get(0).startsWith("method"));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("test.Dump#render()V")));
+    }
+}
@@ -0,0 +1,115 @@
+package com.mmdr.profiler;
+
+import com.mmdr.hotreload.BytecodeTransformer;
+import com.mmdr.util.MMDRConfig;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import javax.tools.ToolProvider;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilingPassTest {
+
+    private static final String SOURCE = "package demo.profiled; public class Work {"
+        + " public static int sum(int n) { int total = 0; for (int i = 0; i < n; i++) total += i; return total; }"
+        + " public static int parse(String text) { try { return Integer.parseInt(text); } catch (NumberFormatException e) { return -1; } }"
+        + " public static void fail() { throw new IllegalStateException(\"fail\"); }"
+        + " }";
+
+    private static MMDRConfig profiling(String... packages) {
+        MMDRConfig config = new MMDRConfig();
+        config.setMethodProfilingEnabled(true);
+        for (String packageName : packages) {
+            config.addProfiledPackage(packageName);
+        }
+        return config;
+    }
+
+    private static ClassReader header(int access) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, access, "demo/Header", null, "java/lang/Object", null);
+        writer.visitEnd();
+        return new ClassReader(writer.toByteArray());
+    }
+
+    private static byte[] compileWork() throws Exception {
+        Path dir = Files.createTempDirectory("mmdr-profiled");
+        Path source = Files.createDirectories(dir.resolve("demo/profiled")).resolve("Work.java");
+        Files.writeString(source, SOURCE);
+
+        int status = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", dir.toString(), source.toString());
+        assertEquals(0, status);
+        return Files.readAllBytes(dir.resolve("demo/profiled/Work.class"));
+    }
+
+    private static MethodProfiler.MethodStats statsOf(String method) {
+        return MethodProfiler.snapshot().stream()
+            .filter(stat -> stat.getMethod().equals(method))
+            .findFirst()
+            .orElse(null);
+    }
+
+    @Test
+    void appliesToProfiledPackagesAndTheirSubpackagesOnly() {
+        ProfilingPass pass = new ProfilingPass(profiling("com.foo", "com.mmdr"));
+        ClassReader plainClass = header(Opcodes.ACC_PUBLIC);
+
+        assertTrue(pass.appliesTo("com.foo.Bar", plainClass));
+        assertTrue(pass.appliesTo("com.foo.sub.Bar", plainClass));
+        assertFalse(pass.appliesTo("com.foobar.Bar", plainClass));
+        assertFalse(pass.appliesTo("com.mmdr.MMDR", plainClass));
+        assertFalse(pass.appliesTo("com.foo.Api", header(Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT)));
+
+        assertFalse(new ProfilingPass(profiling()).appliesTo("com.foo.Bar", plainClass));
+        MMDRConfig disabled = profiling("com.foo");
+        disabled.setMethodProfilingEnabled(false);
+        assertFalse(new ProfilingPass(disabled).appliesTo("com.foo.Bar", plainClass));
+    }
+
+    @Test
+    void instrumentedMethodsRecordReturnsAndExplicitThrows() throws Exception {
+        BytecodeTransformer transformer = new BytecodeTransformer();
+        transformer.addPass(new ProfilingPass(profiling("demo.profiled")));
+        byte[] original = compileWork();
+        byte[] instrumented = transformer.transform("demo.profiled.Work", original);
+        assertNotSame(original, instrumented);
+
+        Class<?> work = new ClassLoader(ProfilingPassTest.class.getClassLoader()) {
+            Class<?> define() {
+                return defineClass("demo.profiled.Work", instrumented, 0, instrumented.length);
+            }
+        }.define();
+
+        MethodProfiler.setRecording(true);
+        assertEquals(45, work.getMethod("sum", int.class).invoke(null, 10));
+        assertEquals(45, work.getMethod("sum", int.class).invoke(null, 10));
+        assertEquals(-1, work.getMethod("parse", String.class).invoke(null, "x"));
+        InvocationTargetException thrown = assertThrows(InvocationTargetException.class,
+            () -> work.getMethod("fail").invoke(null));
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+
+        MethodProfiler.MethodStats sum = statsOf("demo.profiled.Work#sum(I)I");
+        assertNotNull(sum);
+        assertEquals(2, sum.getCalls());
+        assertEquals(1, statsOf("demo.profiled.Work#parse(Ljava/lang/String;)I").getCalls());
+        assertEquals(1, statsOf("demo.profiled.Work#fail()V").getCalls());
+    }
+
+    @Test
+    void skipsClassesThatAreAlreadyInstrumented() throws Exception {
+        BytecodeTransformer transformer = new BytecodeTransformer();
+        transformer.addPass(new ProfilingPass(profiling("demo.profiled")));
+        byte[] original = compileWork();
+        byte[] instrumented = transformer.transform("demo.profiled.Work", original);
+
+        assertFalse(ProfilingPass.isInstrumented(new ClassReader(original)));
+        assertTrue(ProfilingPass.isInstrumented(new ClassReader(instrumented)));
+        assertSame(instrumented, transformer.transform("demo.profiled.Work", instrumented));
+    }
+}
@@ -0,0 +1,70 @@
+package com.mmdr.profiler;
+
+import com.mmdr.util.MMDRConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.ToolProvider;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilingRetransformerTest {
+
+    private static final String SOURCE = "package demo.retransformed; public class Loaded {"
+        + " public static int twice(int n) { return n * 2; }"
+        + " }";
+
+    @AfterEach
+    void tearDown() {
+        ProfilingRetransformer.restore();
+    }
+
+    private static Class<?> defineLoaded() throws Exception {
+        Path dir = Files.createTempDirectory("mmdr-retransformed");
+        Path source = Files.createDirectories(dir.resolve("demo/retransformed")).resolve("Loaded.java");
+        Files.writeString(source, SOURCE);
+
+        int status = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", dir.toString(), source.toString());
+        assertEquals(0, status);
+        byte[] bytecode = Files.readAllBytes(dir.resolve("demo/retransformed/Loaded.class"));
+
+        return new ClassLoader(ProfilingRetransformerTest.class.getClassLoader()) {
+            Class<?> define() {
+                return defineClass("demo.retransformed.Loaded", bytecode, 0, bytecode.length);
+            }
+        }.define();
+    }
+
+    private static long callsOf(String method) {
+        return MethodProfiler.snapshot().stream()
+            .filter(stat -> stat.getMethod().equals(method))
+            .mapToLong(MethodProfiler.MethodStats::getCalls)
+            .sum();
+    }
+
+    @Test
+    void instrumentsLoadedClassesUntilRestored() throws Exception {
+        if (!ProfilingRetransformer.isSupported()) {
+            return;
+        }
+
+        Method twice = defineLoaded().getMethod("twice", int.class);
+        MMDRConfig config = new MMDRConfig();
+        config.setMethodProfilingEnabled(true);
+        config.addProfiledPackage("demo.retransformed");
+        MethodProfiler.setRecording(true);
+
+        assertEquals(1, ProfilingRetransformer.instrument(config));
+        assertEquals(0, ProfilingRetransformer.instrument(config));
+        assertEquals(4, twice.invoke(null, 2));
+        assertEquals(1, callsOf("demo.retransformed.Loaded#twice(I)I"));
+
+        assertEquals(1, ProfilingRetransformer.restore());
+        assertEquals(0, ProfilingRetransformer.getInstrumentedCount());
+        assertEquals(6, twice.invoke(null, 3));
+        assertEquals(1, callsOf("demo.retransformed.Loaded#twice(I)I"));
+    }
+}
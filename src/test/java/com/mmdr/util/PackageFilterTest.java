@@ -0,0 +1,72 @@
+package com.mmdr.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackageFilterTest {
+
+    @Test
+    void mostSpecificRuleDecides() {
+        PackageFilter filter = PackageFilter.compile(
+            List.of("net.minecraft.mymod.*"),
+            List.of("net.minecraft.*", "com.example.generated"));
+
+        assertFalse(filter.includes("net.minecraft.client.MinecraftClient"));
+        assertTrue(filter.includes("net.minecraft.mymod.ModItems"));
+        assertTrue(filter.includes("net.minecraft.mymod.client.Renderer"));
+        assertFalse(filter.includes("com.example.generated.Proto$Message"));
+    }
+
+    @Test
+    void everythingIsIncludedWithoutIncludeRules() {
+        PackageFilter filter = PackageFilter.compile(List.of(), List.of("net.minecraft.*"));
+
+        assertTrue(filter.includes("com.example.Foo"));
+        assertTrue(filter.includes("Foo"));
+        assertTrue(filter.includes("net.minecraftx.Foo"));
+        assertFalse(filter.includes("net.minecraft.Foo"));
+    }
+
+    @Test
+    void onlyIncludedPackagesPassWhenIncludeRulesExist() {
+        PackageFilter filter = PackageFilter.compile(List.of("com.example.*"), List.of());
+
+        assertTrue(filter.includes("com.example.mod.Foo"));
+        assertFalse(filter.includes("com.other.Foo"));
+        assertFalse(filter.includes("Foo"));
+    }
+
+    @Test
+    void prunesDirectoriesThatCannotContainIncludedClasses() {
+        PackageFilter filter = PackageFilter.compile(
+            List.of("net.minecraft.mymod.*"),
+            List.of("net.minecraft.*"));
+
+        assertTrue(filter.visitsDirectory(Path.of("")));
+        assertTrue(filter.visitsDirectory(Path.of("net", "minecraft")));
+        assertTrue(filter.visitsDirectory(Path.of("net", "minecraft", "mymod", "client")));
+        assertFalse(filter.visitsDirectory(Path.of("net", "minecraft", "client")));
+        assertFalse(filter.visitsDirectory(Path.of("com", "example")));
+
+        assertFalse(filter.includesFile(Path.of("net", "minecraft", "Foo.class")));
+        assertTrue(filter.includesFile(Path.of("net", "minecraft", "mymod", "Foo.class")));
+    }
+
+    @Test
+    void configRecompilesTheFilterWhenRulesChange() {
+        MMDRConfig config = new MMDRConfig();
+        PackageFilter first = config.getPackageFilter();
+
+        assertSame(first, config.getPackageFilter());
+        assertFalse(config.isPackageExcluded("com.example.Foo"));
+
+        config.addExcludedPackage("com.example.*");
+
+        assertNotSame(first, config.getPackageFilter());
+        assertTrue(config.isPackageExcluded("com.example.Foo"));
+    }
+}